@@ -0,0 +1,104 @@
+import warnings
+warnings.filterwarnings("ignore")
+import sys
+import threading
+import traceback
+
+# =====================
+# LONG-LIVED RECOGNITION WORKER
+# Started once by the Java side (RecognitionWorker) and kept warm.
+# face_recognition / dlib are imported a single time; afterwards every
+# request is one line on stdin and every answer is one line on stdout:
+#
+#   PING    ->  OK|PONG|0
+#   SCAN    ->  FRAME / MATCH exchange (below), then OK|DONE|<SPACE|QUIT>
+#   QUIT    ->  worker exits
+#
+# Matching is done in Java (FaceGallery). During a SCAN, every AI frame
+# sends the probe encodings and waits for Java's verdict:
+#
+#   worker -> FRAME|<n>|<v0,v1,...,v127>;<v0,...>     (n faces, 128 floats each)
+#   java   -> MATCH|<LABEL>|<ID>|<LABEL:ID>;<LABEL:ID>
+#
+# LABEL|ID is the identity confirmed by Java (UNKNOWN|0 if none yet),
+# followed by one LABEL:ID per face for the on-screen boxes.
+# Any other stdout line is debug output and is ignored by Java.
+# =====================
+import recognize_face
+
+
+def reply(line):
+    sys.stdout.write(line + "\n")
+    sys.stdout.flush()
+
+
+def remote_matcher():
+    lock   = threading.Lock()
+    closed = [False]
+
+    def match_frame(encs):
+        unknown = [("UNKNOWN", "0")] * len(encs)
+        with lock:
+            # The scan may end while the AI thread is mid-frame; once closed
+            # nothing more is written so OK|DONE stays the last line.
+            if closed[0]:
+                return unknown, None
+            probes = ";".join(",".join("%.7g" % v for v in enc) for enc in encs)
+            reply(f"FRAME|{len(encs)}|{probes}")
+            answer = sys.stdin.readline().strip()
+
+        parts = answer.split("|")
+        if len(parts) < 4 or parts[0] != "MATCH":
+            return unknown, None
+
+        names = [tuple(face.split(":", 1)) for face in parts[3].split(";") if face]
+        if len(names) != len(encs):
+            names = unknown
+
+        label, person_id = parts[1], parts[2]
+        confirmed = None
+        if label != "UNKNOWN":
+            confirmed = (label, person_id, label.lower() + "s")
+        return names, confirmed
+
+    def close():
+        with lock:
+            closed[0] = True
+
+    return match_frame, close
+
+
+def main():
+    reply("READY|0|0")
+
+    while True:
+        raw = sys.stdin.readline()
+        if not raw:
+            break
+        command = raw.strip().upper()
+        if not command:
+            continue
+
+        if command == "PING":
+            reply("OK|PONG|0")
+
+        elif command == "SCAN":
+            match_frame, close = remote_matcher()
+            try:
+                _, _, key = recognize_face.run_scan(match_frame)
+                close()
+                reply(f"OK|DONE|{key}")
+            except Exception:
+                close()
+                traceback.print_exc(file=sys.stdout)
+                reply("ERROR|SCAN|0")
+
+        elif command == "QUIT":
+            break
+
+        else:
+            reply("ERROR|BAD_COMMAND|0")
+
+
+if __name__ == "__main__":
+    main()
@@ -30,6 +30,36 @@ PHOTO_DIR  = os.path.join(BASE_DIR, "photos",    person_type.lower() + "s")
 os.makedirs(TARGET_DIR, exist_ok=True)
 os.makedirs(PHOTO_DIR,  exist_ok=True)
 
+# Each training run adds a sample ({id}_{n}.npy) instead of overwriting the
+# last one; the oldest are dropped beyond MAX_SAMPLES. A legacy {id}.npy
+# counts as a sample too. Java matches against every sample of a person.
+MAX_SAMPLES = 5
+
+
+def person_samples():
+    samples = []
+    for file in os.listdir(TARGET_DIR):
+        stem = file[:-4] if file.endswith(".npy") else None
+        if stem is None:
+            continue
+        pid, _, n = stem.partition("_")
+        if pid == person_id and (n == "" or n.isdigit()):
+            samples.append((int(n) if n else 0, os.path.join(TARGET_DIR, file)))
+    return samples
+
+
+def save_sample(encoding):
+    samples  = person_samples()
+    next_n   = max([n for n, _ in samples], default=0) + 1
+    npy_path = os.path.join(TARGET_DIR, f"{person_id}_{next_n}.npy")
+    np.save(npy_path, encoding)
+
+    samples.append((next_n, npy_path))
+    samples.sort(key=lambda s: os.path.getmtime(s[1]))
+    for _, old in samples[:-MAX_SAMPLES]:
+        os.remove(old)
+    return npy_path
+
 # ══════════════════════════════════════════════════════
 #  POPUP — Match app theme
 # ══════════════════════════════════════════════════════
@@ -271,8 +301,7 @@ def capture_from_camera():
     cv2.destroyAllWindows()
 
     if encodings:
-        npy_path = os.path.join(TARGET_DIR, f"{person_id}.npy")
-        np.save(npy_path, encodings[0])
+        npy_path = save_sample(encodings[0])
         print(f"Encoding saved: {npy_path}")
         print("OK|TRAINED|0")
 
@@ -330,8 +359,7 @@ def capture_from_file():
     frame_bgr  = cv2.cvtColor(image, cv2.COLOR_RGB2BGR)
     cv2.imwrite(photo_path, frame_bgr, [int(cv2.IMWRITE_JPEG_QUALITY), 100])
 
-    npy_path = os.path.join(TARGET_DIR, f"{person_id}.npy")
-    np.save(npy_path, face_encs[0])
+    npy_path = save_sample(face_encs[0])
 
     print(f"Photo saved:    {photo_path}")
     print(f"Encoding saved: {npy_path}")
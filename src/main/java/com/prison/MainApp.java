@@ -1,5 +1,12 @@
 package com.prison;
 
+import com.prison.dao.GuardDao;
+import com.prison.dao.PrisonerDao;
+import com.prison.service.FaceRecognitionService;
+import com.prison.service.RecognitionLogWriter;
+import com.prison.service.RecognitionRollupBackfill;
+import com.prison.util.DatabaseUtil;
+import com.prison.util.MigrationRunner;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -10,6 +17,14 @@ public class MainApp extends Application {
 
     @Override
     public void start(Stage stage) throws Exception {
+        // GET_LOCK can wait 60 s and MySQL may be down: never hold the window back for it
+        Thread migrate = new Thread(() -> {
+            MigrationRunner.migrate();
+            RecognitionRollupBackfill.backfillMissing();
+        }, "db-migrate");
+        migrate.setDaemon(true);
+        migrate.start();
+
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/login.fxml"));
         Parent root = loader.load();
 
@@ -23,6 +38,15 @@ public class MainApp extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        FaceRecognitionService.shutdown();
+        RecognitionLogWriter.shutdown(5_000);   // anything not written by then is spilled
+        System.out.println("Entity cache " + GuardDao.cache().stats());
+        System.out.println("Entity cache " + PrisonerDao.cache().stats());
+        DatabaseUtil.shutdown();                // last: the log writer above still needs it
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,10 +1,10 @@
 package com.prison.controller;
 
-import com.prison.dao.GuardDao;
-import com.prison.dao.PrisonerDao;
+import com.prison.dao.DashboardStatsDao;
 import com.prison.dao.UserDao;
 import com.prison.model.User;
 import com.prison.session.UserSession;
+import com.prison.util.DataLoader;
 
 import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
@@ -51,8 +51,8 @@ public class AdminDashboardController {
     @FXML private Label alertDot5;
 
     /* ── DAOs (unchanged) ────────────────────────────────────────────────── */
-    private final PrisonerDao prisonerDao = new PrisonerDao();
-    private final GuardDao    guardDao    = new GuardDao();
+    private final DashboardStatsDao statsDao    = new DashboardStatsDao();
+    private final DataLoader        statsLoader = new DataLoader();
     private final UserDao     userDao     = new UserDao();
 
     /* ── Alert data for slideshow ─────────────────────────────────────────── */
@@ -164,9 +164,11 @@ public class AdminDashboardController {
 
     /* ── Original: updateCounts ──────────────────────────────────────────── */
     private void updateCounts() {
-        prisonerCountButton.setText(String.valueOf(prisonerDao.countActivePrisoners()));
-        guardCountButton.setText(String.valueOf(guardDao.countActiveGuards()));
-        guardCount.setText(String.valueOf(guardDao.countGuards()));
+        statsLoader.load(() -> statsDao.load(LocalDate.now()), s -> {
+            prisonerCountButton.setText(String.valueOf(s.inCustody));
+            guardCountButton.setText(String.valueOf(s.activeGuards));
+            guardCount.setText(String.valueOf(s.totalGuards));
+        });
     }
 
     /* ── Original: startAutoRefresh ──────────────────────────────────────── */
@@ -1,13 +1,17 @@
 package com.prison.controller;
 
+import com.prison.dao.DashboardStatsDao;
 import com.prison.dao.GuardDao;
 import com.prison.dao.PrisonerDao;
 import com.prison.dao.RecognitionLogDao;
+import com.prison.model.LogFilter;
 import com.prison.dao.UserDao;
 import com.prison.model.RecognitionLog;
 import com.prison.model.User;
 import com.prison.session.UserSession;
+import com.prison.util.DataLoader;
 import com.prison.util.DatabaseUtil;
+import com.prison.util.PdfExport;
 
 import com.lowagie.text.*;
 import com.lowagie.text.Font;
@@ -32,13 +36,10 @@ import javafx.util.Duration;
 
 import java.awt.Color;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.stream.Collectors;
 
 public class CoAdminDashboardController {
 
@@ -66,6 +67,11 @@ public class CoAdminDashboardController {
     @FXML private TableColumn<DangerRow, String> dtCell;
     @FXML private TableColumn<DangerRow, String> dtLevel;
 
+    // Each section loads off the FX thread; the 30 s refresh replaces its own previous load
+    private final DataLoader statsLoader  = new DataLoader();
+    private final DataLoader recentLoader = new DataLoader();
+    private final DataLoader dangerLoader = new DataLoader();
+
     private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("dd MMM yyyy  HH:mm");
     private static final Color C_DARK  = new Color(10, 31, 92);
     private static final Color C_ALT   = new Color(232, 236, 243);
@@ -127,25 +133,15 @@ public class CoAdminDashboardController {
 
     // ── Stats ─────────────────────────────────────────────────────────────────
     private void loadStats() {
-        try (Connection c = DatabaseUtil.getConnection()) {
-            prisonerCountLbl.setText(String.valueOf(
-                    queryInt(c, "SELECT COUNT(*) FROM prisoners WHERE status='IN_CUSTODY'")));
-            guardCountLbl.setText(String.valueOf(
-                    queryInt(c, "SELECT COUNT(*) FROM guards WHERE status='ACTIVE'")));
-            highDangerLbl.setText(String.valueOf(
-                    queryInt(c, "SELECT COUNT(*) FROM prisoners WHERE danger_level='HIGH' AND status='IN_CUSTODY'")));
-            String today = LocalDate.now().toString();
-            todayScansLbl.setText(String.valueOf(queryInt(c,
-                    "SELECT COUNT(*) FROM recognition_logs WHERE DATE(detected_at) = '" + today + "'")));
-            unknownLbl.setText(String.valueOf(queryInt(c,
-                    "SELECT COUNT(*) FROM recognition_logs WHERE person_type='UNKNOWN' AND DATE(detected_at) = '" + today + "'")));
-        } catch (Exception e) { e.printStackTrace(); }
+        statsLoader.load(() -> new DashboardStatsDao().load(LocalDate.now()), this::showStats);
     }
 
-    private int queryInt(Connection c, String sql) throws SQLException {
-        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
-            return rs.next() ? rs.getInt(1) : 0;
-        }
+    private void showStats(DashboardStatsDao.Stats s) {
+        prisonerCountLbl.setText(String.valueOf(s.inCustody));
+        guardCountLbl.setText(String.valueOf(s.activeGuards));
+        highDangerLbl.setText(String.valueOf(s.highDanger));
+        todayScansLbl.setText(String.valueOf(s.scansToday));
+        unknownLbl.setText(String.valueOf(s.unknownToday));
     }
 
     // ── Recent recognition scans (last 15 today) ──────────────────────────────
@@ -186,12 +182,9 @@ public class CoAdminDashboardController {
     }
 
     private void loadRecentScans() {
-        try {
-            List<RecognitionLog> all = new RecognitionLogDao().findAll();
-            ObservableList<RecognitionLog> top = FXCollections.observableArrayList(
-                    all.stream().limit(15).collect(Collectors.toList()));
-            recentTable.setItems(top);
-        } catch (Exception e) { e.printStackTrace(); }
+        recentLoader.load(recentTable,
+                () -> new RecognitionLogDao().findPage(LogFilter.none(), null, 15),
+                latest -> recentTable.setItems(FXCollections.observableArrayList(latest)));
     }
 
     // ── High-danger prisoners ────────────────────────────────────────────────
@@ -213,6 +206,10 @@ public class CoAdminDashboardController {
     }
 
     private void loadDangerPrisoners() {
+        dangerLoader.load(dangerTable, this::queryDangerPrisoners, dangerTable::setItems);
+    }
+
+    private ObservableList<DangerRow> queryDangerPrisoners() {
         ObservableList<DangerRow> rows = FXCollections.observableArrayList();
         String sql = "SELECT name, crime, cell_no, danger_level FROM prisoners " +
                 "WHERE danger_level='HIGH' AND status='IN_CUSTODY' ORDER BY name";
@@ -223,7 +220,7 @@ public class CoAdminDashboardController {
                 rows.add(new DangerRow(rs.getString("name"), rs.getString("crime"),
                         rs.getString("cell_no"), rs.getString("danger_level")));
         } catch (Exception e) { e.printStackTrace(); }
-        dangerTable.setItems(rows);
+        return rows;
     }
 
     // ── Navigation ────────────────────────────────────────────────────────────
@@ -261,13 +258,12 @@ public class CoAdminDashboardController {
     // ── Export today's log PDF ────────────────────────────────────────────────
     @FXML
     public void exportTodayLog() {
-        List<RecognitionLog> all = new RecognitionLogDao().findAll();
         LocalDate today = LocalDate.now();
-        List<RecognitionLog> records = all.stream()
-                .filter(l -> l.getDetectedAt() != null && l.getDetectedAt().toLocalDate().equals(today))
-                .collect(Collectors.toList());
+        RecognitionLogDao logDao = new RecognitionLogDao();
+        LogFilter todayOnly = new LogFilter(null, null, today, today, null);
+        int total = logDao.count(todayOnly).getTotal();
 
-        if (records.isEmpty()) {
+        if (total == 0) {
             new Alert(Alert.AlertType.WARNING, "No recognition events for today.").showAndWait();
             return;
         }
@@ -279,9 +275,11 @@ public class CoAdminDashboardController {
         File file = fc.showSaveDialog(recentTable.getScene().getWindow());
         if (file == null) return;
 
-        try {
-            Document doc = new Document(PageSize.A4.rotate(), 40, 40, 60, 55);
-            PdfWriter writer = PdfWriter.getInstance(doc, new FileOutputStream(file));
+        PdfExport.start(recentTable.getScene().getWindow(), file,
+                new Document(PageSize.A4.rotate(), 40, 40, 60, 55), total,
+                "Today's log exported!", export -> {
+            Document doc = export.document();
+            PdfWriter writer = export.writer();
             writer.setPageEvent(new PdfPageEventHelper() {
                 @Override public void onEndPage(PdfWriter w, Document d) {
                     try {
@@ -312,8 +310,7 @@ public class CoAdminDashboardController {
                 table.addCell(c);
             }
             Font df = FontFactory.getFont(FontFactory.HELVETICA, 9, Color.BLACK);
-            for (int i = 0; i < records.size(); i++) {
-                RecognitionLog l = records.get(i);
+            export.table(table, sink -> logDao.forEach(todayOnly, sink), (RecognitionLog l, int i) -> {
                 Color bg = i % 2 == 0 ? Color.WHITE : C_ALT;
                 Color resBg = "RECOGNIZED".equals(l.getResult()) ? C_GREEN
                         : "FAILED".equals(l.getResult()) ? C_RED : C_AMBER;
@@ -325,14 +322,8 @@ public class CoAdminDashboardController {
                         FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8, C_DARK)));
                 rc.setBackgroundColor(resBg); rc.setPadding(8); rc.setHorizontalAlignment(Element.ALIGN_CENTER);
                 table.addCell(rc);
-            }
-            doc.add(table);
-            doc.close();
-            new Alert(Alert.AlertType.INFORMATION, "Today's log exported!").show();
-        } catch (Exception e) {
-            e.printStackTrace();
-            new Alert(Alert.AlertType.ERROR, "Export failed: " + e.getMessage()).show();
-        }
+            });
+        });
     }
 
     private void pdfCell(PdfPTable t, String txt, Font f, Color bg, int align) {
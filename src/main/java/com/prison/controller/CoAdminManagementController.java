@@ -4,6 +4,7 @@ import com.prison.dao.UserDao;
 import com.prison.dao.UserDao.LoginLogRow;
 import com.prison.model.User;
 import com.prison.session.UserSession;
+import com.prison.util.PdfExport;
 
 import com.lowagie.text.*;
 import com.lowagie.text.Font;
@@ -21,7 +22,6 @@ import javafx.stage.FileChooser;
 
 import java.awt.Color;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -342,9 +342,12 @@ public class CoAdminManagementController {
         File file = fc.showSaveDialog(logTable.getScene().getWindow());
         if (file == null) return;
 
-        try {
-            Document doc = new Document(PageSize.A4.rotate(), 40, 40, 60, 55);
-            PdfWriter writer = PdfWriter.getInstance(doc, new FileOutputStream(file));
+        // The rows are the filtered table already in memory; the PDF is written in the background
+        PdfExport.start(logTable.getScene().getWindow(), file,
+                new Document(PageSize.A4.rotate(), 40, 40, 60, 55), records.size(),
+                "Login Activity Report exported successfully!", export -> {
+            Document doc = export.document();
+            PdfWriter writer = export.writer();
 
             // Page borders + footer
             writer.setPageEvent(new PdfPageEventHelper() {
@@ -407,8 +410,9 @@ public class CoAdminManagementController {
             doc.add(hdr);
 
             // Meta bar
-            long active   = records.stream().filter(r -> "ACTIVE".equals(r.status)).count();
-            long loggedOut= records.size() - active;
+            int active = 0;
+            for (LoginLogRow r : records) if ("ACTIVE".equals(r.status)) active++;
+            int loggedOut = records.size() - active;
             PdfPTable meta = new PdfPTable(3); meta.setWidthPercentage(100); meta.setSpacingAfter(12f);
             Font mf = FontFactory.getFont(FontFactory.HELVETICA, 8, Color.WHITE);
             pdfMetaCell(meta, "TOTAL SESSIONS: " + records.size(), mf, C_DARK);
@@ -429,8 +433,7 @@ public class CoAdminManagementController {
             }
             Font df  = FontFactory.getFont(FontFactory.HELVETICA, 9, Color.BLACK);
             Font bdf = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, Color.BLACK);
-            for (int i = 0; i < records.size(); i++) {
-                LoginLogRow l = records.get(i);
+            export.table(table, records::forEach, (LoginLogRow l, int i) -> {
                 Color rowBg = i % 2 == 0 ? Color.WHITE : C_ALT;
                 Color stBg  = "ACTIVE".equals(l.status) ? C_GREEN : C_LGRAY;
                 pdfDataCell(table, String.valueOf(i+1),            df,  rowBg, Element.ALIGN_CENTER);
@@ -445,8 +448,7 @@ public class CoAdminManagementController {
                 sc.setHorizontalAlignment(Element.ALIGN_CENTER); sc.setVerticalAlignment(Element.ALIGN_MIDDLE);
                 sc.setBorderColor(new Color(180,190,210));
                 table.addCell(sc);
-            }
-            doc.add(table);
+            });
 
             // Verification strip
             PdfPTable vt = new PdfPTable(1); vt.setWidthPercentage(100);
@@ -458,14 +460,7 @@ public class CoAdminManagementController {
             vc.setHorizontalAlignment(Element.ALIGN_CENTER); vc.setPadding(8);
             vc.setBackgroundColor(C_ALT);
             vt.addCell(vc); doc.add(vt);
-
-            doc.close();
-            new Alert(Alert.AlertType.INFORMATION, "Login Activity Report exported successfully!").show();
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            new Alert(Alert.AlertType.ERROR, "Export failed: " + e.getMessage()).show();
-        }
+        });
     }
 
     // ── PDF helpers ───────────────────────────────────────────────────────────
@@ -2,11 +2,12 @@ package com.prison.controller;
 
 import com.prison.dao.GuardDao;
 import com.prison.dao.PrisonerDao;
-import com.prison.dao.RecognitionLogDao;
 import com.prison.model.Guard;
 import com.prison.model.Prisoner;
 import com.prison.model.RecognitionLog;
 import com.prison.service.FaceRecognitionService;
+import com.prison.service.RecognitionLogWriter;
+import com.prison.util.PhotoCache;
 
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
@@ -68,6 +69,7 @@ public class FaceRecognitionController {
     public void initialize() {
         startClock();
         startPulse();
+        FaceRecognitionService.warmUp(); // load dlib + encodings before the first scan
     }
 
     private void startClock() {
@@ -172,6 +174,46 @@ public class FaceRecognitionController {
             if (p != null) showPrisonerProfile(p);
             else           showError("Prisoner record not found in database.");
         }
+
+        // ── Runner-up within the ambiguity margin: OK|TYPE|ID|DIST|RIVAL_TYPE:RIVAL_ID|MARGIN ──
+        if (parts.length >= 6) {
+            float margin = Float.parseFloat(parts[5]);
+            if (margin < FaceRecognitionService.AMBIGUITY_MARGIN) showAmbiguous(parts[4], margin);
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  AMBIGUOUS MATCH WARNING (near-tie with another enrolled person)
+    // ══════════════════════════════════════════════════════════════════════
+    private void showAmbiguous(String rival, float margin) {
+        String[] r = rival.split(":");
+        int rivalId = Integer.parseInt(r[1]);
+        String name = null;
+        if ("GUARD".equals(r[0])) {
+            Guard g = new GuardDao().findById(rivalId);
+            if (g != null) name = g.getName();
+        } else {
+            Prisoner p = new PrisonerDao().findById(rivalId);
+            if (p != null) name = p.getName();
+        }
+        String who = r[0] + " #" + rivalId + (name != null ? " (" + name + ")" : "");
+
+        VBox card = new VBox(6);
+        card.setStyle("-fx-background-color:#1c1300; -fx-background-radius:14;" +
+                "-fx-border-color:" + UNK_ACCENT + "; -fx-border-width:2; -fx-border-radius:14;");
+        card.setPadding(new Insets(16, 20, 16, 20));
+        VBox.setMargin(card, new Insets(12, 0, 0, 0));
+
+        Label title = new Label("⚠  AMBIGUOUS MATCH — VERIFY IDENTITY MANUALLY");
+        title.setStyle("-fx-text-fill:" + UNK_ACCENT + "; -fx-font-size: 14; -fx-font-weight: 900;");
+        Label detail = new Label("Also closely resembles " + who
+                + String.format("  ·  margin %.3f (threshold %.2f)", margin, FaceRecognitionService.AMBIGUITY_MARGIN));
+        detail.setStyle("-fx-text-fill: #fbbf24; -fx-font-size: 13; -fx-font-weight: 700;");
+        detail.setWrapText(true);
+
+        card.getChildren().addAll(title, detail);
+        // Right under the identity banner so it is seen before the profile
+        infoBox.getChildren().add(Math.min(1, infoBox.getChildren().size()), card);
     }
 
     // ══════════════════════════════════════════════════════════════════════
@@ -193,7 +235,7 @@ public class FaceRecognitionController {
         ImageView photo = new ImageView();
         photo.setFitWidth(130); photo.setFitHeight(145); photo.setPreserveRatio(true);
         File imgFile = new File("python-face/photos/guards/" + g.getGuardId() + ".jpg");
-        if (imgFile.exists()) photo.setImage(new Image(imgFile.toURI().toString()));
+        photo.setImage(PhotoCache.get(imgFile, 130, 145));
         VBox photoBox = new VBox(8, photo);
         photoBox.setAlignment(Pos.CENTER);
         photoBox.setStyle("-fx-background-color:#0f2038; -fx-background-radius:10;" +
@@ -257,7 +299,7 @@ public class FaceRecognitionController {
         ImageView photo = new ImageView();
         photo.setFitWidth(130); photo.setFitHeight(145); photo.setPreserveRatio(true);
         File imgFile = new File("python-face/photos/prisoners/" + p.getPrisonerId() + ".jpg");
-        if (imgFile.exists()) photo.setImage(new Image(imgFile.toURI().toString()));
+        photo.setImage(PhotoCache.get(imgFile, 130, 145));
         VBox photoBox = new VBox(8, photo);
         photoBox.setAlignment(Pos.CENTER);
         photoBox.setStyle("-fx-background-color:#200808; -fx-background-radius:10;" +
@@ -402,7 +444,7 @@ public class FaceRecognitionController {
                 log.setPersonId(Integer.parseInt(parts[2]));
                 log.setResult("RECOGNIZED");
             }
-            new RecognitionLogDao().save(log);
+            RecognitionLogWriter.submit(log);
         } catch (Exception e) {
             e.printStackTrace();
         }
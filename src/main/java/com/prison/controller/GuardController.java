@@ -2,6 +2,9 @@ package com.prison.controller;
 
 import com.prison.dao.GuardDao;
 import com.prison.model.Guard;
+import com.prison.service.FaceRecognitionService;
+import com.prison.util.DataLoader;
+import com.prison.util.PdfExport;
 import com.prison.util.StyledCell;
 
 import com.lowagie.text.*;
@@ -22,11 +25,10 @@ import javafx.util.Duration;
 
 import java.awt.Color;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Map;
 
 public class GuardController {
 
@@ -39,6 +41,9 @@ public class GuardController {
     private final GuardDao dao = new GuardDao();
     private Guard selectedGuard;
 
+    private final DataLoader tableLoader  = new DataLoader();
+    private final DataLoader countsLoader = new DataLoader();
+
     @FXML
     public void initialize() {
         updateCounts();
@@ -101,9 +106,8 @@ public class GuardController {
     private void updateCounts() {
 
 
-        guardCount.setText(
-                "🧑‍✈️ " + guardDao.countGuards()
-        );
+        countsLoader.load(guardDao::countGuards,
+                n -> guardCount.setText("🧑‍✈️ " + n));
 
     }
     private void startAutoRefresh() {
@@ -173,7 +177,8 @@ public class GuardController {
         confirm.setContentText("This action cannot be undone. Proceed?");
         confirm.showAndWait().ifPresent(result -> {
             if (result == javafx.scene.control.ButtonType.OK) {
-                dao.delete(selectedGuard.getGuardId());
+                int id = selectedGuard.getGuardId();
+                if (dao.delete(id)) FaceRecognitionService.personRemovedLater("GUARD", id);
                 selectedGuard = null;
                 statusInfoLabel.setText("Guard removed.");
                 refreshTable();
@@ -186,8 +191,9 @@ public class GuardController {
        ============================================================ */
     @FXML
     public void printGuardTable() {
-        List<Guard> guards = dao.findAll();
-        if (guards == null || guards.isEmpty()) {
+        Map<String, Integer> byStatus = dao.countByStatus();
+        int total = byStatus.values().stream().mapToInt(Integer::intValue).sum();
+        if (total == 0) {
             showAlert("No Data", "There are no guards in the database to print.");
             return;
         }
@@ -201,10 +207,12 @@ public class GuardController {
 
         if (file == null) return;
 
-        try {
+        PdfExport.start(guardTable.getScene().getWindow(), file,
+                new Document(PageSize.A4.rotate(), 40, 40, 60, 55), total,
+                "Guard Table Report exported successfully!", export -> {
             // ── Document Setup ──────────────────────────────────────────
-            Document document = new Document(PageSize.A4.rotate(), 40, 40, 60, 55);
-            PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(file));
+            Document document = export.document();
+            PdfWriter writer = export.writer();
 
             Color darkBlue   = new Color(0, 51, 102);
             Color accentBlue = new Color(94, 114, 228);
@@ -300,13 +308,13 @@ public class GuardController {
             document.add(headerTable);
 
             // ── Meta bar ────────────────────────────────────────────────
+            int active = byStatus.getOrDefault("ACTIVE", 0);
             PdfPTable metaBar = new PdfPTable(3);
             metaBar.setWidthPercentage(100);
             metaBar.setSpacingAfter(14f);
             Font metaFont = FontFactory.getFont(FontFactory.HELVETICA, 8, Color.WHITE);
-            addMetaCell(metaBar, "TOTAL PERSONNEL: " + guards.size(), metaFont, darkBlue);
-            addMetaCell(metaBar, "ACTIVE: " + guards.stream().filter(g -> "ACTIVE".equals(g.getStatus())).count() +
-                    "  |  INACTIVE: " + guards.stream().filter(g -> !"ACTIVE".equals(g.getStatus())).count(), metaFont, darkBlue);
+            addMetaCell(metaBar, "TOTAL PERSONNEL: " + total, metaFont, darkBlue);
+            addMetaCell(metaBar, "ACTIVE: " + active + "  |  INACTIVE: " + (total - active), metaFont, darkBlue);
             addMetaCell(metaBar, "GENERATED: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm")), metaFont, darkBlue);
             document.add(metaBar);
 
@@ -337,10 +345,11 @@ public class GuardController {
             Color activeGreen = new Color(220, 252, 231);
             Color inactiveRed = new Color(254, 226, 226);
 
-            for (int i = 0; i < guards.size(); i++) {
-                Guard g = guards.get(i);
+            int[] activeNow = {0};
+            int rows = export.table(table, dao::forEach, (Guard g, int i) -> {
                 Color rowBg = (i % 2 == 0) ? rowWhite : rowAlt;
                 String liveStatus = calculateLiveStatus(g.getShift());
+                if ("ACTIVE".equals(liveStatus)) activeNow[0]++;
 
                 addDataCell(table, String.valueOf(g.getGuardId()), dataFont, rowBg, Element.ALIGN_CENTER);
                 addDataCell(table, g.getName() != null ? g.getName() : "—", boldFont, rowBg, Element.ALIGN_LEFT);
@@ -364,9 +373,7 @@ public class GuardController {
                 addDataCell(table,
                         g.getDescription() != null ? g.getDescription() : "—",
                         dataFont, rowBg, Element.ALIGN_LEFT);
-            }
-
-            document.add(table);
+            });
 
             // ── Summary section ─────────────────────────────────────────
             PdfPTable summaryTable = new PdfPTable(4);
@@ -377,10 +384,10 @@ public class GuardController {
             Font sumLabel = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, darkBlue);
             Font sumVal   = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11, Color.BLACK);
 
-            long activeCount   = guards.stream().filter(g -> "ACTIVE".equals(calculateLiveStatus(g.getShift()))).count();
-            long inactiveCount = guards.size() - activeCount;
+            int activeCount   = activeNow[0];
+            int inactiveCount = rows - activeCount;
 
-            addSummaryCell(summaryTable, "Total Guards",      String.valueOf(guards.size()), sumLabel, sumVal, new Color(240, 245, 250));
+            addSummaryCell(summaryTable, "Total Guards",      String.valueOf(rows),          sumLabel, sumVal, new Color(240, 245, 250));
             addSummaryCell(summaryTable, "Active Now",        String.valueOf(activeCount),   sumLabel, sumVal, new Color(220, 252, 231));
             addSummaryCell(summaryTable, "Off Duty / Leave",  String.valueOf(inactiveCount), sumLabel, sumVal, new Color(254, 226, 226));
             addSummaryCell(summaryTable, "Report Generated",
@@ -402,15 +409,7 @@ public class GuardController {
             verifyCell.setBackgroundColor(new Color(248, 248, 248));
             verifyTable.addCell(verifyCell);
             document.add(verifyTable);
-
-            document.close();
-
-            new Alert(Alert.AlertType.INFORMATION, "Guard Table Report exported successfully!").show();
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            new Alert(Alert.AlertType.ERROR, "Export Failed: " + e.getMessage()).show();
-        }
+        });
     }
 
     // ── PDF helper methods ───────────────────────────────────────────────────
@@ -485,7 +484,8 @@ public class GuardController {
     }
 
     private void refreshTable() {
-        guardTable.setItems(FXCollections.observableArrayList(dao.findAll()));
+        tableLoader.load(guardTable, dao::findAll,
+                all -> guardTable.setItems(FXCollections.observableArrayList(all)));
     }
 
     private void showAlert(String title, String msg) {
@@ -2,6 +2,8 @@ package com.prison.controller;
 
 import com.prison.dao.GuardDao;
 import com.prison.model.Guard;
+import com.prison.service.FaceRecognitionService;
+import com.prison.util.PhotoCache;
 import com.prison.util.PythonRunnerUtil;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -205,17 +207,14 @@ public class GuardProfileController {
         new Thread(() -> {
 
             PythonRunnerUtil.trainFace("GUARD", guardId);
+            FaceRecognitionService.encodingsChanged("GUARD", guardId);
 
             Platform.runLater(() -> {
                 File photo = new File(
                         "python-face/photos/guards/" + guardId + ".jpg");
 
-                if (photo.exists()) {
-                    // Load via InputStream to bypass JavaFX URL cache — always shows latest photo
-                    try (java.io.FileInputStream fis = new java.io.FileInputStream(photo)) {
-                        guardImage.setImage(new Image(fis));
-                    } catch (Exception ignored) {}
-                }
+                // Keyed by mtime, so the retaken photo replaces the cached one
+                if (photo.exists()) guardImage.setImage(PhotoCache.get(photo, 200, 220));
 
                 photoButton.setDisable(false);
                 photoButton.setText("🔄  Retake Photo");
@@ -784,15 +783,8 @@ public class GuardProfileController {
     }
 
     private void loadGuardImage(int guardId) {
-        try {
-            File f = new File("python-face/photos/guards/" + guardId + ".jpg");
-            if (f.exists()) {
-                // Load via InputStream to bypass JavaFX URL cache — always shows latest photo
-                try (java.io.FileInputStream fis = new java.io.FileInputStream(f)) {
-                    guardImage.setImage(new Image(fis));
-                }
-            }
-        } catch (Exception ignored) {}
+        File f = new File("python-face/photos/guards/" + guardId + ".jpg");
+        if (f.exists()) guardImage.setImage(PhotoCache.get(f, 200, 220));
     }
 
     private void syncDatePickerValue(DatePicker picker) {
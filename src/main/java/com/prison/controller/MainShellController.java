@@ -2,6 +2,7 @@ package com.prison.controller;
 
 import com.prison.session.UserSession;
 import com.prison.model.User;
+import com.prison.util.DataLoader;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.TranslateTransition;
@@ -128,6 +129,9 @@ public class MainShellController {
             boolean isDash = fxmlPath.contains("dashboard");
             breadcrumbLabel.setText(isDash ? "" : "›  " + title);
 
+            // Drop the old page's pending reads before the new page starts its own
+            DataLoader.leavePage();
+
             // 2. Set the location on the loader EXPLICITLY
             FXMLLoader loader = new FXMLLoader(resource);
             Node newPage = loader.load();
@@ -153,6 +157,7 @@ public class MainShellController {
     public void navigateToLogin() {
         try {
             instance = null;
+            DataLoader.leavePage();
             Stage stage = (Stage) contentArea.getScene().getWindow();
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/login.fxml"));
             Parent root = loader.load();
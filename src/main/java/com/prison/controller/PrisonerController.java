@@ -2,6 +2,9 @@ package com.prison.controller;
 
 import com.prison.dao.PrisonerDao;
 import com.prison.model.Prisoner;
+import com.prison.service.FaceRecognitionService;
+import com.prison.util.DataLoader;
+import com.prison.util.PdfExport;
 import com.prison.util.StyledCell;
 
 import com.lowagie.text.Document;
@@ -33,11 +36,11 @@ import javafx.util.Duration;
 
 import java.awt.Color;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 public class PrisonerController {
 
@@ -56,12 +59,14 @@ public class PrisonerController {
     private final PrisonerDao prisonerDao = new PrisonerDao(); // mirrors GuardController pattern
     private Prisoner selectedPrisoner;
 
+    private final DataLoader tableLoader  = new DataLoader();
+    private final DataLoader countsLoader = new DataLoader();
+
     // ══════════════════════════════════════════════════════════════════════
     //  INITIALIZE
     // ══════════════════════════════════════════════════════════════════════
     @FXML
     public void initialize() {
-        updateCounts();
         startAutoRefresh();
         setupTable();
         refreshTable();
@@ -96,9 +101,12 @@ public class PrisonerController {
     //  COUNTS + AUTO-REFRESH  (mirrors GuardController exactly)
     // ══════════════════════════════════════════════════════════════════════
     private void updateCounts() {
-        List<Prisoner> all = prisonerDao.findAll();
-        long inCustody = all.stream().filter(p -> "IN_CUSTODY".equals(p.getStatus())).count();
-        long released  = all.size() - inCustody;
+        countsLoader.load(prisonerDao::countByStatus, this::showCounts);
+    }
+
+    private void showCounts(Map<String, Integer> byStatus) {
+        int inCustody = byStatus.getOrDefault("IN_CUSTODY", 0);
+        int released  = byStatus.values().stream().mapToInt(Integer::intValue).sum() - inCustody;
         prisonerCount.setText(String.valueOf(inCustody));
         releasedCount.setText(String.valueOf(released));
     }
@@ -173,11 +181,11 @@ public class PrisonerController {
         confirm.setContentText("This action cannot be undone. Proceed?");
         confirm.showAndWait().ifPresent(result -> {
             if (result == javafx.scene.control.ButtonType.OK) {
-                dao.delete(selectedPrisoner.getPrisonerId());
+                int id = selectedPrisoner.getPrisonerId();
+                if (dao.delete(id)) FaceRecognitionService.personRemovedLater("PRISONER", id);
                 selectedPrisoner = null;
                 statusInfoLabel.setText("Prisoner record removed.");
                 refreshTable();
-                updateCounts();
             }
         });
     }
@@ -187,8 +195,9 @@ public class PrisonerController {
     // ══════════════════════════════════════════════════════════════════════
     @FXML
     public void printPrisonerTable() {
-        List<Prisoner> prisoners = dao.findAll();
-        if (prisoners == null || prisoners.isEmpty()) {
+        Map<String, Integer> byStatus = dao.countByStatus();
+        int total = byStatus.values().stream().mapToInt(Integer::intValue).sum();
+        if (total == 0) {
             showAlert("No Data", "There are no prisoner records in the database to print.");
             return;
         }
@@ -202,9 +211,11 @@ public class PrisonerController {
         File file = fileChooser.showSaveDialog(prisonerTable.getScene().getWindow());
         if (file == null) return;
 
-        try {
-            Document document = new Document(PageSize.A4.rotate(), 40, 40, 60, 55);
-            PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(file));
+        PdfExport.start(prisonerTable.getScene().getWindow(), file,
+                new Document(PageSize.A4.rotate(), 40, 40, 60, 55), total,
+                "Prisoner Registry Report exported successfully!", export -> {
+            Document document = export.document();
+            PdfWriter writer = export.writer();
 
             Color crimson    = new Color(127, 29, 29);
             Color accentRed  = new Color(185, 28, 28);
@@ -283,15 +294,14 @@ public class PrisonerController {
             document.add(ht);
 
             // ── Meta bar ─────────────────────────────────────────────────
-            long inCustody = prisoners.stream()
-                    .filter(p -> "IN_CUSTODY".equals(p.getStatus())).count();
-            long released = prisoners.size() - inCustody;
+            int inCustody = byStatus.getOrDefault("IN_CUSTODY", 0);
+            int released  = total - inCustody;
 
             PdfPTable metaBar = new PdfPTable(3);
             metaBar.setWidthPercentage(100);
             metaBar.setSpacingAfter(14f);
             Font mf = FontFactory.getFont(FontFactory.HELVETICA, 8, Color.WHITE);
-            addMetaCell(metaBar, "TOTAL PRISONERS: " + prisoners.size(), mf, crimson);
+            addMetaCell(metaBar, "TOTAL PRISONERS: " + total, mf, crimson);
             addMetaCell(metaBar,
                     "IN CUSTODY: " + inCustody + "  |  RELEASED: " + released, mf,
                     new Color(69, 10, 10));
@@ -325,9 +335,14 @@ public class PrisonerController {
             Color rowAlt   = new Color(255, 245, 245);
             Color rowWhite = Color.WHITE;
 
-            for (int i = 0; i < prisoners.size(); i++) {
-                Prisoner p = prisoners.get(i);
+            int[] held     = {0};
+            int[] maxRisk  = {0};
+            int[] highRisk = {0};
+            int rows = export.table(table, dao::forEach, (Prisoner p, int i) -> {
                 Color rowBg = (i % 2 == 0) ? rowWhite : rowAlt;
+                if ("IN_CUSTODY".equals(p.getStatus()))  held[0]++;
+                if ("MAXIMUM".equals(p.getDangerLevel())) maxRisk[0]++;
+                if ("HIGH".equals(p.getDangerLevel()))    highRisk[0]++;
 
                 addDataCell(table, String.valueOf(p.getPrisonerId()), dataFont, rowBg, Element.ALIGN_CENTER);
                 addDataCell(table, nvl(p.getName()),   boldFont, rowBg, Element.ALIGN_LEFT);
@@ -383,14 +398,9 @@ public class PrisonerController {
                 table.addCell(dlCell);
 
                 addDataCell(table, nvl(p.getDescription()), dataFont, rowBg, Element.ALIGN_LEFT);
-            }
-            document.add(table);
+            });
 
             // ── Summary ──────────────────────────────────────────────────
-            long maxRisk  = prisoners.stream()
-                    .filter(p -> "MAXIMUM".equals(p.getDangerLevel())).count();
-            long highRisk = prisoners.stream()
-                    .filter(p -> "HIGH".equals(p.getDangerLevel())).count();
 
             PdfPTable sumT = new PdfPTable(4);
             sumT.setWidthPercentage(65);
@@ -398,10 +408,10 @@ public class PrisonerController {
             sumT.setSpacingAfter(15f);
             Font sl = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, crimson);
             Font sv = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, Color.BLACK);
-            addSummaryCell(sumT, "Total Prisoners", String.valueOf(prisoners.size()), sl, sv, new Color(255, 240, 240));
-            addSummaryCell(sumT, "In Custody",      String.valueOf(inCustody),        sl, sv, new Color(254, 226, 226));
-            addSummaryCell(sumT, "MAXIMUM Risk",    String.valueOf(maxRisk),          sl, sv, new Color(254, 202, 202));
-            addSummaryCell(sumT, "HIGH Risk",       String.valueOf(highRisk),         sl, sv, new Color(255, 215, 215));
+            addSummaryCell(sumT, "Total Prisoners", String.valueOf(rows),             sl, sv, new Color(255, 240, 240));
+            addSummaryCell(sumT, "In Custody",      String.valueOf(held[0]),          sl, sv, new Color(254, 226, 226));
+            addSummaryCell(sumT, "MAXIMUM Risk",    String.valueOf(maxRisk[0]),       sl, sv, new Color(254, 202, 202));
+            addSummaryCell(sumT, "HIGH Risk",       String.valueOf(highRisk[0]),      sl, sv, new Color(255, 215, 215));
             document.add(sumT);
 
             // ── Verification strip ───────────────────────────────────────
@@ -418,15 +428,7 @@ public class PrisonerController {
             vc.setBackgroundColor(new Color(255, 245, 245));
             vt.addCell(vc);
             document.add(vt);
-
-            document.close();
-            new Alert(Alert.AlertType.INFORMATION,
-                    "Prisoner Registry Report exported successfully!").show();
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            new Alert(Alert.AlertType.ERROR, "Export Failed: " + e.getMessage()).show();
-        }
+        });
     }
 
     // ══════════════════════════════════════════════════════════════════════
@@ -565,9 +567,10 @@ public class PrisonerController {
     //  HELPERS
     // ══════════════════════════════════════════════════════════════════════
     private void refreshTable() {
-        prisonerTable.setItems(
-                FXCollections.observableArrayList(dao.findAll()));
-        updateCounts();
+        tableLoader.load(prisonerTable, dao::findAll, all -> {
+            prisonerTable.setItems(FXCollections.observableArrayList(all));
+            updateCounts();
+        });
     }
 
     private String nvl(String s) {
@@ -2,6 +2,8 @@ package com.prison.controller;
 
 import com.prison.dao.PrisonerDao;
 import com.prison.model.Prisoner;
+import com.prison.service.FaceRecognitionService;
+import com.prison.util.PhotoCache;
 import com.prison.util.PythonRunnerUtil;
 
 import javafx.application.Platform;
@@ -119,8 +121,9 @@ public class PrisonerProfileController {
 
         javafx.collections.ObservableList<String> cells =
                 FXCollections.observableArrayList();
+        java.util.Map<String, Integer> occupancy = dao.cellOccupancy();
         for (int i = 1; i <= 100; i++) {
-            int count = dao.countPrisonersInCell(String.valueOf(i));
+            int count = occupancy.getOrDefault(String.valueOf(i), 0);
             if (count < 2) cells.add(String.valueOf(i));
         }
         if (currentPrisoner != null && currentPrisoner.getCellNo() != null
@@ -281,6 +284,7 @@ public class PrisonerProfileController {
 
             // ── Option A: use PythonRunnerUtil (must block until script exits) ──
             PythonRunnerUtil.trainFace("PRISONER", prisonerId);
+            FaceRecognitionService.encodingsChanged("PRISONER", prisonerId);
 
             /*
              * ── Option B: call script directly (always blocking) ──────────────
@@ -298,12 +302,8 @@ public class PrisonerProfileController {
             Platform.runLater(() -> {
                 File photo = new File(
                         "python-face/photos/prisoners/" + prisonerId + ".jpg");
-                if (photo.exists()) {
-                    // Load via InputStream to bypass JavaFX URL cache
-                    try (java.io.FileInputStream fis = new java.io.FileInputStream(photo)) {
-                        prisonerImage.setImage(new Image(fis));
-                    } catch (Exception ignored) {}
-                }
+                // Keyed by mtime, so the retaken photo replaces the cached one
+                if (photo.exists()) prisonerImage.setImage(PhotoCache.get(photo, 200, 220));
                 photoButton.setDisable(false);
                 photoButton.setText("🔄  Retake Photo");
                 photoButton.setStyle(
@@ -993,15 +993,8 @@ public class PrisonerProfileController {
     }
 
     private void loadPrisonerImage(int id) {
-        try {
-            File f = new File("python-face/photos/prisoners/" + id + ".jpg");
-            if (f.exists()) {
-                // Load via InputStream to bypass JavaFX URL cache — always shows latest photo
-                try (java.io.FileInputStream fis = new java.io.FileInputStream(f)) {
-                    prisonerImage.setImage(new Image(fis));
-                }
-            }
-        } catch (Exception ignored) {}
+        File f = new File("python-face/photos/prisoners/" + id + ".jpg");
+        if (f.exists()) prisonerImage.setImage(PhotoCache.get(f, 200, 220));
     }
 
     private void setupFastScroll() {
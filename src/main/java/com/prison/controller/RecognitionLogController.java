@@ -1,17 +1,24 @@
 package com.prison.controller;
 
 import com.prison.dao.RecognitionLogDao;
+import com.prison.model.LogFilter;
 import com.prison.model.RecognitionLog;
+import com.prison.model.RecognitionStats;
+import com.prison.service.RecognitionLogExporter;
 import com.prison.session.UserSession;
+import com.prison.util.DataLoader;
+import com.prison.util.ExportRunner;
+import com.prison.util.PdfExport;
+import com.prison.util.PhotoCache;
 
 import com.lowagie.text.*;
 import com.lowagie.text.Font;
 import com.lowagie.text.Rectangle;
 import com.lowagie.text.pdf.*;
 
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -21,13 +28,14 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 
 import java.awt.Color;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.time.LocalDate;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 public class RecognitionLogController {
@@ -65,9 +73,16 @@ public class RecognitionLogController {
     @FXML private Button            exportBtn;
 
     // ── State ─────────────────────────────────────────────────────────────────
-    private ObservableList<RecognitionLog> masterData;
-    private FilteredList<RecognitionLog>   filteredData;
+    // Only the visible page is held; pageStarts[i] is the cursor page i starts after
+    private final RecognitionLogDao               dao        = new RecognitionLogDao();
+    private final List<RecognitionLogDao.Cursor>  pageStarts = new ArrayList<>();
+    private LogFilter                             filter     = LogFilter.none();
+    private RecognitionStats                      counts;
     private int currentPage = 0;
+    private boolean started;      // filter listeners fire while the controls are set up
+
+    // Counts, then the page, both off the FX thread; a newer filter supersedes them
+    private final DataLoader loader = new DataLoader();
 
     private static final DateTimeFormatter DISPLAY_FMT =
             DateTimeFormatter.ofPattern("dd MMM yyyy  HH:mm:ss");
@@ -84,6 +99,10 @@ public class RecognitionLogController {
     private static final Color PDF_GUARD    = new Color(214, 230, 255);
     private static final Color PDF_PRISONER = new Color(255, 240, 210);
 
+    // Meta bar cell content area on A4 landscape (three columns, 6pt padding)
+    private static final float META_WIDTH   = 240f;
+    private static final float META_HEIGHT  = 10f;
+
     // ═════════════════════════════════════════════════════════════════════════
     @FXML
     public void initialize() {
@@ -92,21 +111,16 @@ public class RecognitionLogController {
         setupFilters();
         setupColumns();
         setupPagination();
+        started = true;
         loadData();
         if ("CO_ADMIN".equals(UserSession.getUser().getRole())) {
             idCol.setVisible(false);
         }
     }
 
-    // ── Image loader ──────────────────────────────────────────────────────────
-    private Image loadImage(String path) {
-        if (path == null || path.isBlank()) return null;
-        File f = new File(path);
-        if (f.exists()) {
-            try { return new Image(f.toURI().toString()); }
-            catch (Exception ignored) {}
-        }
-        return null;
+    // ── Image loader (decoded at display size, shared cache) ─────────────────
+    private Image loadImage(String path, int width, int height) {
+        return PhotoCache.get(path, width, height);
     }
 
     // ── Filters ───────────────────────────────────────────────────────────────
@@ -115,40 +129,34 @@ public class RecognitionLogController {
         typeFilter.setValue("All");
         resultFilter.setItems(FXCollections.observableArrayList("All","RECOGNIZED","FAILED","UNKNOWN"));
         resultFilter.setValue("All");
-        searchField.textProperty().addListener((o, ov, nv) -> applyFilters());
+        // Typing waits for a pause instead of querying on every keystroke
+        PauseTransition searchPause = new PauseTransition(Duration.millis(250));
+        searchPause.setOnFinished(e -> applyFilters());
+        searchField.textProperty().addListener((o, ov, nv) -> searchPause.playFromStart());
         typeFilter.valueProperty().addListener((o, ov, nv)   -> applyFilters());
         resultFilter.valueProperty().addListener((o, ov, nv) -> applyFilters());
         fromDate.valueProperty().addListener((o, ov, nv)     -> applyFilters());
         toDate.valueProperty().addListener((o, ov, nv)       -> applyFilters());
     }
 
+    // Filters run in SQL; the counts come from a separate cached query
     private void applyFilters() {
-        if (filteredData == null) return;
-        filteredData.setPredicate(log -> {
-            String q = searchField.getText();
-            if (q != null && !q.isBlank()) {
-                String lower = q.toLowerCase();
-                boolean hit = safe(log.getPersonName()).toLowerCase().contains(lower)
-                        || String.valueOf(log.getPersonId()).contains(lower)
-                        || safe(log.getDepartment()).toLowerCase().contains(lower)
-                        || safe(log.getExtraInfo()).toLowerCase().contains(lower)
-                        || safe(log.getContactInfo()).toLowerCase().contains(lower);
-                if (!hit) return false;
-            }
-            String tf = typeFilter.getValue();
-            if (tf != null && !"All".equals(tf) && !tf.equals(log.getPersonType())) return false;
-            String rf = resultFilter.getValue();
-            if (rf != null && !"All".equals(rf) && !rf.equals(log.getResult())) return false;
-            if (log.getDetectedAt() != null) {
-                LocalDate d = log.getDetectedAt().toLocalDate();
-                if (fromDate.getValue() != null && d.isBefore(fromDate.getValue())) return false;
-                if (toDate.getValue()   != null && d.isAfter(toDate.getValue()))    return false;
-            }
-            return true;
+        if (!started) return;
+        filter = new LogFilter(typeFilter.getValue(), resultFilter.getValue(),
+                fromDate.getValue(), toDate.getValue(), searchField.getText());
+        reload(false);
+    }
+
+    private void reload(boolean invalidate) {
+        LogFilter f = filter;
+        loader.load(logTable, () -> {
+            if (invalidate) RecognitionLogDao.invalidateCounts();
+            return dao.count(f);
+        }, c -> {
+            counts = c;
+            updateStats();
+            firstPage();
         });
-        currentPage = 0;
-        refreshPage();
-        updateStats();
     }
 
     // ── Columns ───────────────────────────────────────────────────────────────
@@ -157,7 +165,7 @@ public class RecognitionLogController {
         rowNumCol.setCellFactory(col -> new TableCell<RecognitionLog, Void>() {
             @Override protected void updateItem(Void v, boolean empty) {
                 super.updateItem(v, empty);
-                setText(empty ? null : String.valueOf(getIndex() + 1));
+                setText(empty ? null : String.valueOf(currentPage * pageSize() + getIndex() + 1));
                 setStyle("-fx-text-fill:#94a3b8; -fx-font-size:12px; -fx-alignment:center;");
             }
         });
@@ -303,7 +311,7 @@ public class RecognitionLogController {
 
     // ── Avatar helper ─────────────────────────────────────────────────────────
     private Region buildAvatar(String imagePath, String name, String bgColor, int size) {
-        Image img = loadImage(imagePath);
+        Image img = loadImage(imagePath, size, size);
         if (img != null) {
             ImageView iv = new ImageView(img);
             iv.setFitWidth(size); iv.setFitHeight(size); iv.setPreserveRatio(false);
@@ -331,70 +339,129 @@ public class RecognitionLogController {
     private void setupPagination() {
         pageSizeCombo.setItems(FXCollections.observableArrayList(25, 50, 100, 200));
         pageSizeCombo.setValue(50);
-        pageSizeCombo.valueProperty().addListener((o, ov, nv) -> { currentPage = 0; refreshPage(); });
+        pageSizeCombo.valueProperty().addListener((o, ov, nv) -> firstPage());
     }
 
-    private void refreshPage() {
-        if (filteredData == null) return;
-        int size  = pageSizeCombo.getValue() == null ? 50 : pageSizeCombo.getValue();
-        int total = filteredData.size();
-        int pages = Math.max(1, (int) Math.ceil((double) total / size));
-        currentPage = Math.min(currentPage, pages - 1);
-        int from = currentPage * size;
-        int to   = Math.min(from + size, total);
-        ObservableList<RecognitionLog> page =
-                FXCollections.observableArrayList(filteredData.subList(from, to));
-        page.sort((a, b) -> {
-            if (a.getDetectedAt() == null) return 1;
-            if (b.getDetectedAt() == null) return -1;
-            return b.getDetectedAt().compareTo(a.getDetectedAt());
-        });
-        logTable.setItems(page);
-        rowCountLabel.setText(total + " records");
-        pageLabel.setText("Page " + (currentPage + 1) + " of " + pages);
+    private int pageSize() {
+        return pageSizeCombo.getValue() == null ? 50 : pageSizeCombo.getValue();
+    }
+
+    private void firstPage() {
+        pageStarts.clear();
+        pageStarts.add(null);
+        loadPage(0);
+    }
+
+    // Fetches one row past the page to know whether a next page exists;
+    // currentPage only moves once the rows have arrived
+    private void loadPage(int page) {
+        if (counts == null) return;
+        int                      size  = pageSize();
+        LogFilter                f     = filter;
+        RecognitionLogDao.Cursor after = pageStarts.get(page);
+        loader.load(logTable, () -> dao.findPage(f, after, size + 1), rows -> showPage(page, size, rows));
+    }
+
+    private void showPage(int page, int size, List<RecognitionLog> rows) {
+        currentPage = page;
+        int pages = Math.max(1, (int) Math.ceil((double) counts.getTotal() / size));
+        boolean more = rows.size() > size;
+        if (more) {
+            rows = rows.subList(0, size);
+            RecognitionLogDao.Cursor next = RecognitionLogDao.Cursor.after(rows.get(size - 1));
+            if (pageStarts.size() > currentPage + 1) pageStarts.set(currentPage + 1, next);
+            else pageStarts.add(next);
+        }
+        logTable.setItems(FXCollections.observableArrayList(rows));
+        rowCountLabel.setText(counts.getTotal() + " records");
+        pageLabel.setText("Page " + (currentPage + 1) + " of " + Math.max(pages, currentPage + 1));
         prevPageBtn.setDisable(currentPage == 0);
-        nextPageBtn.setDisable(currentPage >= pages - 1);
+        nextPageBtn.setDisable(!more);
     }
 
     private void updateStats() {
-        if (filteredData == null) return;
-        long total      = filteredData.size();
-        long recognized = filteredData.stream().filter(l -> "RECOGNIZED".equals(l.getResult())).count();
-        long unknown    = filteredData.stream().filter(l -> "UNKNOWN".equals(l.getPersonType())).count();
-        long failed     = filteredData.stream().filter(l -> "FAILED".equals(l.getResult())).count();
-        totalScansLbl.setText(String.valueOf(total));
-        recognizedLbl.setText(String.valueOf(recognized));
-        unknownLbl.setText(String.valueOf(unknown));
-        failedLbl.setText(String.valueOf(failed));
-        subtitleLabel.setText(total + " recognition events");
+        if (counts == null) return;
+        totalScansLbl.setText(String.valueOf(counts.getTotal()));
+        recognizedLbl.setText(String.valueOf(counts.getRecognized()));
+        unknownLbl.setText(String.valueOf(counts.getUnknown()));
+        failedLbl.setText(String.valueOf(counts.getFailed()));
+        subtitleLabel.setText(counts.getTotal() + " recognition events");
     }
 
     private void loadData() {
-        List<RecognitionLog> all = new RecognitionLogDao().findAll();
-        masterData   = FXCollections.observableArrayList(all);
-        filteredData = new FilteredList<>(masterData, p -> true);
-        currentPage  = 0;
-        refreshPage();
-        updateStats();
+        reload(true);
     }
 
     // ── Button handlers ───────────────────────────────────────────────────────
     @FXML private void onRefresh()      { loadData(); }
-    @FXML private void onPrevPage()     { currentPage--; refreshPage(); }
-    @FXML private void onNextPage()     { currentPage++; refreshPage(); }
+    @FXML private void onPrevPage()     { if (currentPage > 0) loadPage(currentPage - 1); }
+    @FXML private void onNextPage()     { if (pageStarts.size() > currentPage + 1) loadPage(currentPage + 1); }
     @FXML private void onClearFilters() {
         searchField.clear(); typeFilter.setValue("All");
         resultFilter.setValue("All"); fromDate.setValue(null); toDate.setValue(null);
     }
 
+    // ══════════════════════════════════════════════════════════════════════════
+    //  DATA EXPORT  —  CSV / NDJSON for audits, any number of rows
+    // ══════════════════════════════════════════════════════════════════════════
+    @FXML
+    public void onExportData() {
+        if (counts == null || counts.getTotal() == 0) {
+            new Alert(Alert.AlertType.WARNING, "No records to export.").showAndWait();
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Recognition Logs");
+        fileChooser.setInitialFileName("FACE_RECOGNITION_LOG_" +
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmm")) + ".csv");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV", "*.csv"),
+                new FileChooser.ExtensionFilter("CSV, gzip", "*.csv.gz"),
+                new FileChooser.ExtensionFilter("NDJSON", "*.ndjson"),
+                new FileChooser.ExtensionFilter("NDJSON, gzip", "*.ndjson.gz"));
+        File file = fileChooser.showSaveDialog(logTable.getScene().getWindow());
+        if (file == null) return;
+        // Format and gzip follow the extension; add the picked one if the name has none
+        FileChooser.ExtensionFilter picked = fileChooser.getSelectedExtensionFilter();
+        if (picked != null && !file.getName().contains("."))
+            file = new File(file.getPath() + picked.getExtensions().get(0).substring(1));
+
+        LogFilter exportFilter = filter;
+        long      expected     = counts.getTotal();
+        Path      path         = file.toPath();
+        Task<RecognitionLogExporter.Result> task = new Task<>() {
+            @Override
+            protected RecognitionLogExporter.Result call() throws Exception {
+                updateMessage("Starting export…");
+                return RecognitionLogExporter.export(exportFilter, path,
+                        RecognitionLogExporter.formatOf(path), RecognitionLogExporter.gzipOf(path),
+                        new RecognitionLogExporter.Progress() {
+                            @Override
+                            public void rows(long rows, double rowsPerSecond) {
+                                updateProgress(rows, Math.max(rows, expected));
+                                updateMessage(String.format("%,d of %,d rows  —  %,.0f rows/s",
+                                        rows, Math.max(rows, expected), rowsPerSecond));
+                            }
+
+                            @Override
+                            public boolean cancelled() {
+                                return isCancelled();
+                            }
+                        });
+            }
+        };
+        ExportRunner.run(logTable.getScene().getWindow(), "Writing " + file.getName(), task,
+                r -> "Exported " + r + ".");
+    }
+
     // ══════════════════════════════════════════════════════════════════════════
     //  PDF EXPORT  —  Deep Maroon / Silver government theme
     //  Follows the exact same structure as GuardController.printGuardTable()
     // ══════════════════════════════════════════════════════════════════════════
     @FXML
     public void onExport() {
-        List<RecognitionLog> records = new java.util.ArrayList<>(filteredData);
-        if (records.isEmpty()) {
+        if (counts == null || counts.getTotal() == 0) {
             new Alert(Alert.AlertType.WARNING, "No records to export.").showAndWait();
             return;
         }
@@ -407,10 +474,13 @@ public class RecognitionLogController {
         File file = fileChooser.showSaveDialog(logTable.getScene().getWindow());
         if (file == null) return;
 
-        try {
+        LogFilter exportFilter = filter;
+        PdfExport.start(logTable.getScene().getWindow(), file,
+                new Document(PageSize.A4.rotate(), 40, 40, 60, 55), counts.getTotal(),
+                "Recognition Log Report exported successfully!", export -> {
             // ── Document setup ────────────────────────────────────────────────
-            Document document = new Document(PageSize.A4.rotate(), 40, 40, 60, 55);
-            PdfWriter writer  = PdfWriter.getInstance(document, new FileOutputStream(file));
+            Document document = export.document();
+            PdfWriter writer  = export.writer();
 
             // ── Page border + footer (same pattern as GuardController) ─────────
             writer.setPageEvent(new PdfPageEventHelper() {
@@ -520,20 +590,14 @@ public class RecognitionLogController {
             document.add(headerTable);
 
             // ── Meta bar ──────────────────────────────────────────────────────
-            long recognized = records.stream().filter(l -> "RECOGNIZED".equals(l.getResult())).count();
-            long unknown    = records.stream().filter(l -> "UNKNOWN".equals(l.getPersonType())).count();
-            long failed     = records.stream().filter(l -> "FAILED".equals(l.getResult())).count();
-            long guards     = records.stream().filter(l -> "GUARD".equals(l.getPersonType())).count();
-            long prisoners  = records.stream().filter(l -> "PRISONER".equals(l.getPersonType())).count();
-
+            // The counts are drawn in once the rows have streamed, so the meta
+            // bar and the summary section print the same tally
             PdfPTable metaBar = new PdfPTable(3);
             metaBar.setWidthPercentage(100);
             metaBar.setSpacingAfter(14f);
             Font metaFont = FontFactory.getFont(FontFactory.HELVETICA, 8, Color.WHITE);
-            addMetaCell(metaBar, "TOTAL EVENTS: " + records.size(), metaFont, PDF_DARK);
-            addMetaCell(metaBar,
-                    "RECOGNIZED: " + recognized + "  |  UNKNOWN: " + unknown + "  |  FAILED: " + failed,
-                    metaFont, PDF_ACCENT);
+            PdfTemplate totalMeta  = addMetaTemplate(metaBar, writer, PDF_DARK);
+            PdfTemplate resultMeta = addMetaTemplate(metaBar, writer, PDF_ACCENT);
             addMetaCell(metaBar,
                     "GENERATED: " + LocalDateTime.now().format(
                             DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm")),
@@ -564,8 +628,9 @@ public class RecognitionLogController {
             Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD,  9,    Color.BLACK);
             Font italFont = FontFactory.getFont(FontFactory.HELVETICA_OBLIQUE, 8,  Color.DARK_GRAY);
 
-            for (int i = 0; i < records.size(); i++) {
-                RecognitionLog log = records.get(i);
+            RecognitionStats stats = new RecognitionStats();
+            export.table(table, sink -> dao.forEach(exportFilter, sink), (RecognitionLog log, int i) -> {
+                stats.add(log);
                 Color rowBg = (i % 2 == 0) ? Color.WHITE : PDF_ROW_ALT;
 
                 // Result colour
@@ -617,8 +682,13 @@ public class RecognitionLogController {
                 resCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
                 resCell.setBorderColor(new Color(200, 180, 180));
                 table.addCell(resCell);
-            }
-            document.add(table);
+            });
+
+            fillMetaTemplate(totalMeta, "TOTAL EVENTS: " + stats.getTotal(), metaFont);
+            fillMetaTemplate(resultMeta,
+                    "RECOGNIZED: " + stats.getRecognized() + "  |  UNKNOWN: " + stats.getUnknown()
+                            + "  |  FAILED: " + stats.getFailed(),
+                    metaFont);
 
             // ── Summary section (same as GuardController) ─────────────────────
             PdfPTable summaryTable = new PdfPTable(5);
@@ -629,11 +699,11 @@ public class RecognitionLogController {
             Font sumLabel = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9,  PDF_DARK);
             Font sumVal   = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14, Color.BLACK);
 
-            addSummaryCell(summaryTable, "Total Events",  String.valueOf(records.size()), sumLabel, sumVal, new Color(252, 245, 245));
-            addSummaryCell(summaryTable, "Recognized",    String.valueOf(recognized),     sumLabel, sumVal, new Color(212, 248, 220));
-            addSummaryCell(summaryTable, "Unknown",       String.valueOf(unknown),         sumLabel, sumVal, new Color(255, 245, 200));
-            addSummaryCell(summaryTable, "Guards",        String.valueOf(guards),           sumLabel, sumVal, new Color(214, 230, 255));
-            addSummaryCell(summaryTable, "Prisoners",     String.valueOf(prisoners),        sumLabel, sumVal, new Color(255, 240, 210));
+            addSummaryCell(summaryTable, "Total Events",  String.valueOf(stats.getTotal()),      sumLabel, sumVal, new Color(252, 245, 245));
+            addSummaryCell(summaryTable, "Recognized",    String.valueOf(stats.getRecognized()), sumLabel, sumVal, new Color(212, 248, 220));
+            addSummaryCell(summaryTable, "Unknown",       String.valueOf(stats.getUnknown()),    sumLabel, sumVal, new Color(255, 245, 200));
+            addSummaryCell(summaryTable, "Guards",        String.valueOf(stats.getGuards()),     sumLabel, sumVal, new Color(214, 230, 255));
+            addSummaryCell(summaryTable, "Prisoners",     String.valueOf(stats.getPrisoners()),  sumLabel, sumVal, new Color(255, 240, 210));
             document.add(summaryTable);
 
             // ── Verification strip (same as GuardController) ──────────────────
@@ -650,16 +720,7 @@ public class RecognitionLogController {
             verifyCell.setBackgroundColor(new Color(252, 248, 248));
             verifyTable.addCell(verifyCell);
             document.add(verifyTable);
-
-            document.close();
-
-            new Alert(Alert.AlertType.INFORMATION,
-                    "Recognition Log Report exported successfully!").show();
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            new Alert(Alert.AlertType.ERROR, "Export Failed: " + e.getMessage()).show();
-        }
+        });
     }
 
     // ── PDF helper methods (same signature as GuardController) ────────────────
@@ -672,6 +733,22 @@ public class RecognitionLogController {
         t.addCell(c);
     }
 
+    private PdfTemplate addMetaTemplate(PdfPTable t, PdfWriter writer, Color bg) throws DocumentException {
+        PdfTemplate tpl = writer.getDirectContent().createTemplate(META_WIDTH, META_HEIGHT);
+        PdfPCell c = new PdfPCell(com.lowagie.text.Image.getInstance(tpl), false);
+        c.setBackgroundColor(bg);
+        c.setBorder(PdfPCell.NO_BORDER);
+        c.setPadding(6);
+        c.setHorizontalAlignment(Element.ALIGN_CENTER);
+        t.addCell(c);
+        return tpl;
+    }
+
+    private void fillMetaTemplate(PdfTemplate tpl, String text, Font f) {
+        ColumnText.showTextAligned(tpl, Element.ALIGN_CENTER, new Phrase(text, f),
+                META_WIDTH / 2, 2, 0);
+    }
+
     private void addDataCell(PdfPTable t, String text, Font f, Color bg, int align) {
         PdfPCell c = new PdfPCell(new Phrase(text == null ? "—" : text, f));
         c.setBackgroundColor(bg);
@@ -704,7 +781,7 @@ public class RecognitionLogController {
 
         // Photo or initials
         Region photoArea;
-        Image img = loadImage(log.getImagePath());
+        Image img = loadImage(log.getImagePath(), 120, 140);
         if (img != null) {
             ImageView iv = new ImageView(img);
             iv.setFitWidth(120); iv.setFitHeight(140); iv.setPreserveRatio(true);
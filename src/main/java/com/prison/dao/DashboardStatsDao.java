@@ -0,0 +1,67 @@
+package com.prison.dao;
+
+import com.prison.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * The dashboard counters in one round trip. Each counter is a scalar
+ * subquery that an index answers on its own (see db/migration); the day's
+ * scans are summed from recognition_log_hourly, at most 24 rows per person
+ * type and result, however busy the day was. The day is a half-open
+ * [start, next start) range bound as a parameter, so the statement text
+ * never changes.
+ */
+public class DashboardStatsDao {
+
+    private static final String STATS_SQL =
+            "SELECT " +
+                    "    (SELECT COUNT(*) FROM prisoners WHERE status = 'IN_CUSTODY'), " +
+                    "    (SELECT COUNT(*) FROM prisoners WHERE status = 'IN_CUSTODY' AND danger_level = 'HIGH'), " +
+                    "    (SELECT COUNT(*) FROM guards    WHERE status = 'ACTIVE'), " +
+                    "    (SELECT COUNT(*) FROM guards), " +
+                    "    (SELECT COALESCE(SUM(events), 0) FROM recognition_log_hourly " +
+                    "        WHERE bucket_hour >= ? AND bucket_hour < ?), " +
+                    "    (SELECT COALESCE(SUM(events), 0) FROM recognition_log_hourly " +
+                    "        WHERE person_type = 'UNKNOWN' AND bucket_hour >= ? AND bucket_hour < ?)";
+
+    /** Counters shown on the admin and co-admin dashboards. */
+    public static final class Stats {
+        public final int inCustody;
+        public final int highDanger;
+        public final int activeGuards;
+        public final int totalGuards;
+        public final int scansToday;
+        public final int unknownToday;
+
+        Stats(int inCustody, int highDanger, int activeGuards, int totalGuards, int scansToday, int unknownToday) {
+            this.inCustody    = inCustody;
+            this.highDanger   = highDanger;
+            this.activeGuards = activeGuards;
+            this.totalGuards  = totalGuards;
+            this.scansToday   = scansToday;
+            this.unknownToday = unknownToday;
+        }
+    }
+
+    public Stats load(LocalDate day) {
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to   = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement(STATS_SQL)) {
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            ps.setTimestamp(3, from);
+            ps.setTimestamp(4, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return new Stats(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                        rs.getInt(4), rs.getInt(5), rs.getInt(6));
+            }
+        } catch (Exception e) { e.printStackTrace(); }
+        return new Stats(0, 0, 0, 0, 0, 0);
+    }
+}
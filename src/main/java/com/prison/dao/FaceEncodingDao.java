@@ -0,0 +1,51 @@
+package com.prison.dao;
+
+import com.prison.util.DatabaseUtil;
+import java.io.File;
+import java.sql.*;
+import java.util.List;
+
+/**
+ * face_encodings rows mirror the sample files on disk: one row per
+ * {id}.npy / {id}_{n}.npy, encoding_file relative to python-face/encodings.
+ */
+public class FaceEncodingDao {
+
+    /** Replaces the person's rows with one per sample file, in one transaction. */
+    public void replaceSamples(String personType, int personId, List<File> files) {
+        String delete = "DELETE FROM face_encodings WHERE person_type = ? AND person_ref_id = ?";
+        String insert = "INSERT INTO face_encodings (person_type, person_ref_id, encoding_file) VALUES (?, ?, ?)";
+        try (Connection con = DatabaseUtil.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement del = con.prepareStatement(delete);
+                 PreparedStatement ins = con.prepareStatement(insert)) {
+                del.setString(1, personType);
+                del.setInt(2, personId);
+                del.executeUpdate();
+                for (File f : files) {
+                    ins.setString(1, personType);
+                    ins.setInt(2, personId);
+                    ins.setString(3, personType.toLowerCase() + "s/" + f.getName());
+                    ins.addBatch();
+                }
+                ins.executeBatch();
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception e) { e.printStackTrace(); }
+    }
+
+    public void deleteByPerson(String personType, int personId) {
+        String sql = "DELETE FROM face_encodings WHERE person_type = ? AND person_ref_id = ?";
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, personType);
+            ps.setInt(2, personId);
+            ps.executeUpdate();
+        } catch (Exception e) { e.printStackTrace(); }
+    }
+}
@@ -2,12 +2,19 @@ package com.prison.dao;
 
 import com.prison.model.Guard;
 import com.prison.util.DatabaseUtil;
+import com.prison.util.EntityCache;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class GuardDao {
 
+    // Recognition looks the same few hundred guards up all day
+    private static final EntityCache<Guard> CACHE = new EntityCache<>("guards", 1_024, 5 * 60_000);
+
     public int countActiveGuards() {
         String sql = "SELECT COUNT(*) FROM guards WHERE status = 'ACTIVE'";
         try (Connection con = DatabaseUtil.getConnection();
@@ -34,6 +41,7 @@ public class GuardDao {
              PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             setStatementParams(ps, guard);
             ps.executeUpdate();
+            RecognitionLogDao.invalidatePeople();
             ResultSet rs = ps.getGeneratedKeys();
             if (rs.next()) return rs.getInt(1);
         } catch (Exception e) { e.printStackTrace(); }
@@ -47,6 +55,8 @@ public class GuardDao {
             setStatementParams(ps, guard);
             ps.setInt(17, guard.getGuardId());
             ps.executeUpdate();
+            CACHE.invalidate(guard.getGuardId());
+            RecognitionLogDao.invalidatePeople();
         } catch (Exception e) { e.printStackTrace(); }
     }
 
@@ -80,7 +90,35 @@ public class GuardDao {
         return list;
     }
 
+    /** Streams every guard without buffering the result set, for reports; errors are passed on. */
+    public void forEach(Consumer<Guard> action) throws Exception {
+        try (Connection con = DatabaseUtil.getConnection();
+             Statement st = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = st.executeQuery("SELECT * FROM guards")) {
+                while (rs.next()) action.accept(mapResultSetToGuard(rs));
+            }
+        }
+    }
+
+    /** Number of guards per status value, in one grouped query. */
+    public Map<String, Integer> countByStatus() {
+        Map<String, Integer> counts = new HashMap<>();
+        String sql = "SELECT status, COUNT(*) FROM guards GROUP BY status";
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) counts.put(rs.getString(1), rs.getInt(2));
+        } catch (Exception e) { e.printStackTrace(); }
+        return counts;
+    }
+
+    /** Served from the entity cache when possible; treat the result as read-only. */
     public Guard findById(int id) {
+        return CACHE.get(id, this::loadById);
+    }
+
+    private Guard loadById(int id) {
         String sql = "SELECT * FROM guards WHERE guard_id = ?";
         try (Connection con = DatabaseUtil.getConnection();
              PreparedStatement ps = con.prepareStatement(sql)) {
@@ -113,12 +151,21 @@ public class GuardDao {
         return g;
     }
 
-    public void delete(int id) {
+    public static EntityCache<Guard> cache() {
+        return CACHE;
+    }
+
+    /** True if the row existed; the caller then drops the person's encodings. */
+    public boolean delete(int id) {
         String sql = "DELETE FROM guards WHERE guard_id = ?";
         try (Connection con = DatabaseUtil.getConnection();
              PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, id);
-            ps.executeUpdate();
+            int deleted = ps.executeUpdate();
+            CACHE.invalidate(id);
+            if (deleted > 0) RecognitionLogDao.invalidatePeople();
+            return deleted > 0;
         } catch (Exception e) { e.printStackTrace(); }
+        return false;
     }
 }
\ No newline at end of file
@@ -2,25 +2,64 @@ package com.prison.dao;
 
 import com.prison.model.Prisoner;
 import com.prison.util.DatabaseUtil;
+import com.prison.util.EntityCache;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class PrisonerDao {
 
+    // Other workstations move prisoners too, so cap staleness as well
+    private static final long OCCUPANCY_TTL_MS = 30_000;
+
+    private static volatile Map<String, Integer> occupancy;     // cell_no → prisoners not released
+    private static volatile long                 occupancyAt;
+    private static final AtomicLong              occupancyGen = new AtomicLong();
+
+    // Every recognized prisoner is looked up by id; the same faces recur all day
+    private static final EntityCache<Prisoner> CACHE = new EntityCache<>("prisoners", 2_048, 5 * 60_000);
+
     // ══════════════════════════════════════════════════════════════════════
-    //  CELL COUNT (unchanged)
+    //  CELL OCCUPANCY — one GROUP BY, cached until a prisoner changes
     // ══════════════════════════════════════════════════════════════════════
     public int countPrisonersInCell(String cellNo) {
-        String sql = "SELECT COUNT(*) FROM prisoners WHERE cell_no = ? AND status != 'RELEASED'";
+        return cellOccupancy().getOrDefault(cellNo, 0);
+    }
+
+    /** Prisoners not released, per cell; cells nobody occupies are absent. */
+    public Map<String, Integer> cellOccupancy() {
+        Map<String, Integer> cached = occupancy;
+        if (cached != null && System.currentTimeMillis() - occupancyAt < OCCUPANCY_TTL_MS) return cached;
+
+        long gen = occupancyGen.get();
+        Map<String, Integer> counts = new HashMap<>();
+        String sql = "SELECT cell_no, COUNT(*) FROM prisoners WHERE status != 'RELEASED' GROUP BY cell_no";
         try (Connection con = DatabaseUtil.getConnection();
-             PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setString(1, cellNo);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) return rs.getInt(1);
-        } catch (Exception e) { e.printStackTrace(); }
-        return 0;
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (rs.getString(1) != null) counts.put(rs.getString(1), rs.getInt(2));
+            }
+        } catch (Exception e) { e.printStackTrace(); return Collections.emptyMap(); }
+
+        Map<String, Integer> result = Collections.unmodifiableMap(counts);
+        // A save that landed while we were reading must not be masked by this result
+        if (occupancyGen.get() == gen) {
+            occupancyAt = System.currentTimeMillis();
+            occupancy   = result;
+        }
+        return result;
+    }
+
+    public static void invalidateOccupancy() {
+        occupancyGen.incrementAndGet();
+        occupancy = null;
     }
 
     // ══════════════════════════════════════════════════════════════════════
@@ -76,6 +115,8 @@ public class PrisonerDao {
             ps.setString(25, prisoner.getVisitorLog());
 
             ps.executeUpdate();
+            invalidateOccupancy();
+            RecognitionLogDao.invalidatePeople();
             ResultSet rs = ps.getGeneratedKeys();
             if (rs.next()) return rs.getInt(1);
 
@@ -138,6 +179,9 @@ public class PrisonerDao {
             ps.setInt(26,    prisoner.getPrisonerId()); // Index shifted to 26
 
             ps.executeUpdate();
+            invalidateOccupancy();
+            CACHE.invalidate(prisoner.getPrisonerId());
+            RecognitionLogDao.invalidatePeople();
         } catch (Exception e) { e.printStackTrace(); }
     }
     // ══════════════════════════════════════════════════════════════════════
@@ -154,10 +198,39 @@ public class PrisonerDao {
         return list;
     }
 
+    /** Streams every prisoner without buffering the result set, for reports; errors are passed on. */
+    public void forEach(Consumer<Prisoner> action) throws Exception {
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement("SELECT * FROM prisoners",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) action.accept(mapRow(rs));
+            }
+        }
+    }
+
+    /** Number of prisoners per status value, in one grouped query. */
+    public Map<String, Integer> countByStatus() {
+        Map<String, Integer> counts = new HashMap<>();
+        String sql = "SELECT status, COUNT(*) FROM prisoners GROUP BY status";
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) counts.put(rs.getString(1), rs.getInt(2));
+        } catch (Exception e) { e.printStackTrace(); }
+        return counts;
+    }
+
     // ══════════════════════════════════════════════════════════════════════
     //  FIND BY ID
     // ══════════════════════════════════════════════════════════════════════
+    /** Served from the entity cache when possible; treat the result as read-only. */
     public Prisoner findById(int id) {
+        return CACHE.get(id, this::loadById);
+    }
+
+    private Prisoner loadById(int id) {
         String sql = "SELECT * FROM prisoners WHERE prisoner_id = ?";
         try (Connection con = DatabaseUtil.getConnection();
              PreparedStatement ps = con.prepareStatement(sql)) {
@@ -171,13 +244,21 @@ public class PrisonerDao {
     // ══════════════════════════════════════════════════════════════════════
     //  DELETE
     // ══════════════════════════════════════════════════════════════════════
-    public void delete(int prisonerId) {
+    /** True if the row existed; the caller then drops the person's encodings. */
+    public boolean delete(int prisonerId) {
         String sql = "DELETE FROM prisoners WHERE prisoner_id = ?";
         try (Connection con = DatabaseUtil.getConnection();
              PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, prisonerId);
-            ps.executeUpdate();
+            int deleted = ps.executeUpdate();
+            CACHE.invalidate(prisonerId);
+            if (deleted > 0) {
+                invalidateOccupancy();
+                RecognitionLogDao.invalidatePeople();
+            }
+            return deleted > 0;
         } catch (Exception e) { e.printStackTrace(); }
+        return false;
     }
 
     // ══════════════════════════════════════════════════════════════════════
@@ -203,6 +284,8 @@ public class PrisonerDao {
             ps.setString(1, status);
             ps.setInt(2, prisonerId);
             ps.executeUpdate();
+            invalidateOccupancy();
+            CACHE.invalidate(prisonerId);
         } catch (Exception e) { e.printStackTrace(); }
     }
 
@@ -249,6 +332,10 @@ public class PrisonerDao {
         return p;
     }
 
+    public static EntityCache<Prisoner> cache() {
+        return CACHE;
+    }
+
     private String safeStr(ResultSet rs, String col) throws SQLException {
         String v = rs.getString(col);
         return v != null ? v : "";
@@ -1,20 +1,34 @@
 package com.prison.dao;
 
+import com.prison.model.LogFilter;
 import com.prison.model.RecognitionLog;
+import com.prison.model.RecognitionStats;
 import com.prison.util.DatabaseUtil;
+import com.prison.util.NgramIndex;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class RecognitionLogDao {
 
     private static final String INSERT_SQL =
             "INSERT INTO recognition_logs (person_type, person_id, result) VALUES (?, ?, ?)";
 
-    private static final String SELECT_ALL =
+    // Queued events carry the time of the scan, not of the write
+    private static final String INSERT_AT_SQL =
+            "INSERT INTO recognition_logs (person_type, person_id, result, detected_at) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_COLUMNS =
             "SELECT " +
                     "    rl.log_id, " +
                     "    rl.person_type, " +
@@ -64,50 +78,408 @@ public class RecognitionLogDao {
                     "        WHEN rl.person_type = 'PRISONER' " +
                     "            THEN CONCAT('python-face/photos/prisoners/', rl.person_id, '.jpg') " +
                     "        ELSE NULL " +
-                    "    END AS image_path " +
+                    "    END AS image_path ";
 
-                    "FROM recognition_logs rl " +
+    private static final String FROM_JOINED =
+            "FROM recognition_logs rl " +
                     "LEFT JOIN guards    g ON rl.person_type = 'GUARD'    AND rl.person_id = g.guard_id " +
-                    "LEFT JOIN prisoners p ON rl.person_type = 'PRISONER' AND rl.person_id = p.prisoner_id " +
-                    "ORDER BY rl.detected_at DESC";
+                    "LEFT JOIN prisoners p ON rl.person_type = 'PRISONER' AND rl.person_id = p.prisoner_id ";
+
+    // Newest first; log_id breaks ties so the keyset cursor is a total order
+    private static final String ORDER_NEWEST = "ORDER BY rl.detected_at DESC, rl.log_id DESC";
+
+    // Free-text search covers what the table shows: name, ID, department, shift/crime, phone/danger
+    private static final String SEARCH_SQL =
+            "(g.name LIKE ? OR p.name LIKE ? OR CAST(rl.person_id AS CHAR) LIKE ? " +
+                    "OR g.designation LIKE ? OR g.role LIKE ? OR p.cell_no LIKE ? " +
+                    "OR g.shift LIKE ? OR p.crime LIKE ? OR g.phone_number LIKE ? OR p.danger_level LIKE ?)";
+    private static final int SEARCH_PARAMS = 10;
+
+    // Every searched column belongs to a guard or prisoner, so the text is first
+    // resolved to people through an in-memory trigram index and the log rows are
+    // then picked by (person_type, person_id) instead of LIKE over every joined row
+    private static final String PEOPLE_SQL =
+            "SELECT 'GUARD', guard_id, " +
+                    "    CONCAT_WS('\\n', name, guard_id, designation, role, shift, phone_number) FROM guards " +
+                    "UNION ALL " +
+                    "SELECT 'PRISONER', prisoner_id, " +
+                    "    CONCAT_WS('\\n', name, prisoner_id, cell_no, crime, danger_level) FROM prisoners";
+    private static final long PEOPLE_TTL_MS = 60_000;
+    // More matches than this and the IN list stops paying off; LIKE is used instead
+    private static final int  MAX_PEOPLE_IN = 1_000;
+
+    private static volatile People PEOPLE;
+
+    // Before migration V3 the rollup table is missing; logging carries on without it
+    private static final int        ER_NO_SUCH_TABLE = 1146;
+    private static volatile boolean rollupMissing;
+    // Totals come from the rollup only once the startup backfill found it covers all history
+    private static volatile boolean rollupComplete;
+
+    private static final String COUNT_SQL =
+            "SELECT COUNT(*), " +
+                    "    COALESCE(SUM(rl.result = 'RECOGNIZED'), 0), " +
+                    "    COALESCE(SUM(rl.result = 'FAILED'), 0), " +
+                    "    COALESCE(SUM(rl.person_type = 'UNKNOWN'), 0), " +
+                    "    COALESCE(SUM(rl.person_type = 'GUARD'), 0), " +
+                    "    COALESCE(SUM(rl.person_type = 'PRISONER'), 0) ";
+
+    // Counts change with every scan; other gates write too, so cap staleness as well
+    private static final long COUNT_TTL_MS = 30_000;
+    private static final Map<LogFilter, CachedCounts> COUNT_CACHE = new ConcurrentHashMap<>();
+    private static final RecognitionRollupDao         ROLLUP      = new RecognitionRollupDao();
+
+    /** Position after the last row of a page: (detected_at, log_id) of that row. */
+    public static final class Cursor {
+        private final LocalDateTime detectedAt;
+        private final int           logId;
+
+        public Cursor(LocalDateTime detectedAt, int logId) {
+            this.detectedAt = detectedAt;
+            this.logId      = logId;
+        }
+
+        public static Cursor after(RecognitionLog last) {
+            return new Cursor(last.getDetectedAt(), last.getLogId());
+        }
+    }
+
+    /** Searchable text of every guard and prisoner, with the last query's matches. */
+    private static final class People {
+        final String[]   types;
+        final int[]      ids;
+        final NgramIndex index;
+        final long       at = System.currentTimeMillis();
+        volatile Match   last;
+
+        People(String[] types, int[] ids, String[] docs) {
+            this.types = types;
+            this.ids   = ids;
+            this.index = new NgramIndex(docs);
+        }
+    }
+
+    private static final class Match {
+        final String query;
+        final int[]  docs;
+
+        Match(String query, int[] docs) {
+            this.query = query;
+            this.docs  = docs;
+        }
+    }
+
+    private static final class CachedCounts {
+        final RecognitionStats counts;
+        final long             at = System.currentTimeMillis();
+
+        CachedCounts(RecognitionStats counts) { this.counts = counts; }
+    }
 
     public void save(RecognitionLog log) {
         try (Connection con = DatabaseUtil.getConnection();
-             PreparedStatement ps = con.prepareStatement(INSERT_SQL)) {
+             PreparedStatement ps = con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            con.setAutoCommit(false);
             ps.setString(1, log.getPersonType());
             if (log.getPersonId() != null) ps.setInt(2, log.getPersonId());
             else ps.setNull(2, java.sql.Types.INTEGER);
             ps.setString(3, log.getResult());
             ps.executeUpdate();
+            addToRollup(con, ps);
+            con.commit();
+            COUNT_CACHE.clear();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Inserts the logs in one transaction. With rewriteBatchedStatements on
+     * the URL the driver sends them as a single multi-row INSERT. The hourly
+     * rollup is updated in the same transaction, so it never counts a batch
+     * that was rolled back. Throws so the caller can keep the batch when the
+     * database is unreachable.
+     */
+    public void saveBatch(List<RecognitionLog> logs) throws Exception {
+        if (logs.isEmpty()) return;
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement(INSERT_AT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            con.setAutoCommit(false);
+            try {
+                for (RecognitionLog log : logs) {
+                    ps.setString(1, log.getPersonType());
+                    if (log.getPersonId() != null) ps.setInt(2, log.getPersonId());
+                    else ps.setNull(2, java.sql.Types.INTEGER);
+                    ps.setString(3, log.getResult());
+                    ps.setTimestamp(4, Timestamp.valueOf(log.getDetectedAt() != null
+                            ? log.getDetectedAt() : LocalDateTime.now()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                addToRollup(con, ps);
+                con.commit();
+            } catch (Exception e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        COUNT_CACHE.clear();
+    }
+
+    /**
+     * Counts the rows ps just inserted into recognition_log_hourly. Before
+     * migration V3 has run the table is missing; the logs are still kept
+     * and the rollup is left to RecognitionRollupBackfill.
+     */
+    private static void addToRollup(Connection con, PreparedStatement ps) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            while (keys.next()) ids.add(keys.getLong(1));
+        }
+        try {
+            RecognitionRollupDao.add(con, ids);
+            rollupMissing = false;
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ER_NO_SUCH_TABLE) throw e;
+            if (!rollupMissing) System.err.println("recognition_log_hourly missing; logs are not rolled up");
+            rollupMissing = true;
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  FILTERED PAGES — keyset on (detected_at, log_id), newest first
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Up to limit rows matching the filter, strictly after the cursor (null
+     * for the first page). Cost depends on the page size, not on how deep
+     * the page is.
+     */
+    public List<RecognitionLog> findPage(LogFilter filter, Cursor after, int limit) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(FROM_JOINED);
+        appendWhere(sql, params, filter);
+        if (after != null) {
+            sql.append(params.isEmpty() ? "WHERE " : "AND ")
+               .append("(rl.detected_at < ? OR (rl.detected_at = ? AND rl.log_id < ?)) ");
+            params.add(Timestamp.valueOf(after.detectedAt));
+            params.add(Timestamp.valueOf(after.detectedAt));
+            params.add(after.logId);
+        }
+        sql.append(ORDER_NEWEST).append(" LIMIT ?");
+        params.add(limit);
+        return query(sql.toString(), params);
+    }
+
+    /**
+     * Streams the filtered logs, newest first, one at a time: with a fetch
+     * size of Integer.MIN_VALUE the driver reads rows off the socket as they
+     * are asked for instead of buffering the result, so exports of any size
+     * run in constant memory. Errors, and exceptions thrown by action, are
+     * passed on so a failed export is not mistaken for an empty one.
+     */
+    public void forEach(LogFilter filter, Consumer<RecognitionLog> action) throws Exception {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(FROM_JOINED);
+        appendWhere(sql, params, filter);
+        sql.append(ORDER_NEWEST);
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE);
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) action.accept(map(rs));
+            }
+        }
+    }
+
+    /**
+     * Totals for the filter, cached per filter until the next save() or
+     * COUNT_TTL_MS. Without search text the filter is whole days, type and
+     * result, which recognition_log_hourly answers in O(days); otherwise, or
+     * if the rollup cannot be read or is still being backfilled, one
+     * aggregate query over the logs, with the joins only added when the
+     * search text needs them.
+     */
+    public RecognitionStats count(LogFilter filter) {
+        CachedCounts cached = COUNT_CACHE.get(filter);
+        if (cached != null && System.currentTimeMillis() - cached.at < COUNT_TTL_MS) return cached.counts;
+
+        if (filter.getSearch() == null && rollupComplete && !rollupMissing) {
+            RecognitionStats counts = ROLLUP.count(filter);
+            if (counts != null) {
+                COUNT_CACHE.put(filter, new CachedCounts(counts));
+                return counts;
+            }
+        }
+
+        List<Object>  params = new ArrayList<>();
+        StringBuilder where  = new StringBuilder();
+        boolean joined = appendWhere(where, params, filter);
+        StringBuilder sql = new StringBuilder(COUNT_SQL)
+                .append(joined ? FROM_JOINED : "FROM recognition_logs rl ").append(where);
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql.toString())) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    RecognitionStats counts = new RecognitionStats(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                            rs.getInt(4), rs.getInt(5), rs.getInt(6));
+                    COUNT_CACHE.put(filter, new CachedCounts(counts));
+                    return counts;
+                }
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
+        return new RecognitionStats();
+    }
+
+    /** Lets count() read recognition_log_hourly, once it holds every logged day. */
+    public static void rollupComplete() {
+        rollupComplete = true;
+        COUNT_CACHE.clear();
+    }
+
+    /** Drops cached counts, e.g. after logs were written by another path. */
+    public static void invalidateCounts() {
+        COUNT_CACHE.clear();
+    }
+
+    /** Drops the search index, e.g. after a guard or prisoner was added or edited. */
+    public static void invalidatePeople() {
+        PEOPLE = null;
+        COUNT_CACHE.clear();
     }
 
-    public List<RecognitionLog> findAll() {
+    // ══════════════════════════════════════════════════════════════════════
+    //  SEARCH
+    // ══════════════════════════════════════════════════════════════════════
+    private static People people() {
+        People p = PEOPLE;
+        if (p != null && System.currentTimeMillis() - p.at < PEOPLE_TTL_MS) return p;
+        synchronized (RecognitionLogDao.class) {
+            p = PEOPLE;
+            if (p != null && System.currentTimeMillis() - p.at < PEOPLE_TTL_MS) return p;
+            List<String>  types = new ArrayList<>();
+            List<Integer> ids   = new ArrayList<>();
+            List<String>  docs  = new ArrayList<>();
+            try (Connection con = DatabaseUtil.getConnection();
+                 PreparedStatement ps = con.prepareStatement(PEOPLE_SQL);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    types.add(rs.getString(1));
+                    ids.add(rs.getInt(2));
+                    docs.add(rs.getString(3).toLowerCase());
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            }
+            p = new People(types.toArray(new String[0]), ids.stream().mapToInt(Integer::intValue).toArray(),
+                    docs.toArray(new String[0]));
+            PEOPLE = p;
+            return p;
+        }
+    }
+
+    /** People whose searchable columns contain text; narrows the last result when text extends it. */
+    private static int[] matchPeople(People p, String text) {
+        Match last = p.last;
+        int[] candidates = last != null && text.contains(last.query) ? last.docs : null;
+        int[] docs = p.index.search(text, candidates);
+        p.last = new Match(text, docs);
+        return docs;
+    }
+
+    private static String personClause(People p, int[] docs, List<Object> params) {
+        List<String> parts = new ArrayList<>();
+        for (String type : new String[]{"GUARD", "PRISONER"}) {
+            StringBuilder in = new StringBuilder();
+            for (int d : docs) {
+                if (!type.equals(p.types[d])) continue;
+                in.append(in.length() == 0 ? "?" : ", ?");
+                params.add(p.ids[d]);
+            }
+            if (in.length() > 0) parts.add("(rl.person_type = '" + type + "' AND rl.person_id IN (" + in + "))");
+        }
+        return "(" + String.join(" OR ", parts) + ")";
+    }
+
+    /** Appends the filter's WHERE clause; true when it refers to the joined guard/prisoner columns. */
+    private static boolean appendWhere(StringBuilder sql, List<Object> params, LogFilter f) {
+        boolean joined = false;
+        List<String> clauses = new ArrayList<>();
+        if (f.getPersonType() != null) {
+            clauses.add("rl.person_type = ?");
+            params.add(f.getPersonType());
+        }
+        if (f.getResult() != null) {
+            clauses.add("rl.result = ?");
+            params.add(f.getResult());
+        }
+        // Half-open range on the raw column so an index on detected_at applies
+        if (f.getFrom() != null) {
+            clauses.add("rl.detected_at >= ?");
+            params.add(Timestamp.valueOf(f.getFrom().atStartOfDay()));
+        }
+        if (f.getTo() != null) {
+            clauses.add("rl.detected_at < ?");
+            params.add(Timestamp.valueOf(f.getTo().plusDays(1).atStartOfDay()));
+        }
+        if (f.getSearch() != null) {
+            People people = people();
+            int[]  docs   = people != null ? matchPeople(people, f.getSearch()) : null;
+            if (docs == null || docs.length > MAX_PEOPLE_IN) {
+                clauses.add(SEARCH_SQL);
+                String like = "%" + f.getSearch().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+                for (int i = 0; i < SEARCH_PARAMS; i++) params.add(like);
+                joined = true;
+            } else if (docs.length == 0) {
+                clauses.add("1 = 0");
+            } else {
+                clauses.add(personClause(people, docs, params));
+            }
+        }
+        if (!clauses.isEmpty()) sql.append("WHERE ").append(String.join(" AND ", clauses)).append(' ');
+        return joined;
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+    }
+
+    private List<RecognitionLog> query(String sql, List<Object> params) {
         List<RecognitionLog> logs = new ArrayList<>();
         try (Connection con = DatabaseUtil.getConnection();
-             PreparedStatement ps = con.prepareStatement(SELECT_ALL);
-             ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                RecognitionLog log = new RecognitionLog();
-                log.setPersonType(rs.getString("person_type"));
-                log.setPersonId((Integer) rs.getObject("person_id"));
-                log.setResult(rs.getString("result"));
-                if (rs.getTimestamp("detected_at") != null)
-                    log.setDetectedAt(rs.getTimestamp("detected_at").toLocalDateTime());
-                log.setPersonName(rs.getString("person_name"));
-                log.setDepartment(rs.getString("department"));
-                log.setExtraInfo(rs.getString("extra_info"));    // shift / crime
-                log.setContactInfo(rs.getString("contact_info")); // phone / danger level
-                log.setAadharNumber(rs.getString("aadhar_number"));
-                log.setImagePath(rs.getString("image_path"));
-                logs.add(log);
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) logs.add(map(rs));
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
         return logs;
     }
+
+    private static RecognitionLog map(ResultSet rs) throws SQLException {
+        RecognitionLog log = new RecognitionLog();
+        log.setLogId(rs.getInt("log_id"));
+        log.setPersonType(rs.getString("person_type"));
+        log.setPersonId((Integer) rs.getObject("person_id"));
+        log.setResult(rs.getString("result"));
+        if (rs.getTimestamp("detected_at") != null)
+            log.setDetectedAt(rs.getTimestamp("detected_at").toLocalDateTime());
+        log.setPersonName(rs.getString("person_name"));
+        log.setDepartment(rs.getString("department"));
+        log.setExtraInfo(rs.getString("extra_info"));    // shift / crime
+        log.setContactInfo(rs.getString("contact_info")); // phone / danger level
+        log.setAadharNumber(rs.getString("aadhar_number"));
+        log.setImagePath(rs.getString("image_path"));
+        return log;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.prison.dao;
+
+import com.prison.model.LogFilter;
+import com.prison.model.RecognitionStats;
+import com.prison.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hourly event counts per person type and result, in recognition_log_hourly
+ * (db/migration V3). Totals over whole days are read from here, so they
+ * cost O(days) rather than a scan of recognition_logs.
+ *
+ * add() runs inside RecognitionLogDao.saveBatch()'s transaction and counts
+ * exactly the rows just inserted, bucketed by MySQL the same way rebuildDay()
+ * buckets history, so live and rebuilt hours agree.
+ */
+public class RecognitionRollupDao {
+
+    // Truncates detected_at to its hour, in the session time zone like every other date filter
+    private static final String BUCKET = "DATE_FORMAT(detected_at, '%Y-%m-%d %H:00:00')";
+
+    private static final String ADD_SQL =
+            "INSERT INTO recognition_log_hourly (bucket_hour, person_type, result, events) " +
+                    "SELECT " + BUCKET + ", COALESCE(person_type, ''), COALESCE(result, ''), COUNT(*) " +
+                    "FROM recognition_logs WHERE log_id IN (%s) " +
+                    "GROUP BY 1, 2, 3 " +
+                    "ON DUPLICATE KEY UPDATE events = events + VALUES(events)";
+
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM recognition_log_hourly WHERE bucket_hour >= ? AND bucket_hour < ?";
+
+    private static final String REBUILD_SQL =
+            "INSERT INTO recognition_log_hourly (bucket_hour, person_type, result, events) " +
+                    "SELECT " + BUCKET + ", COALESCE(person_type, ''), COALESCE(result, ''), COUNT(*) " +
+                    "FROM recognition_logs WHERE detected_at >= ? AND detected_at < ? " +
+                    "GROUP BY 1, 2, 3";
+
+    private static final String TOTALS_SQL =
+            "SELECT COALESCE(SUM(events), 0), " +
+                    "    COALESCE(SUM(IF(result = 'RECOGNIZED', events, 0)), 0), " +
+                    "    COALESCE(SUM(IF(result = 'FAILED', events, 0)), 0), " +
+                    "    COALESCE(SUM(IF(person_type = 'UNKNOWN', events, 0)), 0), " +
+                    "    COALESCE(SUM(IF(person_type = 'GUARD', events, 0)), 0), " +
+                    "    COALESCE(SUM(IF(person_type = 'PRISONER', events, 0)), 0) " +
+                    "FROM recognition_log_hourly ";
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  LOGGING PATH
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** Adds the given, just inserted log rows to their hours; runs in the caller's transaction. */
+    static void add(Connection con, List<Long> logIds) throws SQLException {
+        if (logIds.isEmpty()) return;
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < logIds.size(); i++) in.append(i == 0 ? "?" : ", ?");
+        try (PreparedStatement ps = con.prepareStatement(String.format(ADD_SQL, in))) {
+            for (int i = 0; i < logIds.size(); i++) ps.setLong(i + 1, logIds.get(i));
+            ps.executeUpdate();
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  TOTALS
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Totals for a filter without search text (whole days, type, result),
+     * or null if the rollup cannot be read and the caller should count rows.
+     */
+    public RecognitionStats count(LogFilter filter) {
+        List<Object> params  = new ArrayList<>();
+        List<String> clauses = new ArrayList<>();
+        if (filter.getPersonType() != null) {
+            clauses.add("person_type = ?");
+            params.add(filter.getPersonType());
+        }
+        if (filter.getResult() != null) {
+            clauses.add("result = ?");
+            params.add(filter.getResult());
+        }
+        if (filter.getFrom() != null) {
+            clauses.add("bucket_hour >= ?");
+            params.add(Timestamp.valueOf(filter.getFrom().atStartOfDay()));
+        }
+        if (filter.getTo() != null) {
+            clauses.add("bucket_hour < ?");
+            params.add(Timestamp.valueOf(filter.getTo().plusDays(1).atStartOfDay()));
+        }
+        String sql = TOTALS_SQL + (clauses.isEmpty() ? "" : "WHERE " + String.join(" AND ", clauses));
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return new RecognitionStats(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                        rs.getInt(4), rs.getInt(5), rs.getInt(6));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  BACKFILL
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** First day with a logged event, or null when there are none. */
+    public LocalDate firstDay() throws Exception {
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement("SELECT MIN(detected_at) FROM recognition_logs");
+             ResultSet rs = ps.executeQuery()) {
+            Timestamp first = rs.next() ? rs.getTimestamp(1) : null;
+            return first != null ? first.toLocalDateTime().toLocalDate() : null;
+        }
+    }
+
+    /**
+     * First day holding events from before the first rolled-up hour (all of
+     * them if nothing is rolled up yet), or null when the rollup covers
+     * every logged event since it starts.
+     */
+    public LocalDate firstUncoveredDay() throws Exception {
+        String sql = "SELECT MIN(detected_at) FROM recognition_logs WHERE detected_at < "
+                + "COALESCE((SELECT MIN(bucket_hour) FROM recognition_log_hourly), '9999-12-31')";
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            Timestamp first = rs.next() ? rs.getTimestamp(1) : null;
+            return first != null ? first.toLocalDateTime().toLocalDate() : null;
+        }
+    }
+
+    /** Day of the first rolled-up hour, or null when the table is empty. */
+    public LocalDate firstRolledUpDay() throws Exception {
+        try (Connection con = DatabaseUtil.getConnection();
+             PreparedStatement ps = con.prepareStatement("SELECT MIN(bucket_hour) FROM recognition_log_hourly");
+             ResultSet rs = ps.executeQuery()) {
+            Timestamp first = rs.next() ? rs.getTimestamp(1) : null;
+            return first != null ? first.toLocalDateTime().toLocalDate() : null;
+        }
+    }
+
+    /**
+     * Recomputes one day's hours from recognition_logs in one transaction.
+     * The INSERT … SELECT locks the day's log rows while it counts, so a
+     * batch logged meanwhile is either counted here or added after; one
+     * that deadlocks with it is rolled back, spilled and replayed by
+     * RecognitionLogWriter. Returns the number of hour rows written.
+     */
+    public int rebuildDay(LocalDate day) throws Exception {
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to   = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        try (Connection con = DatabaseUtil.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement del = con.prepareStatement(DELETE_RANGE_SQL);
+                 PreparedStatement ins = con.prepareStatement(REBUILD_SQL)) {
+                del.setTimestamp(1, from);
+                del.setTimestamp(2, to);
+                del.executeUpdate();
+                ins.setTimestamp(1, from);
+                ins.setTimestamp(2, to);
+                int rows = ins.executeUpdate();
+                con.commit();
+                return rows;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.prison.model;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Recognition log filters as picked on the log screen; null (or "All")
+ * means no restriction. Used as a cache key for the filtered counts.
+ */
+public class LogFilter {
+
+    private final String    personType;   // GUARD / PRISONER / UNKNOWN
+    private final String    result;       // RECOGNIZED / FAILED / UNKNOWN
+    private final LocalDate from;         // inclusive
+    private final LocalDate to;           // inclusive
+    private final String    search;       // name, ID, department, shift/crime, phone/danger
+
+    public LogFilter(String personType, String result, LocalDate from, LocalDate to, String search) {
+        this.personType = blankToNull(personType);
+        this.result     = blankToNull(result);
+        this.from       = from;
+        this.to         = to;
+        this.search     = search == null || search.isBlank() ? null : search.trim().toLowerCase();
+    }
+
+    public static LogFilter none() {
+        return new LogFilter(null, null, null, null, null);
+    }
+
+    private static String blankToNull(String v) {
+        return v == null || v.isBlank() || "All".equals(v) ? null : v;
+    }
+
+    public String    getPersonType() { return personType; }
+    public String    getResult()     { return result; }
+    public LocalDate getFrom()       { return from; }
+    public LocalDate getTo()         { return to; }
+    public String    getSearch()     { return search; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LogFilter)) return false;
+        LogFilter f = (LogFilter) o;
+        return Objects.equals(personType, f.personType) && Objects.equals(result, f.result)
+                && Objects.equals(from, f.from) && Objects.equals(to, f.to)
+                && Objects.equals(search, f.search);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(personType, result, from, to, search);
+    }
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 public class RecognitionLog {
 
+    private int           logId;
     private String        personType;   // GUARD / PRISONER / UNKNOWN
     private Integer       personId;
     private String        result;       // RECOGNIZED / FAILED / UNKNOWN
@@ -21,6 +22,9 @@ public class RecognitionLog {
     private Double confidence;
     private String cameraLocation;
 
+    public int     getLogId()                  { return logId; }
+    public void    setLogId(int v)             { logId = v; }
+
     public String  getPersonType()              { return personType; }
     public void    setPersonType(String v)      { personType = v; }
 
@@ -0,0 +1,84 @@
+package com.prison.model;
+
+import java.util.List;
+import java.util.stream.Collector;
+
+/**
+ * Summary counters over a set of recognition logs: totals by result and by
+ * person type, kept as plain ints and filled in one pass.
+ *
+ * add() and remove() keep the counters in step as rows enter or leave a
+ * view, merge() combines the counters of separate chunks (collector() does
+ * both for a parallel stream), and RecognitionLogDao fills one straight from
+ * its aggregate query. Not thread-safe; an instance handed to other code is
+ * treated as read-only.
+ */
+public class RecognitionStats {
+
+    private int total;
+    private int recognized;
+    private int failed;
+    private int unknown;      // person_type UNKNOWN, whatever the result
+    private int guards;
+    private int prisoners;
+
+    public RecognitionStats() {}
+
+    public RecognitionStats(int total, int recognized, int failed, int unknown, int guards, int prisoners) {
+        this.total      = total;
+        this.recognized = recognized;
+        this.failed     = failed;
+        this.unknown    = unknown;
+        this.guards     = guards;
+        this.prisoners  = prisoners;
+    }
+
+    /** Counters over records in one pass. */
+    public static RecognitionStats of(List<RecognitionLog> records) {
+        RecognitionStats s = new RecognitionStats();
+        for (RecognitionLog log : records) s.add(log);
+        return s;
+    }
+
+    public static Collector<RecognitionLog, RecognitionStats, RecognitionStats> collector() {
+        return Collector.of(RecognitionStats::new, RecognitionStats::add, RecognitionStats::merge);
+    }
+
+    public void add(RecognitionLog log) {
+        apply(log, 1);
+    }
+
+    public void remove(RecognitionLog log) {
+        apply(log, -1);
+    }
+
+    private void apply(RecognitionLog log, int d) {
+        total += d;
+        String result = log.getResult();
+        if ("RECOGNIZED".equals(result))  recognized += d;
+        else if ("FAILED".equals(result)) failed     += d;
+
+        String type = log.getPersonType();
+        if ("GUARD".equals(type))          guards    += d;
+        else if ("PRISONER".equals(type))  prisoners += d;
+        else if ("UNKNOWN".equals(type))   unknown   += d;
+    }
+
+    /** Adds other's counters to these; returns this. */
+    public RecognitionStats merge(RecognitionStats other) {
+        total      += other.total;
+        recognized += other.recognized;
+        failed     += other.failed;
+        unknown    += other.unknown;
+        guards     += other.guards;
+        prisoners  += other.prisoners;
+        return this;
+    }
+
+    public int getTotal()      { return total; }
+    public int getRecognized() { return recognized; }
+    public int getFailed()     { return failed; }
+    public int getUnknown()    { return unknown; }
+    public int getGuards()     { return guards; }
+    public int getPrisoners()  { return prisoners; }
+}
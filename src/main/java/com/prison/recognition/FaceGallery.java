@@ -0,0 +1,387 @@
+package com.prison.recognition;
+
+import com.prison.util.GalleryFile;
+import com.prison.util.NpyReader;
+import com.prison.util.PythonRunnerUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * All enrolled face encodings held in one contiguous float[] so a probe can
+ * be matched with a flat scan instead of one face_distance() call per person
+ * in Python.
+ *
+ * A person may have several samples (retakes under different light or
+ * angles). Rows are grouped by person: person p owns rows
+ * start[p] .. start[p + 1], row r occupies vectors[r * DIM .. r * DIM + DIM).
+ * Each person also has the centroid of their samples and the radius (largest
+ * sample-to-centroid distance), so most people are ruled out with a single
+ * centroid distance no matter how many samples they have.
+ *
+ * The gallery is immutable; reload by building a new one. Normally opened
+ * from the packed gallery file (see GalleryFile); the per-person .npy folders
+ * are only scanned to create it the first time.
+ */
+public class FaceGallery {
+
+    public static final int DIM = 128;
+
+    /** Persons scored exactly up front, before the centroid bound is applied. */
+    static final int SHORTLIST = 8;
+
+    private static final String[] CATEGORIES = {"guards", "prisoners"};
+
+    private final String[] labels;     // per person
+    private final int[]    ids;        // per person
+    private final int[]    start;      // per person, length persons + 1
+    private final int[]    samples;    // per row: sample number
+    private final float[]  vectors;    // per row
+    private final float[]  centroids;  // per person
+    private final float[]  radius;     // per person
+    private final int      persons;
+    private final int      size;
+
+    private FaceGallery(String[] labels, int[] ids, int[] start, int[] samples, float[] vectors, int persons) {
+        this.labels    = labels;
+        this.ids       = ids;
+        this.start     = start;
+        this.samples   = samples;
+        this.vectors   = vectors;
+        this.persons   = persons;
+        this.size      = start[persons];
+        this.centroids = new float[persons * DIM];
+        this.radius    = new float[persons];
+
+        for (int p = 0; p < persons; p++) {
+            int n = start[p + 1] - start[p];
+            for (int r = start[p]; r < start[p + 1]; r++) {
+                for (int k = 0; k < DIM; k++) centroids[p * DIM + k] += vectors[r * DIM + k];
+            }
+            for (int k = 0; k < DIM; k++) centroids[p * DIM + k] /= n;
+            double worst = 0;
+            for (int r = start[p]; r < start[p + 1]; r++) {
+                double d = 0;
+                for (int k = 0; k < DIM; k++) {
+                    double x = vectors[r * DIM + k] - centroids[p * DIM + k];
+                    d += x * x;
+                }
+                worst = Math.max(worst, d);
+            }
+            // Slack for float rounding so the bound never cuts a real match
+            radius[p] = n == 1 ? 0f : (float) (Math.sqrt(worst) * 1.0001 + 1e-5);
+        }
+    }
+
+    public static FaceGallery empty() {
+        return new FaceGallery(new String[0], new int[0], new int[1], new int[0], new float[0], 0);
+    }
+
+    /**
+     * Groups rows given in any order by (label, id), keeping sample order,
+     * and builds the gallery from them.
+     */
+    static FaceGallery grouped(String[] rowLabels, int[] rowIds, int[] rowSamples, float[] rowVectors, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.<Integer, String>comparing(i -> rowLabels[i])
+                .thenComparingInt(i -> rowIds[i])
+                .thenComparingInt(i -> rowSamples[i]));
+
+        String[] labels  = new String[n];
+        int[]    ids     = new int[n];
+        int[]    start   = new int[n + 1];
+        int[]    samples = new int[n];
+        float[]  vectors = new float[n * DIM];
+        int persons = 0;
+        for (int r = 0; r < n; r++) {
+            int i = order[r];
+            if (persons == 0 || rowIds[i] != ids[persons - 1] || !rowLabels[i].equals(labels[persons - 1])) {
+                labels[persons] = rowLabels[i];
+                ids[persons]    = rowIds[i];
+                start[persons]  = r;
+                persons++;
+            }
+            samples[r] = rowSamples[i];
+            System.arraycopy(rowVectors, i * DIM, vectors, r * DIM, DIM);
+        }
+        start[persons] = n;
+        return new FaceGallery(labels, ids, Arrays.copyOf(start, persons + 1), samples, vectors, persons);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  OPEN  python-face/encodings/gallery.pfg
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Maps the packed gallery in one call. If it does not exist yet (or is
+     * an older format) it is built from the .npy folders under encodingsDir
+     * and written out.
+     */
+    public static FaceGallery open(Path packed, File encodingsDir) {
+        if (Files.exists(packed)) {
+            try {
+                GalleryFile file = GalleryFile.map(packed);
+                if (file.dim() != DIM) throw new IOException(packed + ": dim " + file.dim());
+                int n = file.count();
+                String[] labels  = new String[n];
+                int[]    ids     = new int[n];
+                int[]    samples = new int[n];
+                float[]  vectors = new float[n * DIM];
+                for (int i = 0; i < n; i++) {
+                    labels[i]  = GalleryFile.labelOf(file.type(i));
+                    ids[i]     = file.personId(i);
+                    samples[i] = file.sample(i);
+                    file.copyRow(i, vectors, i * DIM);
+                }
+                return grouped(labels, ids, samples, vectors, n);
+            } catch (IOException e) {
+                System.err.println("Rebuilding " + packed + ": " + e.getMessage());
+            }
+        }
+
+        FaceGallery g = load(encodingsDir);
+        try {
+            int[] types = new int[g.size];
+            int[] ids   = new int[g.size];
+            for (int p = 0; p < g.persons; p++) {
+                for (int r = g.start[p]; r < g.start[p + 1]; r++) {
+                    types[r] = GalleryFile.typeOf(g.labels[p]);
+                    ids[r]   = g.ids[p];
+                }
+            }
+            GalleryFile.write(packed, DIM, g.size, types, ids, g.samples, g.vectors);
+            System.out.println("Packed " + g.size + " encodings of " + g.persons + " people into " + packed);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return g;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  LOAD  python-face/encodings/{guards,prisoners}/{id}[_{n}].npy
+    // ══════════════════════════════════════════════════════════════════════
+    public static FaceGallery load(File encodingsDir) {
+        List<File>   files  = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+
+        for (String cat : CATEGORIES) {
+            File[] npy = new File(encodingsDir, cat).listFiles((d, n) -> n.endsWith(".npy"));
+            if (npy == null) continue;
+            for (File f : npy) {
+                files.add(f);
+                labels.add(cat.substring(0, cat.length() - 1).toUpperCase());
+            }
+        }
+        return read(files, labels);
+    }
+
+    /** One person's gallery from their sample files; empty if none could be read. */
+    public static FaceGallery person(String label, List<File> files) {
+        return read(files, Collections.nCopies(files.size(), label));
+    }
+
+    private static FaceGallery read(List<File> files, List<String> labels) {
+        String[] outLabels  = new String[files.size()];
+        int[]    outIds     = new int[files.size()];
+        int[]    outSamples = new int[files.size()];
+        float[]  vectors    = new float[files.size() * DIM];
+        int n = 0;
+
+        for (int i = 0; i < files.size(); i++) {
+            File f = files.get(i);
+            try {
+                int id     = PythonRunnerUtil.personOf(f.getName());
+                int sample = PythonRunnerUtil.sampleOf(f.getName());
+                NpyReader npy = NpyReader.open(f.toPath());
+                if (npy.rows() != 1 || npy.cols() != DIM)
+                    throw new IOException("expected " + DIM + " values, got " + npy.rows() + "x" + npy.cols());
+                npy.copyRow(0, vectors, n * DIM);
+                outLabels[n]  = labels.get(i);
+                outIds[n]     = id;
+                outSamples[n] = sample;
+                n++;
+            } catch (Exception e) {
+                System.err.println("Skipping encoding " + f + ": " + e.getMessage());
+            }
+        }
+        return grouped(outLabels, outIds, outSamples, vectors, n);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  MATCH
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Up to k closest people within maxDistance, nearest first. A person's
+     * distance is that of their closest sample.
+     *
+     * Every person costs one centroid distance. Only the SHORTLIST nearest
+     * centroids, plus anyone whose bound |probe - centroid| - radius could
+     * still beat the k-th best, have their samples scored. The result is
+     * the same as scoring every sample.
+     */
+    public FaceMatch[] nearest(FaceMatcher matcher, float[] probe, float maxDistance, int k) {
+        if (persons == 0) return new FaceMatch[0];
+
+        // ── Centroid pass (plain scan when everyone has a single sample) ──
+        if (size == persons) return rowMatches(matcher, probe, maxDistance, k);
+
+        float[] centroidDist = new float[persons];
+        TopK shortlist = new TopK(Math.max(SHORTLIST, k));
+        for (int p = 0; p < persons; p++) {
+            float d = matcher.squaredDistance(probe, centroids, p);
+            centroidDist[p] = d;
+            shortlist.offer(p, d);
+        }
+
+        int[]   picked = new int[shortlist.size()];
+        float[] unused = new float[shortlist.size()];
+        int     count  = shortlist.drainSorted(picked, unused);
+
+        // ── Exact sample scoring of the shortlist ──
+        TopK best = new TopK(k);
+        boolean[] scored = new boolean[persons];
+        for (int i = 0; i < count; i++) {
+            int p = picked[i];
+            scored[p] = true;
+            best.offer(p, closestSample(matcher, probe, p));
+        }
+
+        // ── Anyone the centroid bound cannot rule out ──
+        float reach = Math.min(best.isFull() ? (float) Math.sqrt(best.worst()) : Float.MAX_VALUE, maxDistance);
+        for (int p = 0; p < persons; p++) {
+            if (scored[p]) continue;
+            float bound = reach + radius[p];
+            if (centroidDist[p] > bound * bound) continue;
+            best.offer(p, closestSample(matcher, probe, p));
+            if (best.isFull()) reach = Math.min(reach, (float) Math.sqrt(best.worst()));
+        }
+
+        return toMatches(best, maxDistance);
+    }
+
+    private FaceMatch[] rowMatches(FaceMatcher matcher, float[] probe, float maxDistance, int k) {
+        TopK top = new TopK(k);
+        matcher.topK(probe, vectors, 0, size, top);
+        return toMatches(top, maxDistance);    // one row per person, so row == person
+    }
+
+    private float closestSample(FaceMatcher matcher, float[] probe, int p) {
+        float best = Float.MAX_VALUE;
+        for (int r = start[p]; r < start[p + 1]; r++) {
+            best = Math.min(best, matcher.squaredDistance(probe, vectors, r));
+        }
+        return best;
+    }
+
+    private FaceMatch[] toMatches(TopK top, float maxDistance) {
+        int[]   who  = new int[top.size()];
+        float[] dist = new float[top.size()];
+        int n = top.drainSorted(who, dist);
+
+        float max2 = maxDistance * maxDistance;
+        int within = 0;
+        while (within < n && dist[within] <= max2) within++;
+        FaceMatch[] out = new FaceMatch[within];
+        for (int i = 0; i < within; i++) {
+            out[i] = new FaceMatch(labels[who[i]], ids[who[i]], (float) Math.sqrt(dist[i]));
+        }
+        return out;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  COPY-ON-WRITE  (segments of LiveGallery)
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** People [from, to) as a gallery of their own. */
+    FaceGallery slice(int from, int to) {
+        int[] sliceStart = new int[to - from + 1];
+        for (int p = from; p <= to; p++) sliceStart[p - from] = start[p] - start[from];
+        return new FaceGallery(
+                Arrays.copyOfRange(labels, from, to),
+                Arrays.copyOfRange(ids, from, to),
+                sliceStart,
+                Arrays.copyOfRange(samples, start[from], start[to]),
+                Arrays.copyOfRange(vectors, start[from] * DIM, start[to] * DIM),
+                to - from);
+    }
+
+    /**
+     * A copy with (label, personId)'s rows replaced by the single person in
+     * replacement, appended at the end; they are dropped when replacement
+     * is empty. This gallery is left untouched for searches still using it.
+     */
+    FaceGallery replace(String label, int personId, FaceGallery replacement) {
+        int old     = indexOf(label, personId);
+        int oldRows = old < 0 ? 0 : start[old + 1] - start[old];
+        int addRows = replacement.size;
+        int n       = persons - (old < 0 ? 0 : 1) + replacement.persons;
+        int rows    = size - oldRows + addRows;
+
+        String[] newLabels  = new String[n];
+        int[]    newIds     = new int[n];
+        int[]    newStart   = new int[n + 1];
+        int[]    newSamples = new int[rows];
+        float[]  newVectors = new float[rows * DIM];
+
+        int q = 0, r = 0;
+        for (int p = 0; p < persons; p++) {
+            if (p == old) continue;
+            int len = start[p + 1] - start[p];
+            newLabels[q] = labels[p];
+            newIds[q]    = ids[p];
+            newStart[q]  = r;
+            System.arraycopy(samples, start[p], newSamples, r, len);
+            System.arraycopy(vectors, start[p] * DIM, newVectors, r * DIM, len * DIM);
+            q++;
+            r += len;
+        }
+        if (replacement.persons > 0) {
+            newLabels[q] = label;
+            newIds[q]    = personId;
+            newStart[q]  = r;
+            System.arraycopy(replacement.samples, 0, newSamples, r, addRows);
+            System.arraycopy(replacement.vectors, 0, newVectors, r * DIM, addRows * DIM);
+            q++;
+            r += addRows;
+        }
+        newStart[q] = r;
+        return new FaceGallery(newLabels, newIds, newStart, newSamples, newVectors, n);
+    }
+
+    /** Every sample of the person, one float[DIM] each. */
+    public float[][] samplesOf(int person) {
+        float[][] out = new float[start[person + 1] - start[person]][DIM];
+        for (int j = 0; j < out.length; j++) copyRow(start[person] + j, out[j]);
+        return out;
+    }
+
+    /** Enrolled samples (rows), across all people. */
+    public int size()                   { return size; }
+    public int persons()                { return persons; }
+    public String label(int person)     { return labels[person]; }
+    public int personId(int person)     { return ids[person]; }
+    public int firstRow(int person)     { return start[person]; }
+    public int endRow(int person)       { return start[person + 1]; }
+    public int sample(int row)          { return samples[row]; }
+
+    public void copyRow(int row, float[] dst) {
+        System.arraycopy(vectors, row * DIM, dst, 0, DIM);
+    }
+
+    /** Person index of (label, personId), or -1 if they are not enrolled. */
+    public int indexOf(String label, int personId) {
+        for (int p = 0; p < persons; p++) {
+            if (ids[p] == personId && labels[p].equals(label)) return p;
+        }
+        return -1;
+    }
+}
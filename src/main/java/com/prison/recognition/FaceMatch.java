@@ -0,0 +1,31 @@
+package com.prison.recognition;
+
+/**
+ * One gallery hit: who it is and how far the probe was from them
+ * (Euclidean distance, same scale as face_recognition.face_distance).
+ */
+public final class FaceMatch {
+
+    private final String label;     // GUARD / PRISONER
+    private final int    personId;
+    private final float  distance;
+
+    public FaceMatch(String label, int personId, float distance) {
+        this.label    = label;
+        this.personId = personId;
+        this.distance = distance;
+    }
+
+    public String getLabel()    { return label; }
+    public int    getPersonId() { return personId; }
+    public float  getDistance() { return distance; }
+
+    public boolean samePerson(FaceMatch other) {
+        return other != null && personId == other.personId && label.equals(other.label);
+    }
+
+    @Override
+    public String toString() {
+        return label + ":" + personId;
+    }
+}
@@ -0,0 +1,61 @@
+package com.prison.recognition;
+
+/**
+ * Distance kernel used to match one probe encoding against a flat gallery:
+ * rows[i * dim .. i * dim + dim) is row i, dim == probe.length.
+ *
+ * Implementations must not allocate per candidate; the only allocation per
+ * query is the returned Nearest (or the caller's TopK).
+ */
+public interface FaceMatcher {
+
+    /** Squared Euclidean distance between probe and one gallery row. */
+    float squaredDistance(float[] probe, float[] rows, int row);
+
+    /** Closest row in [from, to), or Nearest.NONE if the range is empty. */
+    default Nearest nearest(float[] probe, float[] rows, int from, int to) {
+        int   best     = -1;
+        float bestDist = Float.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            float d = squaredDistance(probe, rows, i);
+            if (d < bestDist) {
+                bestDist = d;
+                best     = i;
+            }
+        }
+        return best < 0 ? Nearest.NONE : new Nearest(best, bestDist);
+    }
+
+    /**
+     * The out.capacity() closest rows in [from, to), collected in the same
+     * single pass as nearest(); rows that cannot make the cut cost one compare.
+     */
+    default void topK(float[] probe, float[] rows, int from, int to, TopK out) {
+        float worst = out.worst();
+        for (int i = from; i < to; i++) {
+            float d = squaredDistance(probe, rows, i);
+            if (d <= worst) {
+                out.offer(i, d);
+                worst = out.worst();
+            }
+        }
+    }
+
+    /** Short name for logs and the benchmark. */
+    String name();
+
+    /** Index of the closest row and its squared distance. */
+    final class Nearest {
+        public static final Nearest NONE = new Nearest(-1, Float.MAX_VALUE);
+
+        public final int   index;
+        public final float squaredDistance;
+
+        public Nearest(int index, float squaredDistance) {
+            this.index           = index;
+            this.squaredDistance = squaredDistance;
+        }
+
+        public boolean found() { return index >= 0; }
+    }
+}
@@ -0,0 +1,39 @@
+package com.prison.recognition;
+
+/** Picks the fastest FaceMatcher the running JVM supports. */
+public final class FaceMatchers {
+
+    private FaceMatchers() {
+        // Prevent object creation
+    }
+
+    /**
+     * VectorFaceMatcher when jdk.incubator.vector is resolvable, otherwise
+     * ScalarFaceMatcher. -Dprison.matcher=scalar forces the fallback.
+     */
+    public static FaceMatcher best() {
+        if ("scalar".equalsIgnoreCase(System.getProperty("prison.matcher"))) {
+            return new ScalarFaceMatcher();
+        }
+        try {
+            Class<?> c = Class.forName("com.prison.recognition.VectorFaceMatcher");
+            return (FaceMatcher) c.getDeclaredConstructor().newInstance();
+        } catch (LinkageError | ReflectiveOperationException e) {
+            System.out.println("Vector API unavailable (" + e + "), using scalar face matcher");
+            return new ScalarFaceMatcher();
+        }
+    }
+
+    /** Int8 kernel for QuantizedGallery, chosen the same way as best(). */
+    static QuantizedGallery.Int8Kernel int8() {
+        if ("scalar".equalsIgnoreCase(System.getProperty("prison.matcher"))) {
+            return new QuantizedGallery.ScalarInt8Kernel();
+        }
+        try {
+            Class<?> c = Class.forName("com.prison.recognition.VectorInt8Kernel");
+            return (QuantizedGallery.Int8Kernel) c.getDeclaredConstructor().newInstance();
+        } catch (LinkageError | ReflectiveOperationException e) {
+            return new QuantizedGallery.ScalarInt8Kernel();
+        }
+    }
+}
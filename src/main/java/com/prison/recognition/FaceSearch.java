@@ -0,0 +1,19 @@
+package com.prison.recognition;
+
+/**
+ * Answers "who is this probe?" for a scan. Either an exact scan of the
+ * gallery (FaceGallery + FaceMatcher), the approximate HnswIndex or the
+ * compressed QuantizedGallery.
+ */
+@FunctionalInterface
+public interface FaceSearch {
+
+    /** Up to k closest enrolled faces within maxDistance, nearest first. */
+    FaceMatch[] nearest(float[] probe, float maxDistance, int k);
+
+    /** Closest enrolled face within tolerance, or null. */
+    default FaceMatch nearest(float[] probe, float tolerance) {
+        FaceMatch[] m = nearest(probe, tolerance, 1);
+        return m.length > 0 ? m[0] : null;
+    }
+}
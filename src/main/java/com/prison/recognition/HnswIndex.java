@@ -0,0 +1,574 @@
+package com.prison.recognition;
+
+import com.prison.util.GalleryFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph over the 128-d encodings
+ * (Malkov &amp; Yashunin). Search cost grows roughly with log(n) instead of n,
+ * at the price of being approximate; efSearch trades recall for latency.
+ *
+ * One node per sample; a person with several samples has several nodes, and
+ * results are collapsed to distinct people, each at their closest sample.
+ * Re-enrolling a person tombstones all their old nodes and inserts the new
+ * samples; deleting only tombstones. Tombstoned nodes still route searches
+ * but are never returned, and the graph is rebuilt from live nodes once
+ * tombstones outnumber half of them.
+ *
+ * Searches take a read lock, updates a write lock, so gates keep matching
+ * while a person is enrolled. The graph is persisted with save()/load() so
+ * it is not rebuilt at startup. The saved header carries checksum(), an
+ * order-independent hash of every live (person, vector), so a loaded graph
+ * can be checked against the gallery it is meant to index.
+ */
+public class HnswIndex implements FaceSearch {
+
+    public static final int DEFAULT_M               = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 200;
+    public static final int DEFAULT_EF_SEARCH       = 64;
+
+    // 02: checksum of the live rows after the header
+    private static final byte[] MAGIC = "PFHNSW02".getBytes(StandardCharsets.US_ASCII);
+
+    private final int         dim;
+    private final int         m;
+    private final int         maxM0;
+    private final int         efConstruction;
+    private final double      levelMult;
+    private final FaceMatcher kernel;
+    private volatile int      efSearch;
+
+    private float[]   vectors  = new float[0];
+    private int[]     types    = new int[0];
+    private int[]     personIds = new int[0];
+    private int[]     levels   = new int[0];
+    private boolean[] deleted  = new boolean[0];
+    private int[][][] links    = new int[0][][];   // links[node][layer] = {count, n1, n2, ...}
+
+    private int  size      = 0;
+    private int  liveCount = 0;
+    private int  entry     = -1;
+    private int  maxLevel  = -1;
+    private long checksum  = 0;     // sum of rowHash over live nodes
+
+    private final Map<Long, int[]>   byPerson = new HashMap<>();   // person → their nodes
+    private final Random              random   = new Random(42);
+    private final ReentrantReadWriteLock lock  = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch>   scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public HnswIndex(int dim, int m, int efConstruction, FaceMatcher kernel) {
+        this.dim            = dim;
+        this.m              = m;
+        this.maxM0          = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMult      = 1.0 / Math.log(m);
+        this.kernel         = kernel;
+        this.efSearch       = DEFAULT_EF_SEARCH;
+    }
+
+    public static HnswIndex build(FaceMatcher kernel, FaceGallery... segments) {
+        HnswIndex index = new HnswIndex(FaceGallery.DIM, DEFAULT_M, DEFAULT_EF_CONSTRUCTION, kernel);
+        for (FaceGallery gallery : segments) {
+            for (int p = 0; p < gallery.persons(); p++) {
+                index.upsert(gallery.label(p), gallery.personId(p), gallery.samplesOf(p));
+            }
+        }
+        return index;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  TUNING / STATS
+    // ══════════════════════════════════════════════════════════════════════
+    public void setEfSearch(int efSearch) { this.efSearch = Math.max(1, efSearch); }
+    public int  getEfSearch()             { return efSearch; }
+
+    /** Live samples (nodes), across all people. */
+    public int size() {
+        lock.readLock().lock();
+        try { return liveCount; } finally { lock.readLock().unlock(); }
+    }
+
+    /** Hash of the live (person, vector) set; equal sets give equal sums whatever the order. */
+    public long checksum() {
+        lock.readLock().lock();
+        try { return checksum; } finally { lock.readLock().unlock(); }
+    }
+
+    /** What checksum() of an index over exactly these segments' samples would be. */
+    public static long checksum(FaceGallery... segments) {
+        long sum = 0;
+        float[] row = new float[FaceGallery.DIM];
+        for (FaceGallery g : segments) {
+            for (int p = 0; p < g.persons(); p++) {
+                int type = GalleryFile.typeOf(g.label(p));
+                for (int r = g.firstRow(p); r < g.endRow(p); r++) {
+                    g.copyRow(r, row);
+                    sum += rowHash(type, g.personId(p), row, 0);
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static long rowHash(int type, int personId, float[] v, int off) {
+        long h = mix(key(type, personId));
+        for (int k = 0; k < FaceGallery.DIM; k++) h = mix(h ^ Float.floatToIntBits(v[off + k]));
+        return h;
+    }
+
+    // SplitMix64 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long key(int type, int personId) {
+        return ((long) type << 32) | (personId & 0xffffffffL);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  SEARCH
+    // ══════════════════════════════════════════════════════════════════════
+    @Override
+    public FaceMatch[] nearest(float[] probe, float maxDistance, int k) {
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) return new FaceMatch[0];
+            Scratch s = scratch.get();
+            int ef = Math.max(efSearch, k);
+
+            int ep = greedyDescend(probe, entry, maxLevel, 0);
+            searchLayer(probe, ep, ef, 0, true, s);
+
+            // Results heap is a max-heap: drain farthest first into nearest-first order
+            NodeHeap results = s.results;
+            int     count = results.size();
+            int[]   nodes = s.nodes(count);
+            float[] dist  = s.dist(count);
+            for (int i = count - 1; i >= 0; i--) {
+                dist[i]  = results.topDist();
+                nodes[i] = results.pop();
+            }
+
+            // One match per person, at their closest sample
+            FaceMatch[] top = new FaceMatch[Math.min(k, count)];
+            float max2 = maxDistance * maxDistance;
+            int n = 0;
+            for (int i = 0; i < count && n < top.length && dist[i] <= max2; i++) {
+                int node = nodes[i];
+                if (seen(nodes, i, node)) continue;
+                top[n++] = new FaceMatch(GalleryFile.labelOf(types[node]), personIds[node], (float) Math.sqrt(dist[i]));
+            }
+            return n == top.length ? top : Arrays.copyOf(top, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** True if a node before position i belongs to the same person as node. */
+    private boolean seen(int[] nodes, int i, int node) {
+        for (int j = 0; j < i; j++) {
+            if (personIds[nodes[j]] == personIds[node] && types[nodes[j]] == types[node]) return true;
+        }
+        return false;
+    }
+
+    private int greedyDescend(float[] q, int ep, int fromLevel, int toLevel) {
+        int   cur  = ep;
+        float curD = kernel.squaredDistance(q, vectors, cur);
+        for (int l = fromLevel; l > toLevel; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] nb = links[cur][l];
+                for (int j = 1; j <= nb[0]; j++) {
+                    float d = kernel.squaredDistance(q, vectors, nb[j]);
+                    if (d < curD) {
+                        curD    = d;
+                        cur     = nb[j];
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return cur;
+    }
+
+    /**
+     * Best-first search of one layer; leaves up to ef nearest nodes in
+     * s.results (max-heap). Tombstoned nodes are traversed but only kept as
+     * results when skipDeleted is false (graph construction).
+     */
+    private void searchLayer(float[] q, int ep, int ef, int layer, boolean skipDeleted, Scratch s) {
+        s.begin(size);
+        NodeHeap candidates = s.candidates;
+        NodeHeap results    = s.results;
+
+        float d0 = kernel.squaredDistance(q, vectors, ep);
+        s.visit(ep);
+        candidates.push(ep, d0);
+        if (!(skipDeleted && deleted[ep])) results.push(ep, d0);
+
+        while (!candidates.isEmpty()) {
+            float cd = candidates.topDist();
+            if (results.size() >= ef && cd > results.topDist()) break;
+            int c = candidates.pop();
+
+            int[] nb = links[c][layer];
+            for (int j = 1; j <= nb[0]; j++) {
+                int e = nb[j];
+                if (!s.visit(e)) continue;
+                float de = kernel.squaredDistance(q, vectors, e);
+                if (results.size() < ef || de < results.topDist()) {
+                    candidates.push(e, de);
+                    if (skipDeleted && deleted[e]) continue;
+                    results.push(e, de);
+                    if (results.size() > ef) results.pop();
+                }
+            }
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  UPDATE
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** Inserts (label, personId), replacing all previous samples for them. */
+    public void upsert(String label, int personId, float[]... samples) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(GalleryFile.typeOf(label), personId);
+            for (float[] vector : samples) insertLocked(GalleryFile.typeOf(label), personId, vector);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Tombstones every sample of (label, personId); false if they were not indexed. */
+    public boolean remove(String label, int personId) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = removeLocked(GalleryFile.typeOf(label), personId);
+            compactIfNeeded();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean removeLocked(int type, int personId) {
+        int[] nodes = byPerson.remove(key(type, personId));
+        if (nodes == null) return false;
+        for (int node : nodes) {
+            deleted[node] = true;
+            checksum -= rowHash(types[node], personIds[node], vectors, node * dim);
+        }
+        liveCount -= nodes.length;
+        return true;
+    }
+
+    private void insertLocked(int type, int personId, float[] vector) {
+        int node = size;
+        ensureCapacity(node + 1);
+        System.arraycopy(vector, 0, vectors, node * dim, dim);
+        types[node]     = type;
+        personIds[node] = personId;
+
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMult);
+        levels[node] = level;
+        links[node]  = new int[level + 1][];
+        for (int l = 0; l <= level; l++) links[node][l] = new int[1 + maxM(l)];
+
+        size++;
+        liveCount++;
+        checksum += rowHash(type, personId, vectors, node * dim);
+        addNode(type, personId, node);
+
+        if (entry < 0) {
+            entry    = node;
+            maxLevel = level;
+            return;
+        }
+
+        // Work on the stored copy so distances use the same float[] as searches
+        float[] q = Arrays.copyOfRange(vectors, node * dim, node * dim + dim);
+        Scratch s = scratch.get();
+
+        int ep = greedyDescend(q, entry, maxLevel, level);
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            searchLayer(q, ep, efConstruction, l, false, s);
+            int count = s.results.size();
+            int[]   cand  = new int[count];
+            float[] cdist = new float[count];
+            for (int i = count - 1; i >= 0; i--) {   // max-heap drains farthest first
+                cdist[i] = s.results.topDist();
+                cand[i]  = s.results.pop();
+            }
+            int[] chosen = selectNeighbors(cand, cdist, count, m);
+            int[] own = links[node][l];
+            own[0] = chosen.length;
+            System.arraycopy(chosen, 0, own, 1, chosen.length);
+            for (int n : chosen) link(n, node, l);
+            ep = cand[0];
+        }
+
+        if (level > maxLevel) {
+            entry    = node;
+            maxLevel = level;
+        }
+    }
+
+    private void addNode(int type, int personId, int node) {
+        byPerson.merge(key(type, personId), new int[]{node}, (old, one) -> {
+            int[] grown = Arrays.copyOf(old, old.length + 1);
+            grown[old.length] = node;
+            return grown;
+        });
+    }
+
+    private int maxM(int layer) { return layer == 0 ? maxM0 : m; }
+
+    /** Adds a back-link n → node, pruning n's list with the heuristic if full. */
+    private void link(int n, int node, int layer) {
+        int[] nb  = links[n][layer];
+        int   max = maxM(layer);
+        if (nb[0] < max) {
+            nb[++nb[0]] = node;
+            return;
+        }
+        int     count = nb[0] + 1;
+        int[]   cand  = new int[count];
+        float[] cdist = new float[count];
+        for (int j = 0; j < nb[0]; j++) {
+            cand[j]  = nb[j + 1];
+            cdist[j] = rowDistance(n, cand[j]);
+        }
+        cand[count - 1]  = node;
+        cdist[count - 1] = rowDistance(n, node);
+        sortByDistance(cand, cdist, count);
+
+        int[] kept = selectNeighbors(cand, cdist, count, max);
+        nb[0] = kept.length;
+        System.arraycopy(kept, 0, nb, 1, kept.length);
+    }
+
+    /**
+     * Neighbour-selection heuristic: walk candidates nearest-first and keep
+     * one only if it is closer to the base than to every neighbour already
+     * kept. Spreads links across directions, which keeps the graph navigable.
+     * Slots the heuristic leaves empty are back-filled with the nearest pruned
+     * candidates so no node ends up with only one or two links.
+     */
+    private int[] selectNeighbors(int[] cand, float[] cdist, int count, int max) {
+        int[]     kept   = new int[Math.min(count, max)];
+        boolean[] pruned = new boolean[count];
+        int       k      = 0;
+        for (int i = 0; i < count && k < kept.length; i++) {
+            for (int j = 0; j < k; j++) {
+                if (rowDistance(cand[i], kept[j]) < cdist[i]) {
+                    pruned[i] = true;
+                    break;
+                }
+            }
+            if (!pruned[i]) kept[k++] = cand[i];
+        }
+        for (int i = 0; i < count && k < kept.length; i++) {
+            if (pruned[i]) kept[k++] = cand[i];
+        }
+        return kept;
+    }
+
+    private float rowDistance(int a, int b) {
+        int ba = a * dim, bb = b * dim;
+        float sum = 0f;
+        for (int k = 0; k < dim; k++) {
+            float d = vectors[ba + k] - vectors[bb + k];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    private static void sortByDistance(int[] ids, float[] dist, int count) {
+        for (int i = 1; i < count; i++) {
+            float d = dist[i];
+            int   n = ids[i];
+            int   j = i - 1;
+            while (j >= 0 && dist[j] > d) {
+                dist[j + 1] = dist[j];
+                ids[j + 1]  = ids[j];
+                j--;
+            }
+            dist[j + 1] = d;
+            ids[j + 1]  = n;
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= types.length) return;
+        int cap = Math.max(n, Math.max(16, types.length * 2));
+        vectors   = Arrays.copyOf(vectors, cap * dim);
+        types     = Arrays.copyOf(types, cap);
+        personIds = Arrays.copyOf(personIds, cap);
+        levels    = Arrays.copyOf(levels, cap);
+        deleted   = Arrays.copyOf(deleted, cap);
+        links     = Arrays.copyOf(links, cap);
+    }
+
+    /** Rebuilds from live nodes once tombstones exceed half the live count. */
+    private void compactIfNeeded() {
+        int dead = size - liveCount;
+        if (dead < 1024 || dead < liveCount / 2) return;
+
+        float[]   oldVectors = vectors;
+        int[]     oldTypes   = types;
+        int[]     oldIds     = personIds;
+        boolean[] oldDeleted = deleted;
+        int       oldSize    = size;
+
+        vectors = new float[0]; types = new int[0]; personIds = new int[0];
+        levels  = new int[0];   deleted = new boolean[0]; links = new int[0][][];
+        size = 0; liveCount = 0; entry = -1; maxLevel = -1; checksum = 0;
+        byPerson.clear();
+
+        float[] row = new float[dim];
+        for (int i = 0; i < oldSize; i++) {
+            if (oldDeleted[i]) continue;
+            System.arraycopy(oldVectors, i * dim, row, 0, dim);
+            insertLocked(oldTypes[i], oldIds[i], row);
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  PERSISTENCE
+    // ══════════════════════════════════════════════════════════════════════
+    public void save(Path path) throws IOException {
+        lock.readLock().lock();
+        try {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.write(MAGIC);
+                out.writeInt(dim);
+                out.writeInt(m);
+                out.writeInt(efConstruction);
+                out.writeInt(efSearch);
+                out.writeInt(size);
+                out.writeInt(entry);
+                out.writeInt(maxLevel);
+                out.writeLong(checksum);
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(types[i]);
+                    out.writeInt(personIds[i]);
+                    out.writeBoolean(deleted[i]);
+                    out.writeInt(levels[i]);
+                    for (int k = 0; k < dim; k++) out.writeFloat(vectors[i * dim + k]);
+                    for (int l = 0; l <= levels[i]; l++) {
+                        int[] nb = links[i][l];
+                        out.writeInt(nb[0]);
+                        for (int j = 1; j <= nb[0]; j++) out.writeInt(nb[j]);
+                    }
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static HnswIndex load(Path path, FaceMatcher kernel) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException(path + ": not an HNSW index");
+
+            HnswIndex index = new HnswIndex(in.readInt(), in.readInt(), in.readInt(), kernel);
+            index.efSearch = in.readInt();
+            int n = in.readInt();
+            index.ensureCapacity(n);
+            index.entry    = in.readInt();
+            index.maxLevel = in.readInt();
+            long saved     = in.readLong();
+
+            int dim = index.dim;
+            for (int i = 0; i < n; i++) {
+                index.types[i]     = in.readInt();
+                index.personIds[i] = in.readInt();
+                index.deleted[i]   = in.readBoolean();
+                int level          = in.readInt();
+                index.levels[i]    = level;
+                for (int k = 0; k < dim; k++) index.vectors[i * dim + k] = in.readFloat();
+                index.links[i] = new int[level + 1][];
+                for (int l = 0; l <= level; l++) {
+                    int[] nb = new int[1 + index.maxM(l)];
+                    nb[0] = in.readInt();
+                    for (int j = 1; j <= nb[0]; j++) nb[j] = in.readInt();
+                    index.links[i][l] = nb;
+                }
+                if (!index.deleted[i]) {
+                    index.addNode(index.types[i], index.personIds[i], i);
+                    index.liveCount++;
+                    index.checksum += rowHash(index.types[i], index.personIds[i], index.vectors, i * dim);
+                }
+            }
+            index.size = n;
+            if (index.checksum != saved) throw new IOException(path + ": checksum mismatch");
+            return index;
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  PER-THREAD SEARCH STATE
+    // ══════════════════════════════════════════════════════════════════════
+    private static final class Scratch {
+        final NodeHeap candidates = new NodeHeap(256, false);
+        final NodeHeap results    = new NodeHeap(256, true);
+        int[]   visited = new int[0];
+        int     stamp   = 0;
+        int[]   nodes   = new int[0];
+        float[] dist    = new float[0];
+
+        int[] nodes(int n) {
+            if (nodes.length < n) nodes = new int[n];
+            return nodes;
+        }
+
+        float[] dist(int n) {
+            if (dist.length < n) dist = new float[n];
+            return dist;
+        }
+
+        void begin(int n) {
+            candidates.clear();
+            results.clear();
+            if (visited.length < n) visited = new int[Math.max(n, visited.length * 2)];
+            if (++stamp == 0) {               // wrapped: reset marks
+                Arrays.fill(visited, 0);
+                stamp = 1;
+            }
+        }
+
+        /** Marks n visited; false if it already was. */
+        boolean visit(int n) {
+            if (visited[n] == stamp) return false;
+            visited[n] = stamp;
+            return true;
+        }
+    }
+}
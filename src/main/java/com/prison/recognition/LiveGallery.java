@@ -0,0 +1,131 @@
+package com.prison.recognition;
+
+import com.prison.util.GalleryFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The exact gallery split into segments of up to SEGMENT_PERSONS people,
+ * published as one immutable array behind an AtomicReference.
+ *
+ * Enrolling, retaking or deleting a person copies only the segment that
+ * holds them and swaps in a new array, so the change costs one segment
+ * rather than a reload, and searches never take a lock: each one reads the
+ * array once and runs against that snapshot, even if an update lands
+ * meanwhile. Updates are serialised among themselves.
+ *
+ * A segment is below ParallelFaceMatcher's threshold on its own, so a large
+ * gallery is searched in parallel one segment per task, on the matcher's
+ * pool, and the per-segment top-k are merged through a TopK.
+ */
+public class LiveGallery implements FaceSearch {
+
+    /** 4096 people × 128 floats = 2 MB copied per update (single sample). */
+    public static final int SEGMENT_PERSONS = 4096;
+
+    private final FaceMatcher                    matcher;
+    private final ParallelFaceMatcher            parallel;   // null: segments searched in turn
+    private final AtomicReference<FaceGallery[]> segments;
+    private final Map<Long, Integer>             home = new HashMap<>();   // person → segment, under this
+
+    public LiveGallery(FaceGallery all, FaceMatcher matcher) {
+        this.matcher  = matcher;
+        this.parallel = matcher instanceof ParallelFaceMatcher ? (ParallelFaceMatcher) matcher : null;
+        List<FaceGallery> split = new ArrayList<>();
+        for (int from = 0; from < all.persons(); from += SEGMENT_PERSONS) {
+            FaceGallery seg = all.slice(from, Math.min(all.persons(), from + SEGMENT_PERSONS));
+            for (int p = 0; p < seg.persons(); p++) home.put(key(seg.label(p), seg.personId(p)), split.size());
+            split.add(seg);
+        }
+        if (split.isEmpty()) split.add(FaceGallery.empty());
+        this.segments = new AtomicReference<>(split.toArray(new FaceGallery[0]));
+    }
+
+    private static long key(String label, int personId) {
+        return ((long) GalleryFile.typeOf(label) << 32) | (personId & 0xffffffffL);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  SEARCH
+    // ══════════════════════════════════════════════════════════════════════
+    @Override
+    public FaceMatch[] nearest(float[] probe, float maxDistance, int k) {
+        FaceGallery[] snapshot = segments.get();
+        if (snapshot.length == 1) return snapshot[0].nearest(matcher, probe, maxDistance, k);
+
+        FaceMatch[][] found = new FaceMatch[snapshot.length][];
+        if (parallel != null && rows(snapshot) >= parallel.threshold()) {
+            parallel.invokeAll(snapshot.length, s -> found[s] = snapshot[s].nearest(matcher, probe, maxDistance, k));
+        } else {
+            for (int s = 0; s < snapshot.length; s++) found[s] = snapshot[s].nearest(matcher, probe, maxDistance, k);
+        }
+
+        // Each person lives in exactly one segment, so per-segment top-k merge cleanly;
+        // candidate i of segment s is s * k + i, ties going to the earlier segment
+        TopK top = new TopK(k);
+        for (int s = 0; s < found.length; s++) {
+            for (int i = 0; i < found[s].length; i++) top.offer(s * k + i, found[s][i].getDistance());
+        }
+        int[]   picked = new int[top.size()];
+        float[] unused = new float[top.size()];
+        int     n      = top.drainSorted(picked, unused);
+        FaceMatch[] out = new FaceMatch[n];
+        for (int i = 0; i < n; i++) out[i] = found[picked[i] / k][picked[i] % k];
+        return out;
+    }
+
+    private static int rows(FaceGallery[] snapshot) {
+        int n = 0;
+        for (FaceGallery seg : snapshot) n += seg.size();
+        return n;
+    }
+
+    /** Current segments; a consistent snapshot that later updates do not change. */
+    public FaceGallery[] segments() { return segments.get(); }
+
+    /** Enrolled samples (rows), across all people. */
+    public int size() {
+        return rows(segments.get());
+    }
+
+    public int persons() {
+        int n = 0;
+        for (FaceGallery seg : segments.get()) n += seg.persons();
+        return n;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  UPDATE
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Replaces every sample of (label, personId) with those in person (a
+     * one-person gallery, see FaceGallery.person); an empty one removes them.
+     * New people go to the last segment, or a fresh one once it is full.
+     */
+    public synchronized void replace(String label, int personId, FaceGallery person) {
+        FaceGallery[] cur = segments.get();
+        Integer       at  = home.get(key(label, personId));
+        if (at == null && person.persons() == 0) return;
+
+        int target = at != null ? at : cur.length - 1;
+        FaceGallery[] next;
+        if (at == null && cur[target].persons() >= SEGMENT_PERSONS) {
+            next   = Arrays.copyOf(cur, cur.length + 1);
+            target = cur.length;
+            next[target] = FaceGallery.empty();
+        } else {
+            next = cur.clone();
+        }
+        next[target] = next[target].replace(label, personId, person);
+
+        if (person.persons() == 0) home.remove(key(label, personId));
+        else                       home.put(key(label, personId), target);
+        segments.set(next);
+    }
+}
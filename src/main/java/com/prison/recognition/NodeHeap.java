@@ -0,0 +1,72 @@
+package com.prison.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of (distance, node) pairs on primitive arrays — no boxing, no
+ * per-push allocation once warmed up. Min-heap or max-heap by construction.
+ */
+final class NodeHeap {
+
+    private final boolean max;
+    private float[] dist;
+    private int[]   node;
+    private int     size;
+
+    NodeHeap(int capacity, boolean max) {
+        this.max  = max;
+        this.dist = new float[Math.max(4, capacity)];
+        this.node = new int[dist.length];
+    }
+
+    int     size()     { return size; }
+    boolean isEmpty()  { return size == 0; }
+    void    clear()    { size = 0; }
+    float   topDist()  { return dist[0]; }
+    int     topNode()  { return node[0]; }
+
+    void push(int n, float d) {
+        if (size == dist.length) {
+            dist = Arrays.copyOf(dist, size * 2);
+            node = Arrays.copyOf(node, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(d, dist[parent])) break;
+            dist[i] = dist[parent];
+            node[i] = node[parent];
+            i = parent;
+        }
+        dist[i] = d;
+        node[i] = n;
+    }
+
+    /** Removes the top element and returns its node. */
+    int pop() {
+        int top = node[0];
+        size--;
+        if (size > 0) siftDown(dist[size], node[size]);
+        return top;
+    }
+
+    private void siftDown(float d, int n) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && before(dist[right], dist[child])) child = right;
+            if (!before(dist[child], d)) break;
+            dist[i] = dist[child];
+            node[i] = node[child];
+            i = child;
+        }
+        dist[i] = d;
+        node[i] = n;
+    }
+
+    private boolean before(float a, float b) {
+        return max ? a > b : a < b;
+    }
+}
@@ -0,0 +1,198 @@
+package com.prison.recognition;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Splits a large gallery scan into cache-sized blocks and searches them on a
+ * dedicated ForkJoinPool, merging the per-block winners (or per-block top-k
+ * lists). Galleries smaller than the threshold are scanned on the calling
+ * thread so small sites do not pay any coordination cost.
+ *
+ * The per-row kernel is whatever FaceMatcher is wrapped (vector or scalar).
+ * The pool is shared by all gates, so concurrent scans queue fairly instead of
+ * each spawning its own threads. invokeAll() runs other independent pieces of
+ * one search on it too, such as LiveGallery's per-segment searches.
+ */
+public class ParallelFaceMatcher implements FaceMatcher {
+
+    /** 1024 rows × 128 floats = 512 KB per block, fits a core's L2. */
+    public static final int BLOCK_ROWS         = 1024;
+    public static final int PARALLEL_THRESHOLD = 16 * BLOCK_ROWS;
+
+    private final FaceMatcher  kernel;
+    private final ForkJoinPool pool;
+    private final int          threshold;
+    private final AtomicLong   forked = new AtomicLong();     // searches that went to the pool
+
+    public ParallelFaceMatcher(FaceMatcher kernel) {
+        this(kernel, Runtime.getRuntime().availableProcessors(), PARALLEL_THRESHOLD);
+    }
+
+    public ParallelFaceMatcher(FaceMatcher kernel, int parallelism, int threshold) {
+        this.kernel    = kernel;
+        this.threshold = threshold;
+        this.pool      = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("face-match-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    @Override
+    public float squaredDistance(float[] probe, float[] rows, int row) {
+        return kernel.squaredDistance(probe, rows, row);
+    }
+
+    @Override
+    public Nearest nearest(float[] probe, float[] rows, int from, int to) {
+        if (to - from < threshold || pool.getParallelism() < 2) {
+            return kernel.nearest(probe, rows, from, to);
+        }
+        forked.incrementAndGet();
+        return pool.invoke(new BlockSearch(probe, rows, from, to));
+    }
+
+    @Override
+    public void topK(float[] probe, float[] rows, int from, int to, TopK out) {
+        if (to - from < threshold || pool.getParallelism() < 2) {
+            kernel.topK(probe, rows, from, to, out);
+            return;
+        }
+        forked.incrementAndGet();
+        out.addAll(pool.invoke(new BlockTopK(probe, rows, from, to, out.capacity())));
+    }
+
+    /**
+     * Runs task(0) .. task(count - 1) on the pool and returns once all have
+     * finished; on the calling thread when there is only one or the pool has
+     * a single thread. Tasks must not depend on each other.
+     */
+    public void invokeAll(int count, IntConsumer task) {
+        if (count < 2 || pool.getParallelism() < 2) {
+            for (int i = 0; i < count; i++) task.accept(i);
+            return;
+        }
+        forked.incrementAndGet();
+        pool.invoke(new Each(task, 0, count));
+    }
+
+    @Override
+    public String name() { return "parallel-" + pool.getParallelism() + "/" + kernel.name(); }
+
+    /** Rows a scan needs before it is split across the pool. */
+    public int threshold() { return threshold; }
+
+    /** Searches (and invokeAll batches) that ran on the pool, for benchmarks and stats. */
+    public long forkedSearches() { return forked.get(); }
+
+    public void shutdown() { pool.shutdown(); }
+
+    /** Smaller distance wins; ties go to the lower index so results are deterministic. */
+    static Nearest better(Nearest a, Nearest b) {
+        if (!b.found()) return a;
+        if (!a.found()) return b;
+        if (b.squaredDistance < a.squaredDistance) return b;
+        if (b.squaredDistance == a.squaredDistance && b.index < a.index) return b;
+        return a;
+    }
+
+    private final class BlockSearch extends RecursiveTask<Nearest> {
+        private static final long serialVersionUID = 1L;
+
+        private final float[] probe;
+        private final float[] rows;
+        private final int     from;
+        private final int     to;
+
+        BlockSearch(float[] probe, float[] rows, int from, int to) {
+            this.probe = probe;
+            this.rows  = rows;
+            this.from  = from;
+            this.to    = to;
+        }
+
+        @Override
+        protected Nearest compute() {
+            int n = to - from;
+            if (n <= BLOCK_ROWS) return kernel.nearest(probe, rows, from, to);
+
+            // Split on a block boundary so every leaf scans whole blocks
+            int blocks = (n + BLOCK_ROWS - 1) / BLOCK_ROWS;
+            int mid    = from + (blocks / 2) * BLOCK_ROWS;
+
+            BlockSearch left = new BlockSearch(probe, rows, from, mid);
+            left.fork();
+            Nearest right = new BlockSearch(probe, rows, mid, to).compute();
+            return better(left.join(), right);
+        }
+    }
+
+    /** Same split as BlockSearch; each leaf keeps its own k and they merge on join. */
+    private final class BlockTopK extends RecursiveTask<TopK> {
+        private static final long serialVersionUID = 1L;
+
+        private final float[] probe;
+        private final float[] rows;
+        private final int     from;
+        private final int     to;
+        private final int     k;
+
+        BlockTopK(float[] probe, float[] rows, int from, int to, int k) {
+            this.probe = probe;
+            this.rows  = rows;
+            this.from  = from;
+            this.to    = to;
+            this.k     = k;
+        }
+
+        @Override
+        protected TopK compute() {
+            int n = to - from;
+            if (n <= BLOCK_ROWS) {
+                TopK top = new TopK(k);
+                kernel.topK(probe, rows, from, to, top);
+                return top;
+            }
+
+            int blocks = (n + BLOCK_ROWS - 1) / BLOCK_ROWS;
+            int mid    = from + (blocks / 2) * BLOCK_ROWS;
+
+            BlockTopK left = new BlockTopK(probe, rows, from, mid, k);
+            left.fork();
+            TopK right = new BlockTopK(probe, rows, mid, to, k).compute();
+            right.addAll(left.join());
+            return right;
+        }
+    }
+
+    /** task(i) for i in [from, to), halved until one index is left. */
+    private static final class Each extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer task;
+        private final int         from;
+        private final int         to;
+
+        Each(IntConsumer task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to   = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                task.accept(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Each(task, from, mid), new Each(task, mid, to));
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package com.prison.recognition;
+
+import com.prison.util.GalleryFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed copy of the packed gallery for the scan: int8 codes with a
+ * per-dimension scale/offset (4x smaller than float32, 8x smaller than the
+ * float64 .npy files) or IEEE float16 (2x / 4x).
+ *
+ * A probe is first scored against every compressed row; the RERANK closest
+ * (or k, if more are asked for) are then re-scored in float32 straight from
+ * the mapped gallery.pfg, which stays in the page cache instead of the Java
+ * heap. Results are the same as the exact scan: every row is within maxError
+ * of its code, so once the last candidate's approximate distance minus
+ * maxError clears min(k-th best person, maxDistance) no other row can change
+ * the top k. When it does not, every row that still could is re-scored too.
+ * A person with several samples has several rows; results keep each person
+ * once, at their closest sample.
+ *
+ * Rows are read from the mapped file, so an enrolment or delete written to
+ * it lands before replace() catches up; re-rank skips any slot whose
+ * (ID, sample) no longer matches the row's. replace() then encodes just the
+ * changed person, so the float32 gallery never has to sit on the heap.
+ * Searches take a read lock, updates a write lock, as in HnswIndex.
+ */
+public class QuantizedGallery implements FaceSearch {
+
+    public enum Encoding { INT8, FLOAT16 }
+
+    /** Candidates re-scored in float32 per probe. */
+    public static final int RERANK = 16;
+
+    /** An int8 row this many times worse than the fitted ones refits the scale. */
+    private static final float REFIT_ERROR = 2f;
+
+    private final Encoding    encoding;
+    private final Path        path;
+    private final int         dim;
+    private final Int8Kernel  int8;
+    private final FaceMatcher kernel;
+    private final float[]     base;
+    private final float[]     scale;
+    private final float[]     negScale;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private GalleryFile exact;
+    private int         size;
+    private int[]       types;
+    private int[]       ids;
+    private int[]       samples;
+    private byte[]      codes8;      // INT8: row-major, signed, decode = base + scale * code
+    private short[]     codes16;     // FLOAT16: row-major half-precision bits
+    private double      fitted;      // worst row error when the scale was fitted
+    private float       maxError;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    private QuantizedGallery(Encoding encoding, Path path, GalleryFile exact, FaceMatcher kernel) {
+        this.encoding = encoding;
+        this.path     = path;
+        this.kernel   = kernel;
+        this.dim      = exact.dim();
+        this.int8     = FaceMatchers.int8();
+        this.base     = new float[dim];
+        this.scale    = new float[dim];
+        this.negScale = new float[dim];
+        this.scratch  = ThreadLocal.withInitial(() -> new Scratch(dim));
+        build(exact);
+    }
+
+    /** Maps gallery.pfg and builds the compressed rows from it. */
+    public static QuantizedGallery map(Path packed, Encoding encoding, FaceMatcher kernel) throws IOException {
+        return new QuantizedGallery(encoding, packed, mapChecked(packed), kernel);
+    }
+
+    private static GalleryFile mapChecked(Path packed) throws IOException {
+        GalleryFile file = GalleryFile.map(packed);
+        if (file.dim() != FaceGallery.DIM) throw new IOException(packed + ": dim " + file.dim());
+        return file;
+    }
+
+    /** Encodes every row of the file, fitting the int8 scale to it first. */
+    private void build(GalleryFile file) {
+        exact   = file;
+        size    = file.count();
+        types   = new int[size];
+        ids     = new int[size];
+        samples = new int[size];
+        for (int i = 0; i < size; i++) {
+            types[i]   = file.type(i);
+            ids[i]     = file.personId(i);
+            samples[i] = file.sample(i);
+        }
+
+        if (encoding == Encoding.INT8) {
+            codes8 = new byte[size * dim];
+            fitScale(file);
+        } else {
+            codes16 = new short[size * dim];
+        }
+
+        // Encode every row and record the worst reconstruction error
+        double worst = 0;
+        float[] row = new float[dim];
+        for (int i = 0; i < size; i++) {
+            file.copyRow(i, row, 0);
+            worst = Math.max(worst, encode(i, row));
+        }
+        fitted   = worst;
+        maxError = bound(worst);
+    }
+
+    /** Writes row i's codes; returns its reconstruction error. */
+    private double encode(int i, float[] row) {
+        double err = 0;
+        for (int k = 0; k < dim; k++) {
+            float decoded;
+            if (encoding == Encoding.INT8) {
+                int code = scale[k] == 0f ? 0 : Math.round((row[k] - base[k]) / scale[k]);
+                code = Math.max(-128, Math.min(127, code));
+                codes8[i * dim + k] = (byte) code;
+                decoded = base[k] + scale[k] * code;
+            } else {
+                short half = Half.fromFloat(row[k]);
+                codes16[i * dim + k] = half;
+                decoded = Half.toFloat(half);
+            }
+            double d = (double) row[k] - decoded;
+            err += d * d;
+        }
+        return Math.sqrt(err);
+    }
+
+    /** Headroom for float rounding in the approximate distance itself. */
+    private static float bound(double worst) {
+        return (float) (worst * 1.001 + 1e-4);
+    }
+
+    /** Per-dimension min/max → 256 levels centred on code 0. */
+    private void fitScale(GalleryFile file) {
+        float[] min = new float[dim];
+        float[] max = new float[dim];
+        float[] row = new float[dim];
+        Arrays.fill(min, Float.MAX_VALUE);
+        Arrays.fill(max, -Float.MAX_VALUE);
+        for (int i = 0; i < size; i++) {
+            file.copyRow(i, row, 0);
+            for (int k = 0; k < dim; k++) {
+                float v = row[k];
+                if (v < min[k]) min[k] = v;
+                if (v > max[k]) max[k] = v;
+            }
+        }
+        for (int k = 0; k < dim; k++) {
+            if (size == 0) break;
+            scale[k]    = (max[k] - min[k]) / 255f;
+            base[k]     = min[k] + 128f * scale[k];
+            negScale[k] = -scale[k];
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  UPDATE — one person, after packEncoding() / removeEncoding()
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Replaces every row of (label, personId) with the person's samples, or
+     * drops them when the person is empty. Rows move exactly as
+     * GalleryFile.remove() and upsert() move the file's slots, so row i is
+     * still slot i of the freshly mapped file and re-rank keeps reading
+     * float32 from it. Everything is rebuilt from the file only when it does
+     * not line up (someone else changed it too) or the new int8 rows fall
+     * well outside the fitted scale.
+     */
+    public void replace(String label, int personId, FaceGallery person) throws IOException {
+        int type = GalleryFile.typeOf(label);
+        lock.writeLock().lock();
+        try {
+            int slot;
+            while ((slot = indexOf(type, personId, GalleryFile.ANY_SAMPLE)) >= 0) {
+                int last = size - 1;
+                if (slot != last) moveRow(last, slot);
+                size = last;
+            }
+
+            double worst = 0;
+            float[] row  = new float[dim];
+            for (int p = 0; p < person.persons(); p++) {
+                for (int r = person.firstRow(p); r < person.endRow(p); r++) {
+                    int i = indexOf(type, personId, person.sample(r));
+                    if (i < 0) {
+                        ensureCapacity(size + 1);
+                        i = size++;
+                    }
+                    types[i]   = type;
+                    ids[i]     = personId;
+                    samples[i] = person.sample(r);
+                    person.copyRow(r, row);
+                    worst = Math.max(worst, encode(i, row));
+                }
+            }
+
+            GalleryFile file = mapChecked(path);
+            if (!inStep(file)) {
+                System.out.println("Quantized gallery out of step with " + path + ", re-encoding "
+                        + file.count() + " rows");
+                build(file);
+            } else if (encoding == Encoding.INT8 && worst > REFIT_ERROR * fitted) {
+                build(file);
+            } else {
+                exact    = file;
+                maxError = Math.max(maxError, bound(worst));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int indexOf(int type, int personId, int sample) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == personId && types[i] == type
+                    && (sample == GalleryFile.ANY_SAMPLE || samples[i] == sample))
+                return i;
+        }
+        return -1;
+    }
+
+    private void moveRow(int from, int to) {
+        types[to]   = types[from];
+        ids[to]     = ids[from];
+        samples[to] = samples[from];
+        if (encoding == Encoding.INT8) System.arraycopy(codes8, from * dim, codes8, to * dim, dim);
+        else                           System.arraycopy(codes16, from * dim, codes16, to * dim, dim);
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= types.length) return;
+        int cap = Math.max(rows, Math.max(16, types.length + (types.length >> 1)));
+        types   = Arrays.copyOf(types, cap);
+        ids     = Arrays.copyOf(ids, cap);
+        samples = Arrays.copyOf(samples, cap);
+        if (encoding == Encoding.INT8) codes8  = Arrays.copyOf(codes8, cap * dim);
+        else                           codes16 = Arrays.copyOf(codes16, cap * dim);
+    }
+
+    /** Same rows as the file, slot for slot. */
+    private boolean inStep(GalleryFile file) {
+        if (file.count() != size) return false;
+        for (int i = 0; i < size; i++) {
+            if (file.personId(i) != ids[i] || file.type(i) != types[i] || file.sample(i) != samples[i])
+                return false;
+        }
+        return true;
+    }
+
+    public Encoding encoding() { return encoding; }
+
+    public int size() {
+        lock.readLock().lock();
+        try { return size; } finally { lock.readLock().unlock(); }
+    }
+
+    public float maxError() {
+        lock.readLock().lock();
+        try { return maxError; } finally { lock.readLock().unlock(); }
+    }
+
+    public String kernelName() { return encoding == Encoding.INT8 ? int8.name() : "scalar-fp16"; }
+
+    /** Heap held by the compressed rows and IDs (the float32 rows stay mapped). */
+    public long heapBytes() {
+        lock.readLock().lock();
+        try {
+            long rows  = types.length;
+            long codes = encoding == Encoding.INT8 ? rows * dim : rows * dim * 2;
+            return codes + rows * 12 + dim * 12L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  MATCH
+    // ══════════════════════════════════════════════════════════════════════
+    @Override
+    public FaceMatch[] nearest(float[] probe, float maxDistance, int k) {
+        lock.readLock().lock();
+        try {
+            return search(probe, maxDistance, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private FaceMatch[] search(float[] probe, float maxDistance, int k) {
+        if (size == 0) return new FaceMatch[0];
+        Scratch s = scratch.get();
+        NodeHeap cand  = s.candidates;
+        int      limit = Math.max(RERANK, k);
+        cand.clear();
+
+        // ── Pass 1: approximate distances, keep the closest candidates ──
+        float[] a = s.shifted;
+        if (encoding == Encoding.INT8) {
+            for (int j = 0; j < dim; j++) a[j] = probe[j] - base[j];
+        }
+        for (int i = 0; i < size; i++) {
+            float cutoff = cand.size() < limit ? Float.MAX_VALUE : cand.topDist();
+            float d = approx(a, probe, i, cutoff);
+            if (d < cutoff) {
+                cand.push(i, d);
+                if (cand.size() > limit) cand.pop();
+            }
+        }
+        boolean all = cand.size() < limit;          // every row is a candidate
+        float   kth = cand.topDist();
+
+        // ── Pass 2: exact float32 re-rank ──
+        s.hits = 0;
+        int[] reranked = s.reranked(limit);
+        int   count    = 0;
+        while (!cand.isEmpty()) {
+            int i = cand.pop();
+            reranked[count++] = i;
+            float d = exactDistance(probe, i, s);
+            if (d != Float.MAX_VALUE) s.hit(i, d);
+        }
+
+        // ── Pass 3 (rare): rows the error bound cannot rule out ──
+        int[]   rows   = new int[k];
+        float[] dist   = new float[k];
+        int     people = distinct(s, k, rows, dist);
+        float reach  = people == k ? (float) Math.sqrt(dist[k - 1]) : Float.MAX_VALUE;
+        float bound  = Math.min(reach, maxDistance) + maxError;
+        float bound2 = bound * bound;
+        if (!all && kth <= bound2) {
+            for (int i = 0; i < size; i++) {
+                float d = approx(a, probe, i, Float.MAX_VALUE);
+                if (d < kth || d > bound2) continue;     // below kth were already re-ranked
+                if (d == kth && contains(reranked, count, i)) continue;
+                float e = exactDistance(probe, i, s);
+                if (e != Float.MAX_VALUE) s.hit(i, e);
+            }
+            people = distinct(s, k, rows, dist);
+        }
+
+        float max2 = maxDistance * maxDistance;
+        int within = 0;
+        while (within < people && dist[within] <= max2) within++;
+        FaceMatch[] out = new FaceMatch[within];
+        for (int i = 0; i < within; i++) {
+            out[i] = new FaceMatch(GalleryFile.labelOf(types[rows[i]]), ids[rows[i]], (float) Math.sqrt(dist[i]));
+        }
+        return out;
+    }
+
+    private static boolean contains(int[] rows, int count, int row) {
+        for (int i = 0; i < count; i++) if (rows[i] == row) return true;
+        return false;
+    }
+
+    /**
+     * Closest sample of up to k distinct people from the sorted hits, into
+     * rows/dist nearest-first; returns how many people were found.
+     */
+    private int distinct(Scratch s, int k, int[] rows, float[] dist) {
+        int n = 0;
+        for (int i = 0; i < s.hits && n < k; i++) {
+            int r = s.hitRows[i];
+            boolean dup = false;
+            for (int j = 0; j < n && !dup; j++) dup = ids[rows[j]] == ids[r] && types[rows[j]] == types[r];
+            if (dup) continue;
+            rows[n] = r;
+            dist[n] = s.hitDist[i];
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Squared distance to the decoded row; stops early once it passes
+     * cutoff, since such a row cannot enter the candidate heap.
+     */
+    private float approx(float[] shifted, float[] probe, int row, float cutoff) {
+        int off = row * dim;
+        if (encoding == Encoding.INT8) return int8.distance(shifted, negScale, codes8, off, dim, cutoff);
+
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        for (int k = 0; k < dim; k += 4) {
+            float d0 = probe[k]     - Half.toFloat(codes16[off + k]);
+            float d1 = probe[k + 1] - Half.toFloat(codes16[off + k + 1]);
+            float d2 = probe[k + 2] - Half.toFloat(codes16[off + k + 2]);
+            float d3 = probe[k + 3] - Half.toFloat(codes16[off + k + 3]);
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+            if ((k & 31) == 28 && (s0 + s1) + (s2 + s3) > cutoff) return Float.MAX_VALUE;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /** float32 distance from the mapped row, with the exact scan's kernel. */
+    private float exactDistance(float[] probe, int row, Scratch s) {
+        if (exact.type(row) != types[row] || exact.personId(row) != ids[row]
+                || exact.sample(row) != samples[row]) return Float.MAX_VALUE;
+        exact.copyRow(row, s.row, 0);
+        return kernel.squaredDistance(probe, s.row, 0);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  INT8 KERNELS
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Squared distance between shifted (probe - base) and one row of codes,
+     * i.e. sum((shifted[k] + negScale[k] * code[k])^2). May return
+     * Float.MAX_VALUE once the partial sum exceeds cutoff.
+     */
+    interface Int8Kernel {
+        float distance(float[] shifted, float[] negScale, byte[] codes, int off, int dim, float cutoff);
+
+        String name();
+    }
+
+    /** Plain Java version, four accumulators, early-out every 32 dims. */
+    static final class ScalarInt8Kernel implements Int8Kernel {
+        @Override
+        public float distance(float[] shifted, float[] negScale, byte[] codes, int off, int dim, float cutoff) {
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            for (int k = 0; k < dim; k += 4) {
+                float d0 = shifted[k]     + negScale[k]     * codes[off + k];
+                float d1 = shifted[k + 1] + negScale[k + 1] * codes[off + k + 1];
+                float d2 = shifted[k + 2] + negScale[k + 2] * codes[off + k + 2];
+                float d3 = shifted[k + 3] + negScale[k + 3] * codes[off + k + 3];
+                s0 += d0 * d0;
+                s1 += d1 * d1;
+                s2 += d2 * d2;
+                s3 += d3 * d3;
+                if ((k & 31) == 28 && (s0 + s1) + (s2 + s3) > cutoff) return Float.MAX_VALUE;
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public String name() { return "scalar-int8"; }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  PER-THREAD STATE
+    // ══════════════════════════════════════════════════════════════════════
+    private final class Scratch {
+        final NodeHeap    candidates = new NodeHeap(RERANK + 1, true);
+        final float[]     shifted;
+        final float[]     row;
+        int[]             reranked   = new int[RERANK];
+        int[]             hitRows    = new int[RERANK];
+        float[]           hitDist    = new float[RERANK];
+        int               hits;
+
+        Scratch(int dim) {
+            shifted = new float[dim];
+            row     = new float[dim];
+        }
+
+        /** Records an exact (row, distance), keeping hits sorted by (distance, row). */
+        void hit(int row, float d) {
+            if (hits == hitRows.length) {
+                hitRows = Arrays.copyOf(hitRows, hits * 2);
+                hitDist = Arrays.copyOf(hitDist, hits * 2);
+            }
+            int j = hits++;
+            while (j > 0 && (hitDist[j - 1] > d || (hitDist[j - 1] == d && hitRows[j - 1] > row))) {
+                hitRows[j] = hitRows[j - 1];
+                hitDist[j] = hitDist[j - 1];
+                j--;
+            }
+            hitRows[j] = row;
+            hitDist[j] = d;
+        }
+
+        int[] reranked(int n) {
+            if (reranked.length < n) reranked = new int[n];
+            return reranked;
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  IEEE 754 HALF PRECISION (Float.float16ToFloat is JDK 20+)
+    // ══════════════════════════════════════════════════════════════════════
+    static final class Half {
+        private static final float[] TO_FLOAT = new float[1 << 16];
+
+        static {
+            for (int h = 0; h < TO_FLOAT.length; h++) TO_FLOAT[h] = decode((short) h);
+        }
+
+        private Half() {
+            // Prevent object creation
+        }
+
+        static float toFloat(short h) { return TO_FLOAT[h & 0xffff]; }
+
+        private static float decode(short half) {
+            int h    = half & 0xffff;
+            int sign = (h >>> 15) << 31;
+            int exp  = (h >>> 10) & 0x1f;
+            int mant = h & 0x3ff;
+            if (exp == 0x1f) return Float.intBitsToFloat(sign | 0x7f800000 | (mant << 13));
+            if (exp == 0) {
+                float v = mant * 0x1p-24f;                 // subnormal
+                return sign != 0 ? -v : v;
+            }
+            return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mant << 13));
+        }
+
+        /** Round-to-nearest-even conversion. */
+        static short fromFloat(float f) {
+            int bits = Float.floatToRawIntBits(f);
+            int sign = (bits >>> 16) & 0x8000;
+            int abs  = bits & 0x7fffffff;
+            if (abs >= 0x7f800000) return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 : 0));
+            if (abs >= 0x477ff000) return (short) (sign | 0x7c00);   // overflows to infinity
+            if (abs < 0x38800000) {                                   // subnormal or zero
+                int v = Math.round(Float.intBitsToFloat(abs) * 0x1p24f);
+                return (short) (sign | v);
+            }
+            int rounded = abs + 0x0fff + ((abs >>> 13) & 1);
+            return (short) (sign | ((rounded - (112 << 23)) >>> 13));
+        }
+    }
+}
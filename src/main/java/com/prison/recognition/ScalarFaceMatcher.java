@@ -0,0 +1,34 @@
+package com.prison.recognition;
+
+/**
+ * Plain Java kernel; four independent accumulators let the JIT pipeline the
+ * loop even when it does not auto-vectorise it. Always available.
+ */
+public class ScalarFaceMatcher implements FaceMatcher {
+
+    @Override
+    public float squaredDistance(float[] probe, float[] rows, int row) {
+        int dim  = probe.length;
+        int base = row * dim;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int k = 0;
+        for (; k + 3 < dim; k += 4) {
+            float d0 = rows[base + k]     - probe[k];
+            float d1 = rows[base + k + 1] - probe[k + 1];
+            float d2 = rows[base + k + 2] - probe[k + 2];
+            float d3 = rows[base + k + 3] - probe[k + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; k < dim; k++) {
+            float d = rows[base + k] - probe[k];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public String name() { return "scalar"; }
+}
@@ -0,0 +1,129 @@
+package com.prison.recognition;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Locale;
+
+/**
+ * Java side of one SCAN: matches every FRAME the worker sends against the
+ * gallery (exact scan or HNSW index) and applies the confirmation policy that
+ * used to live in recognize_face.py — an identity is only accepted once the
+ * primary face matched the same person in confirmFrames consecutive frames.
+ *
+ * The primary face is searched for its two closest people in the same pass,
+ * so the result can also report the closest rival and the margin to it.
+ */
+public class ScanSession {
+
+    private final FaceSearch  search;
+    private final float       tolerance;
+    private final float       rivalReach;
+    private final int         confirmFrames;
+
+    private final Deque<FaceMatch> recent = new LinkedList<>();   // null = no match that frame
+    private final Deque<FaceMatch> rivals = new LinkedList<>();   // runner-up of the same frame
+    private FaceMatch confirmed;
+    private FaceMatch rival;
+    private float     margin;
+
+    /**
+     * Runner-ups are only looked for up to tolerance + ambiguityMargin;
+     * anything farther cannot be a near-tie.
+     */
+    public ScanSession(FaceSearch search, float tolerance, float ambiguityMargin, int confirmFrames) {
+        this.search        = search;
+        this.tolerance     = tolerance;
+        this.rivalReach    = tolerance + ambiguityMargin;
+        this.confirmFrames = confirmFrames;
+    }
+
+    /** "FRAME|n|v,v,...;v,v,..." → "MATCH|LABEL|ID|LABEL:ID;LABEL:ID" */
+    public String onFrame(String frameLine) {
+        String[] parts = frameLine.split("\\|", 3);
+        int faces = Integer.parseInt(parts[1]);
+        String[] probes = faces > 0 ? parts[2].split(";") : new String[0];
+
+        StringBuilder boxes = new StringBuilder();
+        FaceMatch primary = null;
+        FaceMatch runnerUp = null;
+
+        for (int f = 0; f < probes.length; f++) {
+            FaceMatch m;
+            if (f == 0) {
+                FaceMatch[] top = search.nearest(parseProbe(probes[f]), rivalReach, 2);
+                m = top.length > 0 && top[0].getDistance() <= tolerance ? top[0] : null;
+                if (m != null && top.length > 1 && !m.samePerson(top[1])) runnerUp = top[1];
+                primary = m;
+            } else {
+                m = search.nearest(parseProbe(probes[f]), tolerance);
+                boxes.append(';');
+            }
+            boxes.append(m != null ? m.toString() : "UNKNOWN:0");
+        }
+
+        push(primary, runnerUp);
+
+        return "MATCH|" + (confirmed != null
+                ? confirmed.getLabel() + "|" + confirmed.getPersonId()
+                : "UNKNOWN|0") + "|" + boxes;
+    }
+
+    /**
+     * Final answer once the scan ends: "OK|LABEL|ID|DISTANCE", followed by
+     * "|RIVAL_LABEL:RIVAL_ID|MARGIN" when another person came within reach.
+     * MARGIN is the smallest rival distance minus match distance seen over the
+     * confirming frames. Readers of the classic "OK|LABEL|ID" ignore the rest.
+     */
+    public String result(String workerReply) {
+        if (workerReply == null || !workerReply.startsWith("OK|")) return workerReply;
+        if (!workerReply.endsWith("|SPACE") || confirmed == null) return "OK|UNKNOWN|0";
+        String out = "OK|" + confirmed.getLabel() + "|" + confirmed.getPersonId()
+                + "|" + String.format(Locale.ROOT, "%.4f", confirmed.getDistance());
+        if (rival != null) out += "|" + rival + "|" + String.format(Locale.ROOT, "%.4f", margin);
+        return out;
+    }
+
+    private void push(FaceMatch primary, FaceMatch runnerUp) {
+        recent.addLast(primary);
+        rivals.addLast(runnerUp);
+        if (recent.size() > confirmFrames) {
+            recent.removeFirst();
+            rivals.removeFirst();
+        }
+        if (recent.size() < confirmFrames) return;
+
+        FaceMatch first = recent.peekFirst();
+        confirmed = null;
+        rival     = null;
+        if (first == null) return;
+        for (FaceMatch m : recent) {
+            if (!first.samePerson(m)) return;
+        }
+        confirmed = recent.peekLast();
+
+        // Tightest margin across the window decides how sure we are
+        Iterator<FaceMatch> r = rivals.iterator();
+        for (FaceMatch m : recent) {
+            FaceMatch other = r.next();
+            if (other == null) continue;
+            float gap = other.getDistance() - m.getDistance();
+            if (rival == null || gap < margin) {
+                rival  = other;
+                margin = gap;
+            }
+        }
+    }
+
+    private static float[] parseProbe(String csv) {
+        float[] probe = new float[FaceGallery.DIM];
+        int start = 0;
+        for (int k = 0; k < FaceGallery.DIM; k++) {
+            int end = csv.indexOf(',', start);
+            if (end < 0) end = csv.length();
+            probe[k] = Float.parseFloat(csv.substring(start, end));
+            start = end + 1;
+        }
+        return probe;
+    }
+}
@@ -0,0 +1,98 @@
+package com.prison.recognition;
+
+/**
+ * The k closest rows seen so far: a bounded max-heap on two primitive
+ * arrays, so collecting candidates allocates nothing per row. Ordered by
+ * (squaredDistance, index), ties going to the lower index like the
+ * best-only scan.
+ *
+ * offer() is a single compare against worst() for every row that does not
+ * make the cut, which is almost all of them once the heap has filled.
+ */
+public final class TopK {
+
+    private final int     k;
+    private final int[]   index;
+    private final float[] dist;
+    private int           size;
+
+    public TopK(int k) {
+        this.k     = Math.max(1, k);
+        this.index = new int[this.k];
+        this.dist  = new float[this.k];
+    }
+
+    public int     capacity() { return k; }
+    public int     size()     { return size; }
+    public boolean isFull()   { return size == k; }
+    public void    clear()    { size = 0; }
+
+    /** Squared distance a row must beat to get in (MAX_VALUE until full). */
+    public float   worst()    { return size < k ? Float.MAX_VALUE : dist[0]; }
+
+    public void offer(int row, float d) {
+        if (size < k) {
+            siftUp(size++, row, d);
+        } else if (before(d, row, dist[0], index[0])) {
+            siftDown(row, d);
+        }
+    }
+
+    /** Folds another collector's rows in (ParallelFaceMatcher block merge). */
+    public void addAll(TopK other) {
+        for (int i = 0; i < other.size; i++) offer(other.index[i], other.dist[i]);
+    }
+
+    /**
+     * Empties the heap into the arrays nearest-first and returns the count.
+     * Arrays must hold at least size() entries.
+     */
+    public int drainSorted(int[] rows, float[] distances) {
+        int n = size;
+        for (int i = n - 1; i >= 0; i--) {
+            rows[i]      = index[0];
+            distances[i] = dist[0];
+            size--;
+            if (size > 0) siftDown(index[size], dist[size]);
+        }
+        return n;
+    }
+
+    // (d, row) sorts after (od, orow): max-heap order
+    private static boolean after(float d, int row, float od, int orow) {
+        return d > od || (d == od && row > orow);
+    }
+
+    private static boolean before(float d, int row, float od, int orow) {
+        return d < od || (d == od && row < orow);
+    }
+
+    private void siftUp(int i, int row, float d) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!after(d, row, dist[parent], index[parent])) break;
+            index[i] = index[parent];
+            dist[i]  = dist[parent];
+            i = parent;
+        }
+        index[i] = row;
+        dist[i]  = d;
+    }
+
+    /** Replaces the root with (row, d) and restores heap order. */
+    private void siftDown(int row, float d) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && after(dist[right], index[right], dist[child], index[child])) child = right;
+            if (!after(dist[child], index[child], d, row)) break;
+            index[i] = index[child];
+            dist[i]  = dist[child];
+            i = child;
+        }
+        index[i] = row;
+        dist[i]  = d;
+    }
+}
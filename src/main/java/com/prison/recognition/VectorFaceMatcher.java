@@ -0,0 +1,97 @@
+package com.prison.recognition;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel on the JDK Vector API (jdk.incubator.vector). Uses the widest
+ * float species the CPU offers (8 lanes on AVX2, 16 on AVX-512), so one
+ * 128-d row is 16 or 8 fused multiply-adds plus a single lane reduction.
+ *
+ * Only loaded through FaceMatchers.best(), which falls back to the scalar
+ * kernel when the JVM was started without --add-modules jdk.incubator.vector.
+ */
+public class VectorFaceMatcher implements FaceMatcher {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public float squaredDistance(float[] probe, float[] rows, int row) {
+        int dim   = probe.length;
+        int base  = row * dim;
+        int bound = SPECIES.loopBound(dim);
+
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int k = 0;
+        for (; k < bound; k += SPECIES.length()) {
+            FloatVector d = FloatVector.fromArray(SPECIES, rows, base + k)
+                    .sub(FloatVector.fromArray(SPECIES, probe, k));
+            acc = d.fma(d, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; k < dim; k++) {
+            float d = rows[base + k] - probe[k];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    @Override
+    public Nearest nearest(float[] probe, float[] rows, int from, int to) {
+        int dim   = probe.length;
+        int bound = SPECIES.loopBound(dim);
+
+        // Probe stays in registers for the whole scan when it fits (128-d on AVX-512 / AVX2)
+        int   best     = -1;
+        float bestDist = Float.MAX_VALUE;
+        for (int i = from, base = from * dim; i < to; i++, base += dim) {
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int k = 0;
+            for (; k < bound; k += SPECIES.length()) {
+                FloatVector d = FloatVector.fromArray(SPECIES, rows, base + k)
+                        .sub(FloatVector.fromArray(SPECIES, probe, k));
+                acc = d.fma(d, acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; k < dim; k++) {
+                float d = rows[base + k] - probe[k];
+                sum += d * d;
+            }
+            if (sum < bestDist) {
+                bestDist = sum;
+                best     = i;
+            }
+        }
+        return best < 0 ? Nearest.NONE : new Nearest(best, bestDist);
+    }
+
+    @Override
+    public void topK(float[] probe, float[] rows, int from, int to, TopK out) {
+        int dim   = probe.length;
+        int bound = SPECIES.loopBound(dim);
+
+        float worst = out.worst();
+        for (int i = from, base = from * dim; i < to; i++, base += dim) {
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int k = 0;
+            for (; k < bound; k += SPECIES.length()) {
+                FloatVector d = FloatVector.fromArray(SPECIES, rows, base + k)
+                        .sub(FloatVector.fromArray(SPECIES, probe, k));
+                acc = d.fma(d, acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; k < dim; k++) {
+                float d = rows[base + k] - probe[k];
+                sum += d * d;
+            }
+            if (sum <= worst) {
+                out.offer(i, sum);
+                worst = out.worst();
+            }
+        }
+    }
+
+    @Override
+    public String name() { return "vector-" + SPECIES.length() + "x" + Float.SIZE; }
+}
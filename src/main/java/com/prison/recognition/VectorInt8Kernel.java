@@ -0,0 +1,46 @@
+package com.prison.recognition;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD int8 distance for QuantizedGallery: loads one lane-width of codes,
+ * widens them to floats (B2F) and does the scale/offset and square-accumulate
+ * as two fused multiply-adds. Needs a 256-bit or wider float species so the
+ * matching byte species is at least 64 bits.
+ *
+ * Ignores cutoff: a mid-row reduceLanes() to test it cost more than the
+ * rest of the row, roughly halving throughput.
+ *
+ * Only loaded through FaceMatchers.int8(), like VectorFaceMatcher.
+ */
+class VectorInt8Kernel implements QuantizedGallery.Int8Kernel {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte>  BYTES  =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.vectorBitSize() / 4));
+
+    VectorInt8Kernel() {
+        if (FLOATS.vectorBitSize() < 256) throw new UnsupportedOperationException(FLOATS + " too narrow");
+    }
+
+    @Override
+    public float distance(float[] shifted, float[] negScale, byte[] codes, int off, int dim, float cutoff) {
+        int lanes = FLOATS.length();
+        FloatVector acc = FloatVector.zero(FLOATS);
+        for (int k = 0; k < dim; k += lanes) {
+            FloatVector c = (FloatVector) ByteVector.fromArray(BYTES, codes, off + k)
+                    .convertShape(VectorOperators.B2F, FLOATS, 0);
+            FloatVector d = c.fma(FloatVector.fromArray(FLOATS, negScale, k),
+                                  FloatVector.fromArray(FLOATS, shifted, k));
+            acc = d.fma(d, acc);
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public String name() { return "vector-int8-" + FLOATS.length() + "x"; }
+}
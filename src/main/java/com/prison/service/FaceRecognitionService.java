@@ -1,10 +1,297 @@
 package com.prison.service;
 
+import com.prison.dao.FaceEncodingDao;
+import com.prison.recognition.FaceGallery;
+import com.prison.recognition.FaceMatcher;
+import com.prison.recognition.FaceMatchers;
+import com.prison.recognition.FaceSearch;
+import com.prison.recognition.HnswIndex;
+import com.prison.recognition.LiveGallery;
+import com.prison.recognition.ParallelFaceMatcher;
+import com.prison.recognition.QuantizedGallery;
+import com.prison.recognition.ScanSession;
+import com.prison.util.EncodingWatcher;
 import com.prison.util.PythonRunnerUtil;
+import com.prison.util.RecognitionWorker;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FaceRecognitionService {
 
+    // ── Recognition tuning (owned by Java; Python only sends encodings) ──
+    public static final float TOLERANCE        = 0.45f;
+    public static final int   CONFIRM_FRAMES   = 5;
+    // A rival this close to the match marks it ambiguous (look-alike inmates)
+    public static final float AMBIGUITY_MARGIN = 0.05f;
+
+    // ── Galleries at least this large are searched through the HNSW index ──
+    public static final int HNSW_THRESHOLD = Integer.getInteger("prison.hnsw.threshold", 20_000);
+    public static final int HNSW_EF_SEARCH = Integer.getInteger("prison.hnsw.efSearch", HnswIndex.DEFAULT_EF_SEARCH);
+
+    // ── -Dprison.gallery.quantize=int8|fp16 scans compressed rows, re-ranks in float32 ──
+    // At every size: it stands in for both the float32 gallery and the HNSW index
+    private static final QuantizedGallery.Encoding QUANTIZE = quantizeMode();
+
+    // One warm Python worker shared by every gate screen
+    private static final RecognitionWorker WORKER = new RecognitionWorker();
+
+    // SIMD distance kernel when the Vector API is available, scalar otherwise;
+    // large galleries are split across cores, small ones stay single-threaded
+    private static final FaceMatcher KERNEL  = FaceMatchers.best();
+    private static final FaceMatcher MATCHER = new ParallelFaceMatcher(KERNEL);
+
+    // Index saves are coalesced on one background thread
+    private static final ExecutorService INDEX_WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "hnsw-save");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final AtomicBoolean SAVE_PENDING = new AtomicBoolean();
+
+    // Gallery updates requested from screens run here, off the FX thread, one at a time
+    private static final ExecutorService UPDATER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "gallery-update");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final FaceEncodingDao ENCODINGS = new FaceEncodingDao();
+
+    // Applies enrolments made outside this screen (or this process) as they land
+    private static final EncodingWatcher WATCHER = new EncodingWatcher(PythonRunnerUtil.ENCODINGS_DIR,
+            new EncodingWatcher.Listener() {
+                @Override
+                public void samplesChanged(String personType, int personId) {
+                    encodingsChanged(personType, personId);
+                }
+
+                @Override
+                public void rescan() {
+                    reload();
+                }
+            });
+
+    private static volatile LiveGallery      gallery;
+    private static volatile HnswIndex        index;
+    private static volatile QuantizedGallery quantized;
+    private static volatile FaceSearch       search;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(WORKER::stop));
+    }
+
+    /**
+     * Starts the worker and loads the gallery in the background so both are
+     * ready by the time the first scan is requested, then starts watching
+     * the encodings folders.
+     */
+    public static void warmUp() {
+        Thread t = new Thread(() -> {
+            try {
+                search();
+                WATCHER.start();
+                WORKER.start();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, "recognition-warmup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public static void shutdown() {
+        WATCHER.stop();
+        WORKER.stop();
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  ENROL / DELETE
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Applies the person's current sample files: after train_faces.py adds
+     * one (and maybe drops the oldest), or whenever the watcher sees their
+     * files change. Only the segment (or quantized rows) holding them is
+     * touched; a gallery not loaded yet simply reads the new files later.
+     */
+    public static synchronized void encodingsChanged(String personType, int personId) {
+        List<File> files = PythonRunnerUtil.sampleFiles(personType, personId);
+        PythonRunnerUtil.packEncoding(personType, personId);
+        apply(personType, personId, FaceGallery.person(personType, files));
+        ENCODINGS.replaceSamples(personType, personId, files);
+    }
+
+    /**
+     * Drops a deleted prisoner's or guard's encodings: their .npy files,
+     * packed rows and encoding records, and their gallery and index entries
+     * if the gallery is loaded (otherwise it loads without them).
+     */
+    public static synchronized void personRemoved(String personType, int personId) {
+        PythonRunnerUtil.removeEncoding(personType, personId);
+        apply(personType, personId, FaceGallery.empty());
+        ENCODINGS.deleteByPerson(personType, personId);
+    }
+
+    /** personRemoved() in the background, for screens that just deleted the row. */
+    public static void personRemovedLater(String personType, int personId) {
+        UPDATER.execute(() -> {
+            try {
+                personRemoved(personType, personId);
+            } catch (Exception e) {
+                System.err.println("Could not remove encodings of " + personType + " " + personId);
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private static void apply(String personType, int personId, FaceGallery person) {
+        QuantizedGallery q = quantized;
+        if (q != null) {
+            try {
+                q.replace(personType, personId, person);
+            } catch (Exception e) {
+                e.printStackTrace();
+                reload();
+            }
+            return;
+        }
+        LiveGallery g = gallery;
+        if (g == null) return;
+        g.replace(personType, personId, person);
+        HnswIndex idx = index;
+        if (idx != null) {
+            if (person.persons() > 0) idx.upsert(personType, personId, person.samplesOf(0));
+            else                      idx.remove(personType, personId);
+            scheduleSave();
+        }
+        publish(g);
+    }
+
+    /** Full reload, when the watcher may have missed changes. */
+    private static synchronized void reload() {
+        gallery   = null;
+        index     = null;
+        quantized = null;
+        search    = null;
+        search();
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  SEARCH SELECTION
+    // ══════════════════════════════════════════════════════════════════════
+    private static FaceSearch search() {
+        FaceSearch s = search;
+        if (s == null) {
+            synchronized (FaceRecognitionService.class) {
+                if (search == null && QUANTIZE != null) search = quantized = quantized();
+                if (search == null) publish(gallery());
+                s = search;
+            }
+        }
+        return s;
+    }
+
+    private static synchronized LiveGallery gallery() {
+        if (gallery == null) {
+            gallery = new LiveGallery(
+                    FaceGallery.open(PythonRunnerUtil.GALLERY_FILE, PythonRunnerUtil.ENCODINGS_DIR), MATCHER);
+        }
+        return gallery;
+    }
+
+    private static void publish(LiveGallery g) {
+        if (g.size() >= HNSW_THRESHOLD) {
+            if (index == null) index = openIndex(g);
+            search = index;
+        } else {
+            search = g;
+        }
+    }
+
+    /**
+     * Compressed rows straight from gallery.pfg, written first from the .npy
+     * folders if it is missing or unreadable. Null (exact gallery instead)
+     * if it still cannot be mapped.
+     */
+    private static QuantizedGallery quantized() {
+        try {
+            return QuantizedGallery.map(PythonRunnerUtil.GALLERY_FILE, QUANTIZE, KERNEL);
+        } catch (Exception first) {
+            // Rewrites the packed file; the float32 copy it returns is dropped
+            FaceGallery.open(PythonRunnerUtil.GALLERY_FILE, PythonRunnerUtil.ENCODINGS_DIR);
+        }
+        try {
+            return QuantizedGallery.map(PythonRunnerUtil.GALLERY_FILE, QUANTIZE, KERNEL);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static QuantizedGallery.Encoding quantizeMode() {
+        String mode = System.getProperty("prison.gallery.quantize", "");
+        switch (mode.toLowerCase()) {
+            case "int8": return QuantizedGallery.Encoding.INT8;
+            case "fp16": return QuantizedGallery.Encoding.FLOAT16;
+            default:     return null;
+        }
+    }
+
+    /**
+     * Loads the persisted graph, rebuilding it if it is missing, unreadable
+     * or does not hold exactly the gallery's people and vectors.
+     */
+    private static HnswIndex openIndex(LiveGallery g) {
+        HnswIndex idx = null;
+        if (Files.exists(PythonRunnerUtil.INDEX_FILE)) {
+            try {
+                idx = HnswIndex.load(PythonRunnerUtil.INDEX_FILE, KERNEL);
+                // Same count is not enough: a retake, or a delete plus an enrolment, keeps it
+                if (idx.checksum() != HnswIndex.checksum(g.segments())) {
+                    System.out.println("HNSW index does not match the gallery (" + idx.size() + " vs "
+                            + g.size() + " encodings), rebuilding");
+                    idx = null;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        if (idx == null) {
+            long t0 = System.currentTimeMillis();
+            idx = HnswIndex.build(KERNEL, g.segments());
+            System.out.println("Built HNSW index over " + g.size() + " encodings in "
+                    + (System.currentTimeMillis() - t0) + " ms");
+            final HnswIndex built = idx;
+            INDEX_WRITER.submit(() -> saveIndex(built));
+        }
+        idx.setEfSearch(HNSW_EF_SEARCH);
+        return idx;
+    }
+
+    private static void scheduleSave() {
+        if (!SAVE_PENDING.compareAndSet(false, true)) return;
+        INDEX_WRITER.submit(() -> {
+            SAVE_PENDING.set(false);
+            HnswIndex idx = index;
+            if (idx != null) saveIndex(idx);
+        });
+    }
+
+    private static void saveIndex(HnswIndex idx) {
+        try {
+            idx.save(PythonRunnerUtil.INDEX_FILE);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     public String recognize() {
-        return PythonRunnerUtil.runRecognition();
+        ScanSession session = new ScanSession(search(), TOLERANCE, AMBIGUITY_MARGIN, CONFIRM_FRAMES);
+        return session.result(WORKER.scan(session::onFrame));
     }
 }
@@ -21,6 +21,6 @@ public class GuardService {
     }
 
     public void deleteGuard(int id) {
-        guardDao.delete(id);
+        if (guardDao.delete(id)) FaceRecognitionService.personRemovedLater("GUARD", id);
     }
 }
\ No newline at end of file
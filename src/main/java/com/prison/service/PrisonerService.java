@@ -19,6 +19,6 @@ public class PrisonerService {
     }
 
     public void deletePrisoner(int id) {
-        prisonerDao.delete(id);
+        if (prisonerDao.delete(id)) FaceRecognitionService.personRemovedLater("PRISONER", id);
     }
 }
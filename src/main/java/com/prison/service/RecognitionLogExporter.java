@@ -0,0 +1,265 @@
+package com.prison.service;
+
+import com.prison.dao.RecognitionLogDao;
+import com.prison.model.LogFilter;
+import com.prison.model.RecognitionLog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk export of recognition logs as CSV or NDJSON, for audits that ask for
+ * months of rows.
+ *
+ * Rows come from RecognitionLogDao.forEach() — the filtered log join, read
+ * through a forward-only streaming cursor — and each one is formatted into
+ * a reused StringBuilder, encoded straight into a 256 KB buffer and written
+ * to a FileChannel when the buffer fills, optionally through gzip. Nothing
+ * grows with the row count, so tens of millions of rows export in constant
+ * memory. A failed or cancelled export deletes its file.
+ *
+ * Format and compression follow the file name: .csv or .ndjson (.jsonl),
+ * with .gz appended for gzip. main() runs an export from the command line
+ * and prints rows per second:
+ *
+ *   RecognitionLogExporter out.csv.gz [from yyyy-mm-dd] [to yyyy-mm-dd]
+ */
+public class RecognitionLogExporter {
+
+    private static final int    BUFFER       = 256 * 1024;
+    private static final int    REPORT_EVERY = 10_000;
+    private static final String CSV_HEADER   =
+            "log_id,detected_at,person_type,person_id,person_name,department,extra_info,contact_info,result\r\n";
+
+    public enum Format { CSV, NDJSON }
+
+    /** Called every REPORT_EVERY rows and at the end. */
+    public interface Progress {
+        void rows(long rows, double rowsPerSecond);
+
+        default boolean cancelled() { return false; }
+    }
+
+    public static final class Result {
+        public final long rows;
+        public final long bytes;
+        public final long millis;
+
+        Result(long rows, long bytes, long millis) {
+            this.rows   = rows;
+            this.bytes  = bytes;
+            this.millis = millis;
+        }
+
+        public double rowsPerSecond() {
+            return millis == 0 ? rows : rows * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d rows in %.1f s (%,.0f rows/s, %.1f MB)",
+                    rows, millis / 1000.0, rowsPerSecond(), bytes / 1048576.0);
+        }
+    }
+
+    public static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? Format.NDJSON : Format.CSV;
+    }
+
+    public static boolean gzipOf(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".gz");
+    }
+
+    /** Exports the logs matching filter to file, newest first. */
+    public static Result export(LogFilter filter, Path file, Format format, boolean gzip, Progress progress)
+            throws Exception {
+        long start = System.nanoTime();
+        long rows;
+        try {
+            try (Out out = new Out(file, gzip)) {
+                if (format == Format.CSV) {
+                    out.line.append(CSV_HEADER);
+                    out.flushLine();
+                }
+                new RecognitionLogDao().forEach(filter, log -> {
+                    if (progress.cancelled()) throw new CancellationException();
+                    if (format == Format.CSV) csv(out.line, log);
+                    else                      json(out.line, log);
+                    out.flushLine();
+                    if (++out.rows % REPORT_EVERY == 0) progress.rows(out.rows, rate(out.rows, start));
+                });
+                rows = out.rows;
+            }
+            // Closed (gzip trailer written) before the size is read
+            progress.rows(rows, rate(rows, start));
+            return new Result(rows, Files.size(file), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception | Error e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static double rate(long rows, long start) {
+        double s = (System.nanoTime() - start) / 1e9;
+        return s == 0 ? rows : rows / s;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  OUTPUT
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** One reused line buffer, encoded into a fixed byte buffer in front of the channel. */
+    private static final class Out implements AutoCloseable {
+        final StringBuilder  line    = new StringBuilder(512);
+        final ByteBuffer     buf     = ByteBuffer.allocate(BUFFER);
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        final FileChannel    channel;
+        final OutputStream   gzip;        // null when writing plain
+        long                 rows;
+
+        Out(Path file, boolean gzip) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.gzip    = gzip ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER) : null;
+        }
+
+        /** Encodes the line into the buffer, writing the buffer out whenever it fills. */
+        void flushLine() {
+            CharBuffer chars = CharBuffer.wrap(line);
+            encoder.reset();
+            try {
+                while (true) {
+                    CoderResult r = encoder.encode(chars, buf, true);
+                    if (r.isOverflow()) { drain(); continue; }
+                    if (r.isError()) r.throwException();
+                    break;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            line.setLength(0);
+        }
+
+        void drain() throws IOException {
+            buf.flip();
+            if (gzip != null) gzip.write(buf.array(), 0, buf.limit());
+            else while (buf.hasRemaining()) channel.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                if (gzip != null) gzip.close();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  FORMATS
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** RFC 4180: quoted only when needed, quotes doubled, CRLF line ends. */
+    private static void csv(StringBuilder sb, RecognitionLog log) {
+        sb.append(log.getLogId()).append(',');
+        if (log.getDetectedAt() != null) sb.append(log.getDetectedAt());
+        sb.append(',');
+        csvField(sb, log.getPersonType());  sb.append(',');
+        if (log.getPersonId() != null) sb.append(log.getPersonId().intValue());
+        sb.append(',');
+        csvField(sb, log.getPersonName());  sb.append(',');
+        csvField(sb, log.getDepartment());  sb.append(',');
+        csvField(sb, log.getExtraInfo());   sb.append(',');
+        csvField(sb, log.getContactInfo()); sb.append(',');
+        csvField(sb, log.getResult());
+        sb.append("\r\n");
+    }
+
+    private static void csvField(StringBuilder sb, String v) {
+        if (v == null) return;
+        boolean quote = false;
+        for (int i = 0; i < v.length() && !quote; i++) {
+            char c = v.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) { sb.append(v); return; }
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static void json(StringBuilder sb, RecognitionLog log) {
+        sb.append("{\"logId\":").append(log.getLogId());
+        sb.append(",\"detectedAt\":");
+        if (log.getDetectedAt() != null) sb.append('"').append(log.getDetectedAt()).append('"');
+        else sb.append("null");
+        sb.append(",\"personType\":");  jsonString(sb, log.getPersonType());
+        sb.append(",\"personId\":").append(log.getPersonId() != null ? log.getPersonId().toString() : "null");
+        sb.append(",\"personName\":");  jsonString(sb, log.getPersonName());
+        sb.append(",\"department\":");  jsonString(sb, log.getDepartment());
+        sb.append(",\"extraInfo\":");   jsonString(sb, log.getExtraInfo());
+        sb.append(",\"contactInfo\":"); jsonString(sb, log.getContactInfo());
+        sb.append(",\"result\":");      jsonString(sb, log.getResult());
+        sb.append("}\n");
+    }
+
+    private static void jsonString(StringBuilder sb, String v) {
+        if (v == null) { sb.append("null"); return; }
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n");  break;
+                case '\r': sb.append("\\r");  break;
+                case '\t': sb.append("\\t");  break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  COMMAND LINE
+    // ══════════════════════════════════════════════════════════════════════
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: RecognitionLogExporter <file.csv|.ndjson[.gz]> [from yyyy-mm-dd] [to yyyy-mm-dd]");
+            System.exit(2);
+        }
+        Path      file = Paths.get(args[0]);
+        LocalDate from = args.length > 1 ? LocalDate.parse(args[1]) : null;
+        LocalDate to   = args.length > 2 ? LocalDate.parse(args[2]) : null;
+
+        Result r = export(new LogFilter(null, null, from, to, null), file, formatOf(file), gzipOf(file),
+                (rows, perSecond) -> System.out.printf("%,d rows  %,.0f rows/s%n", rows, perSecond));
+        System.out.println(file + ": " + r);
+    }
+}
@@ -0,0 +1,327 @@
+package com.prison.service;
+
+import com.prison.dao.RecognitionLogDao;
+import com.prison.model.RecognitionLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind queue for recognition events, so a scan never waits on
+ * MySQL.
+ *
+ * submit() adds the event to a bounded lock-free queue and returns; one
+ * background thread drains it in batches of up to BATCH rows and writes
+ * each batch with RecognitionLogDao.saveBatch(). If the database cannot be
+ * reached the batch is appended to a local spill file (fsynced), and so is
+ * everything after it until a retry succeeds, at which point the spill file
+ * is replayed in order before the queue resumes. A queue that fills up is
+ * spilled by the caller, queued events first, and the writer goes offline
+ * so later ones spill behind them; that costs a local disk write but never
+ * a database round trip. A batch the writer was holding meanwhile is
+ * spliced back in where it was taken, so the spill file stays in order.
+ *
+ * A crash during replay can insert a chunk twice; nothing is lost.
+ */
+public class RecognitionLogWriter {
+
+    public static final int  CAPACITY = Integer.getInteger("prison.log.queue", 10_000);
+    public static final int  BATCH    = 500;
+
+    private static final long LINGER_NANOS   = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long RETRY_MS       = 5_000;
+    private static final File SPILL_FILE     =
+            new File(System.getProperty("prison.log.spill", "logs/recognition-spill.tsv"));
+    private static final File REPLAY_FILE    = new File(SPILL_FILE.getPath() + ".replay");
+
+    private static final ConcurrentLinkedQueue<RecognitionLog> QUEUE  = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger                         QUEUED = new AtomicInteger();
+    private static final RecognitionLogDao                     DAO    = new RecognitionLogDao();
+    private static final Object                                SPILL_LOCK = new Object();
+
+    // ── Metrics ──
+    private static final AtomicLong SUBMITTED = new AtomicLong();
+    private static final AtomicLong WRITTEN   = new AtomicLong();
+    private static final AtomicLong BATCHES   = new AtomicLong();
+    private static final AtomicLong SPILLED   = new AtomicLong();
+    private static final AtomicLong REPLAYED  = new AtomicLong();
+    private static final AtomicLong OVERFLOWS = new AtomicLong();
+
+    private static volatile Thread  writer;
+    private static volatile boolean running;
+    private static volatile boolean offline;     // spill file holds events not yet in MySQL
+    private static long             nextRetry;   // writer thread only
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  PRODUCERS
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** Queues the event; returns immediately whatever state the database is in. */
+    public static void submit(RecognitionLog log) {
+        if (log.getDetectedAt() == null) log.setDetectedAt(LocalDateTime.now());
+        SUBMITTED.incrementAndGet();
+        if (writer == null) start();              // only the first event takes the lock
+
+        int n;
+        do {
+            n = QUEUED.get();
+            if (n >= CAPACITY) {
+                OVERFLOWS.incrementAndGet();
+                spillQueue(log);          // the writer replays it once it gets to the file
+                return;
+            }
+        } while (!QUEUED.compareAndSet(n, n + 1));
+        QUEUE.offer(log);
+        if (n == 0) LockSupport.unpark(writer);
+    }
+
+    public static synchronized void start() {
+        if (writer != null) return;
+        running = true;
+        offline = SPILL_FILE.exists() || REPLAY_FILE.exists();    // left over from a previous run
+        Thread t = new Thread(RecognitionLogWriter::run, "recognition-log-writer");
+        t.setDaemon(true);
+        writer = t;
+        t.start();
+    }
+
+    /**
+     * Writes (or spills) what is queued, waiting up to timeoutMs. Holds no
+     * lock while it waits, so a scan submitting meanwhile is not blocked;
+     * its event is written by the writer or spilled below.
+     */
+    public static void shutdown(long timeoutMs) {
+        Thread t = writer;
+        if (t == null) return;
+        running = false;
+        LockSupport.unpark(t);
+        try {
+            t.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Writer still stuck on the database: keep the rest on disk instead
+        spillQueue(null);
+        synchronized (RecognitionLogWriter.class) {
+            if (writer == t) writer = null;
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  WRITER THREAD
+    // ══════════════════════════════════════════════════════════════════════
+    private static void run() {
+        List<RecognitionLog> batch = new ArrayList<>(BATCH);
+        while (running || !QUEUE.isEmpty()) {
+            if (offline && System.currentTimeMillis() >= nextRetry) replay();
+
+            // Taken under SPILL_LOCK so spillQueue() never sees half a batch
+            long mark;
+            synchronized (SPILL_LOCK) {
+                RecognitionLog log;
+                while (batch.size() < BATCH && (log = QUEUE.poll()) != null) batch.add(log);
+                mark = SPILL_FILE.length();
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(LINGER_NANOS);
+                continue;
+            }
+            QUEUED.addAndGet(-batch.size());
+
+            // Once anything is spilled, later events queue behind it to keep their order
+            if (offline || !write(batch)) {
+                spillAt(mark, batch);
+                if (!offline) nextRetry = System.currentTimeMillis() + RETRY_MS;
+                offline = true;
+            }
+            batch.clear();
+        }
+    }
+
+    private static boolean write(List<RecognitionLog> batch) {
+        try {
+            DAO.saveBatch(batch);
+            WRITTEN.addAndGet(batch.size());
+            BATCHES.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            System.err.println("Recognition log: database unavailable, spilling to " + SPILL_FILE
+                    + " (" + e.getMessage() + ")");
+            return false;
+        }
+    }
+
+    /**
+     * Sends spilled events to MySQL in order; keeps whatever is left on
+     * failure. The spill file is renamed aside first so callers spilling on
+     * overflow never wait on the database behind SPILL_LOCK.
+     */
+    private static void replay() {
+        if (!REPLAY_FILE.exists()) {
+            synchronized (SPILL_LOCK) {
+                if (SPILL_FILE.exists() && !SPILL_FILE.renameTo(REPLAY_FILE)) {
+                    nextRetry = System.currentTimeMillis() + RETRY_MS;
+                    return;
+                }
+            }
+        }
+        List<RecognitionLog> pending = readSpill(REPLAY_FILE);
+        int done = 0;
+        while (done < pending.size()) {
+            List<RecognitionLog> chunk = pending.subList(done, Math.min(pending.size(), done + BATCH));
+            if (!write(chunk)) break;
+            done += chunk.size();
+            REPLAYED.addAndGet(chunk.size());
+        }
+        if (done == pending.size()) {
+            REPLAY_FILE.delete();
+            offline = SPILL_FILE.exists();    // spilled meanwhile: picked up next pass
+            if (done > 0) System.out.println("Recognition log: replayed " + done + " spilled events");
+        } else {
+            rewriteSpill(REPLAY_FILE, pending.subList(done, pending.size()));
+            nextRetry = System.currentTimeMillis() + RETRY_MS;
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  SPILL FILE — one event per line: detectedAt  type  id  result (tab-separated)
+    // ══════════════════════════════════════════════════════════════════════
+    private static void spill(List<RecognitionLog> logs) {
+        StringBuilder sb = new StringBuilder();
+        for (RecognitionLog log : logs) sb.append(format(log)).append('\n');
+        synchronized (SPILL_LOCK) {
+            SPILL_FILE.getAbsoluteFile().getParentFile().mkdirs();
+            try (FileChannel ch = FileChannel.open(SPILL_FILE.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                while (buf.hasRemaining()) ch.write(buf);
+                ch.force(false);
+                SPILLED.addAndGet(logs.size());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Spills everything queued, then extra if given, and takes the writer
+     * offline before anyone else can spill, so whatever it takes next lands
+     * behind them.
+     */
+    private static void spillQueue(RecognitionLog extra) {
+        synchronized (SPILL_LOCK) {
+            List<RecognitionLog> logs = new ArrayList<>();
+            RecognitionLog log;
+            while ((log = QUEUE.poll()) != null) logs.add(log);
+            QUEUED.addAndGet(-logs.size());
+            if (extra != null) logs.add(extra);
+            if (logs.isEmpty()) return;
+            offline = true;
+            spill(logs);
+        }
+    }
+
+    /**
+     * Spills a batch the writer took when the spill file was mark bytes
+     * long. Anything spilled since came from spillQueue() and is newer, so
+     * the batch goes back in front of it.
+     */
+    private static void spillAt(long mark, List<RecognitionLog> batch) {
+        synchronized (SPILL_LOCK) {
+            if (SPILL_FILE.length() == mark) {
+                spill(batch);
+                return;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (RecognitionLog log : batch) sb.append(format(log)).append('\n');
+            try {
+                byte[] spilled = Files.readAllBytes(SPILL_FILE.toPath());
+                byte[] taken   = sb.toString().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer buf = ByteBuffer.allocate(spilled.length + taken.length);
+                buf.put(spilled, 0, (int) mark).put(taken).put(spilled, (int) mark, spilled.length - (int) mark);
+                writeAtomically(SPILL_FILE, buf.array());
+                SPILLED.addAndGet(batch.size());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static List<RecognitionLog> readSpill(File file) {
+        List<RecognitionLog> logs = new ArrayList<>();
+        if (!file.exists()) return logs;
+        try {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                RecognitionLog log = parse(line);
+                if (log != null) logs.add(log);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return logs;
+    }
+
+    private static void rewriteSpill(File file, List<RecognitionLog> left) {
+        StringBuilder sb = new StringBuilder();
+        for (RecognitionLog log : left) sb.append(format(log)).append('\n');
+        try {
+            writeAtomically(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void writeAtomically(File file, byte[] bytes) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String format(RecognitionLog log) {
+        return log.getDetectedAt() + "\t" + log.getPersonType() + "\t"
+                + (log.getPersonId() == null ? "" : log.getPersonId()) + "\t" + log.getResult();
+    }
+
+    /** Null for a torn last line (the process died mid-append). */
+    private static RecognitionLog parse(String line) {
+        String[] f = line.split("\t", -1);
+        if (f.length != 4) return null;
+        try {
+            RecognitionLog log = new RecognitionLog();
+            log.setDetectedAt(LocalDateTime.parse(f[0]));
+            log.setPersonType(f[1]);
+            log.setPersonId(f[2].isEmpty() ? null : Integer.valueOf(f[2]));
+            log.setResult(f[3]);
+            return log;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  METRICS
+    // ══════════════════════════════════════════════════════════════════════
+    public static int     queued()    { return QUEUED.get(); }
+    public static boolean isOffline() { return offline; }
+
+    public static String stats() {
+        return String.format("submitted=%d written=%d batches=%d queued=%d spilled=%d replayed=%d overflows=%d offline=%b",
+                SUBMITTED.get(), WRITTEN.get(), BATCHES.get(), QUEUED.get(), SPILLED.get(), REPLAYED.get(),
+                OVERFLOWS.get(), offline);
+    }
+}
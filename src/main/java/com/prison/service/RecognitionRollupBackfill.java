@@ -0,0 +1,67 @@
+package com.prison.service;
+
+import com.prison.dao.RecognitionLogDao;
+import com.prison.dao.RecognitionRollupDao;
+
+import java.time.LocalDate;
+
+/**
+ * Rebuilds recognition_log_hourly from recognition_logs, one day per
+ * transaction, e.g. after logs were imported or corrected by hand. Safe to
+ * run while gates are logging; each day is replaced whole.
+ *
+ *   RecognitionRollupBackfill [from yyyy-mm-dd] [to yyyy-mm-dd]
+ *
+ * Defaults to the first logged day through today. The app itself runs
+ * backfillMissing() in the background at startup, after the migrations.
+ */
+public class RecognitionRollupBackfill {
+
+    public static void main(String[] args) throws Exception {
+        RecognitionRollupDao rollup = new RecognitionRollupDao();
+        LocalDate from = args.length > 0 ? LocalDate.parse(args[0]) : rollup.firstDay();
+        LocalDate to   = args.length > 1 ? LocalDate.parse(args[1]) : LocalDate.now();
+        if (from == null) {
+            System.out.println("No recognition logs; nothing to rebuild.");
+            return;
+        }
+        rebuild(rollup, from, to, true);
+    }
+
+    /**
+     * Rebuilds the days logged before the first rolled-up hour (all of
+     * history on the first run after migration V3), then lets
+     * RecognitionLogDao.count() read the rollup. Until then totals are
+     * counted from recognition_logs; they stay that way if this fails.
+     */
+    public static void backfillMissing() {
+        try {
+            RecognitionRollupDao rollup = new RecognitionRollupDao();
+            LocalDate from = rollup.firstUncoveredDay();
+            if (from != null) {
+                LocalDate to = rollup.firstRolledUpDay();
+                rebuild(rollup, from, to != null ? to : LocalDate.now(), false);
+            }
+            RecognitionLogDao.rollupComplete();
+        } catch (Exception e) {
+            System.err.println("Recognition rollup: backfill failed, totals are counted from the logs");
+            e.printStackTrace();
+        }
+    }
+
+    private static void rebuild(RecognitionRollupDao rollup, LocalDate from, LocalDate to, boolean eachDay)
+            throws Exception {
+        long start = System.nanoTime();
+        int  days  = 0;
+        long hours = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            int rows = rollup.rebuildDay(day);
+            if (eachDay) System.out.printf("%s  %d hour rows%n", day, rows);
+            days++;
+            hours += rows;
+        }
+        RecognitionLogDao.invalidateCounts();
+        System.out.printf("Rebuilt %d days (%,d hour rows) in %.1f s%n",
+                days, hours, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,333 @@
+package com.prison.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of MySQL connections behind DatabaseUtil.getConnection().
+ *
+ * Callers get a proxy whose close() hands the physical connection back
+ * instead of closing it, so the DAOs' try-with-resources blocks work as
+ * before. Idle connections are reused most-recent-first; one that has sat
+ * idle longer than VALIDATE_AFTER_MS is checked with isValid() on borrow
+ * and replaced if the server dropped it.
+ *
+ * A housekeeping thread keeps at least min connections open, closes idle
+ * ones above min after idleTimeout (and any after maxLifetime), and prints
+ * the borrowing stack trace of a connection held longer than leakThreshold.
+ * Borrow waits are counted for stats(), printed on a borrow timeout and
+ * when DatabaseUtil.shutdown() closes the pool.
+ */
+public class ConnectionPool {
+
+    /** Skip the isValid() round trip for connections returned this recently. */
+    static final long VALIDATE_AFTER_MS = 1_000;
+
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int    min;
+    private final int    max;
+    private final long   borrowTimeoutMs;
+    private final long   idleTimeoutMs;
+    private final long   maxLifetimeMs;
+    private final long   leakThresholdMs;
+
+    private final LinkedBlockingDeque<Slot> idle     = new LinkedBlockingDeque<>();
+    private final Set<Slot>                 borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger             total    = new AtomicInteger();
+
+    // ── Metrics ──
+    private final AtomicLong borrows    = new AtomicLong();
+    private final AtomicLong waitNanos  = new AtomicLong();
+    private final AtomicLong maxWait    = new AtomicLong();
+    private final AtomicLong timeouts   = new AtomicLong();
+    private final AtomicLong created    = new AtomicLong();
+    private final AtomicLong closed     = new AtomicLong();
+    private final AtomicLong invalid    = new AtomicLong();
+    private final AtomicLong leaks      = new AtomicLong();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean               fillFailing;
+
+    public ConnectionPool(String url, String user, String password, int min, int max,
+                          long borrowTimeoutMs, long idleTimeoutMs, long maxLifetimeMs, long leakThresholdMs) {
+        this.url             = url;
+        this.user            = user;
+        this.password        = password;
+        this.min             = Math.max(0, min);
+        this.max             = Math.max(1, max);
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs   = idleTimeoutMs;
+        this.maxLifetimeMs   = maxLifetimeMs;
+        this.leakThresholdMs = leakThresholdMs;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.execute(this::fillToMin);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 5, 5, TimeUnit.SECONDS);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  BORROW / RETURN
+    // ══════════════════════════════════════════════════════════════════════
+    public Connection getConnection() throws SQLException {
+        long t0       = System.nanoTime();
+        long deadline = t0 + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs);
+        try {
+            while (true) {
+                Slot slot = idle.pollFirst();
+                if (slot == null) slot = tryCreate();
+                if (slot == null) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        timeouts.incrementAndGet();
+                        throw new SQLException("No database connection available within " + borrowTimeoutMs
+                                + " ms (" + stats() + ")");
+                    }
+                    // Short slices so a slot freed by discard() is noticed via tryCreate()
+                    slot = idle.pollFirst(Math.min(left, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+                    if (slot == null) continue;
+                }
+                if (!usable(slot)) {
+                    discard(slot);
+                    continue;
+                }
+                slot.borrowedAt = System.currentTimeMillis();
+                slot.borrower   = new Throwable("Connection borrowed here");
+                borrowed.add(slot);
+                return slot.lease();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            long waited = System.nanoTime() - t0;
+            borrows.incrementAndGet();
+            waitNanos.addAndGet(waited);
+            maxWait.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    /** Opens a new physical connection if the pool is below max, else null. */
+    private Slot tryCreate() throws SQLException {
+        int n;
+        do {
+            n = total.get();
+            if (n >= max) return null;
+        } while (!total.compareAndSet(n, n + 1));
+        try {
+            Slot slot = new Slot(DriverManager.getConnection(url, user, password));
+            created.incrementAndGet();
+            return slot;
+        } catch (SQLException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean usable(Slot slot) {
+        long now = System.currentTimeMillis();
+        if (now - slot.createdAt > maxLifetimeMs) return false;
+        if (now - slot.returnedAt < VALIDATE_AFTER_MS) return true;
+        try {
+            if (slot.physical.isValid(2)) return true;
+        } catch (SQLException e) {
+            // treated as invalid
+        }
+        invalid.incrementAndGet();
+        return false;
+    }
+
+    private void release(Slot slot) {
+        borrowed.remove(slot);
+        if (slot.dirty) {
+            try {
+                // Undo session changes the borrower left behind (e.g. a transaction)
+                if (!slot.physical.getAutoCommit()) {
+                    slot.physical.rollback();
+                    slot.physical.setAutoCommit(true);
+                }
+                slot.physical.setReadOnly(false);
+                slot.dirty = false;
+            } catch (SQLException e) {
+                discard(slot);
+                return;
+            }
+        }
+        slot.returnedAt = System.currentTimeMillis();
+        slot.borrower   = null;
+        idle.offerFirst(slot);
+    }
+
+    private void discard(Slot slot) {
+        total.decrementAndGet();
+        closed.incrementAndGet();
+        try {
+            slot.physical.close();
+        } catch (SQLException e) {
+            // already gone
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  HOUSEKEEPING
+    // ══════════════════════════════════════════════════════════════════════
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // Idle eviction: oldest-returned sit at the tail
+        List<Slot> keep = new ArrayList<>();
+        Slot slot;
+        while ((slot = idle.pollLast()) != null) {
+            boolean expired = now - slot.createdAt > maxLifetimeMs;
+            boolean stale   = now - slot.returnedAt > idleTimeoutMs && total.get() > min;
+            if (expired || stale) discard(slot);
+            else keep.add(slot);
+        }
+        for (Slot s : keep) idle.offerFirst(s);
+
+        // Leak detection, reported once per borrow
+        for (Slot s : borrowed) {
+            if (!s.leakReported && s.borrower != null && now - s.borrowedAt > leakThresholdMs) {
+                s.leakReported = true;
+                leaks.incrementAndGet();
+                System.err.println("Possible connection leak: held for " + (now - s.borrowedAt) + " ms");
+                s.borrower.printStackTrace();
+            }
+        }
+
+        fillToMin();
+    }
+
+    private void fillToMin() {
+        try {
+            while (total.get() < min) {
+                Slot slot = tryCreate();
+                if (slot == null) break;
+                slot.returnedAt = System.currentTimeMillis();
+                idle.offerLast(slot);
+            }
+            fillFailing = false;
+        } catch (SQLException e) {
+            if (!fillFailing) System.err.println("Database pool: " + e.getMessage());
+            fillFailing = true;      // report once until the database is back
+        }
+    }
+
+    public void shutdown() {
+        housekeeper.shutdownNow();
+        Slot slot;
+        while ((slot = idle.pollFirst()) != null) discard(slot);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  METRICS
+    // ══════════════════════════════════════════════════════════════════════
+    public int  totalConnections()  { return total.get(); }
+    public int  idleConnections()   { return idle.size(); }
+    public int  activeConnections() { return borrowed.size(); }
+    public long borrowCount()       { return borrows.get(); }
+    public long timeoutCount()      { return timeouts.get(); }
+    public long leakCount()         { return leaks.get(); }
+
+    public double averageWaitMs() {
+        long n = borrows.get();
+        return n == 0 ? 0 : waitNanos.get() / 1e6 / n;
+    }
+
+    public double maxWaitMs() { return maxWait.get() / 1e6; }
+
+    public String stats() {
+        return String.format("total=%d active=%d idle=%d max=%d borrows=%d avgWait=%.3fms maxWait=%.3fms "
+                        + "timeouts=%d created=%d closed=%d invalid=%d leaks=%d",
+                total.get(), borrowed.size(), idle.size(), max, borrows.get(), averageWaitMs(), maxWaitMs(),
+                timeouts.get(), created.get(), closed.get(), invalid.get(), leaks.get());
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  POOLED CONNECTION
+    // ══════════════════════════════════════════════════════════════════════
+    private final class Slot {
+        final Connection physical;
+        final long       createdAt = System.currentTimeMillis();
+        volatile long      returnedAt;
+        volatile long      borrowedAt;
+        volatile Throwable borrower;
+        volatile boolean   leakReported;
+        volatile boolean   dirty;         // a setter was called during the borrow
+
+        Slot(Connection physical) {
+            this.physical   = physical;
+            this.returnedAt = createdAt;  // just connected, no need to validate
+        }
+
+        /** A fresh handle for one borrow; closing it twice returns the slot once. */
+        Connection lease() {
+            leakReported = false;
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final Slot slot;
+        private boolean    closedHandle;
+
+        Handle(Slot slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closedHandle) {
+                        closedHandle = true;
+                        release(slot);
+                    }
+                    return null;
+                case "isClosed":
+                    return closedHandle || slot.physical.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + slot.physical;
+                default:
+                    break;
+            }
+            if (closedHandle) throw new SQLException("Connection is closed (returned to pool)");
+            if (method.getName().startsWith("set")) slot.dirty = true;
+            try {
+                return method.invoke(slot.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.prison.util;
+
+import javafx.concurrent.Task;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.VBox;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs a screen's database reads off the JavaFX thread.
+ *
+ * A controller keeps one DataLoader per thing it shows (a table, a row of
+ * counters); load() cancels whatever that loader still had running, like
+ * Service.restart(), so only the newest result is ever applied, and it is
+ * applied on the FX thread. Work runs on a small shared pool; loads queued
+ * past its bound fail (and say so) rather than piling up.
+ *
+ * MainShellController calls leavePage() before building the next page:
+ * every loader created so far is closed, its queued or running loads are
+ * dropped, and later calls (e.g. from an auto-refresh Timeline still
+ * ticking on the old page) do nothing. A query already on the wire is left
+ * to finish — interrupting JDBC would cost the pooled connection — but its
+ * result is discarded.
+ */
+public class DataLoader {
+
+    private static final int THREADS = 4;
+    private static final int QUEUE   = 64;
+
+    private static final ThreadPoolExecutor EXECUTOR;
+    static {
+        AtomicInteger n = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE), r -> {
+                    Thread t = new Thread(r, "data-loader-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private static final AtomicInteger         PAGE = new AtomicInteger();
+    private static final Set<DataLoader>       LIVE = ConcurrentHashMap.newKeySet();
+
+    private final int page = PAGE.get();
+    private Task<?>   current;                 // FX thread only
+
+    public DataLoader() {
+        LIVE.add(this);
+    }
+
+    /** Cancels every loader of the page being left; call before loading the next one. */
+    public static void leavePage() {
+        PAGE.incrementAndGet();
+        for (DataLoader l : LIVE) l.cancel();
+        LIVE.clear();
+    }
+
+    private boolean closed() {
+        return page != PAGE.get();
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  LOAD
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** Runs work in the background and hands its result to onLoaded on the FX thread. */
+    public <T> void load(Callable<T> work, Consumer<T> onLoaded) {
+        load(work, onLoaded, null);
+    }
+
+    /** As load(), with the table showing a loading, empty or error placeholder. */
+    public <T> void load(TableView<?> table, Callable<T> work, Consumer<T> onLoaded) {
+        table.setPlaceholder(placeholder(true, "Loading…"));
+        load(work, result -> {
+            table.setPlaceholder(placeholder(false, "No records"));
+            onLoaded.accept(result);
+        }, () -> table.setPlaceholder(placeholder(false, "Could not load — database unavailable")));
+    }
+
+    private <T> void load(Callable<T> work, Consumer<T> onLoaded, Runnable onFailed) {
+        if (closed()) return;
+        cancel();
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (current == task) current = null;
+            if (!closed()) onLoaded.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            if (current == task) current = null;
+            if (task.getException() != null) task.getException().printStackTrace();
+            if (!closed() && onFailed != null) onFailed.run();
+        });
+        current = task;
+        try {
+            EXECUTOR.execute(task);
+        } catch (RejectedExecutionException e) {
+            current = null;
+            System.err.println("DataLoader: " + QUEUE + " loads already queued, dropping one");
+            if (onFailed != null) onFailed.run();
+        }
+    }
+
+    /** Drops the running or queued load, if any; a queued one never starts. */
+    public void cancel() {
+        Task<?> t = current;
+        current = null;
+        if (t != null) t.cancel(false);
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  PLACEHOLDERS
+    // ══════════════════════════════════════════════════════════════════════
+    private static VBox placeholder(boolean busy, String text) {
+        Label label = new Label(text);
+        label.setStyle("-fx-text-fill:#94a3b8; -fx-font-size:13px;");
+        VBox box = new VBox(10);
+        box.setAlignment(Pos.CENTER);
+        if (busy) {
+            ProgressIndicator spinner = new ProgressIndicator();
+            spinner.setMaxSize(32, 32);
+            box.getChildren().add(spinner);
+        }
+        box.getChildren().add(label);
+        return box;
+    }
+}
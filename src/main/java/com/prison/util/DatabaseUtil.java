@@ -1,17 +1,50 @@
 package com.prison.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 
 public class DatabaseUtil {
 
     private static final String URL =
-            "jdbc:mysql://127.0.0.1:3306/prison_face_db?useSSL=false&serverTimezone=UTC";
+            "jdbc:mysql://127.0.0.1:3306/prison_face_db?useSSL=false&serverTimezone=UTC"
+                    + "&rewriteBatchedStatements=true";
 
     private static final String USER = "root";
     private static final String PASSWORD = "Rutik@1234";
 
+    // ── Pool sizing (-Dprison.db.pool.min / .max / .timeoutMs) ──
+    private static final int  POOL_MIN        = Integer.getInteger("prison.db.pool.min", 2);
+    private static final int  POOL_MAX        = Integer.getInteger("prison.db.pool.max", 10);
+    private static final long BORROW_TIMEOUT  = Long.getLong("prison.db.pool.timeoutMs", 10_000);
+    private static final long IDLE_TIMEOUT    = 10 * 60_000;
+    private static final long MAX_LIFETIME    = 30 * 60_000;
+    private static final long LEAK_THRESHOLD  = Long.getLong("prison.db.pool.leakMs", 30_000);
+
+    // Created on first use so screens that never touch the database open no connections
+    private static final class Holder {
+        static final ConnectionPool POOL = create();
+    }
+
+    private static volatile boolean poolCreated;
+
+    private static ConnectionPool create() {
+        poolCreated = true;
+        return new ConnectionPool(URL, USER, PASSWORD, POOL_MIN, POOL_MAX,
+                BORROW_TIMEOUT, IDLE_TIMEOUT, MAX_LIFETIME, LEAK_THRESHOLD);
+    }
+
+    /** A pooled connection; close() returns it to the pool. */
     public static Connection getConnection() throws Exception {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return Holder.POOL.getConnection();
+    }
+
+    public static ConnectionPool pool() {
+        return Holder.POOL;
+    }
+
+    /** Prints the pool's stats and closes its idle connections; no-op if it was never opened. */
+    public static void shutdown() {
+        if (!poolCreated) return;
+        System.out.println("Database pool: " + Holder.POOL.stats());
+        Holder.POOL.shutdown();
     }
 }
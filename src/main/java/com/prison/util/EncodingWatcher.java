@@ -0,0 +1,137 @@
+package com.prison.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches python-face/encodings/{guards,prisoners} for sample files being
+ * written or deleted, by train_faces.py or anything else, and reports each
+ * affected person once.
+ *
+ * np.save() creates the file and then writes it, so events are collected
+ * until the folders have been quiet for QUIET_MS before being reported; a
+ * file caught half-written is reported again by its next modify event.
+ * If the OS drops events (OVERFLOW) the listener is asked to rescan instead.
+ */
+public class EncodingWatcher {
+
+    /** Called with (GUARD|PRISONER, personId) after their sample files changed. */
+    public interface Listener {
+        void samplesChanged(String personType, int personId);
+
+        void rescan();
+    }
+
+    static final long QUIET_MS = 50;
+
+    private static final String[] CATEGORIES = {"guards", "prisoners"};
+
+    private final File     encodingsDir;
+    private final Listener listener;
+
+    private WatchService watcher;
+    private Thread       thread;
+
+    public EncodingWatcher(File encodingsDir, Listener listener) {
+        this.encodingsDir = encodingsDir;
+        this.listener     = listener;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  LIFECYCLE
+    // ══════════════════════════════════════════════════════════════════════
+    public synchronized void start() throws IOException {
+        if (thread != null) return;
+        watcher = FileSystems.getDefault().newWatchService();
+        for (String cat : CATEGORIES) {
+            File dir = new File(encodingsDir, cat);
+            dir.mkdirs();
+            dir.toPath().register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        thread = new Thread(this::run, "encoding-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread == null) return;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        thread = null;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  EVENT LOOP
+    // ══════════════════════════════════════════════════════════════════════
+    private void run() {
+        try {
+            while (true) {
+                Set<String> changed = new LinkedHashSet<>();   // "TYPE|id"
+                boolean overflow = drain(watcher.take(), changed);
+                WatchKey key;
+                while ((key = watcher.poll(QUIET_MS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= drain(key, changed);
+                }
+
+                if (overflow) {
+                    // A failed reload must not end the thread, or no later change is seen
+                    try {
+                        listener.rescan();
+                    } catch (Exception e) {
+                        System.err.println("Encoding watcher: rescan failed");
+                        e.printStackTrace();
+                    }
+                    continue;
+                }
+                for (String person : changed) {
+                    String[] parts = person.split("\\|");
+                    try {
+                        listener.samplesChanged(parts[0], Integer.parseInt(parts[1]));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    /** Adds the people touched by key's events; true on OVERFLOW. */
+    private boolean drain(WatchKey key, Set<String> changed) {
+        boolean overflow = false;
+        Path dir = (Path) key.watchable();
+        String type = dir.getFileName().toString().equals("guards") ? "GUARD" : "PRISONER";
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            String name = event.context().toString();
+            if (!name.endsWith(".npy")) continue;
+            try {
+                changed.add(type + "|" + PythonRunnerUtil.personOf(name));
+            } catch (NumberFormatException e) {
+                // not a sample file
+            }
+        }
+        key.reset();
+        return overflow;
+    }
+}
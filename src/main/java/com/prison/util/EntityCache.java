@@ -0,0 +1,109 @@
+package com.prison.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded read-through cache of rows by primary key, in front of a DAO's
+ * findById. Least recently used entries are evicted past capacity, and an
+ * entry older than ttlMs is reloaded, which bounds how long a change made
+ * from another workstation can go unseen. The DAO invalidates an id when it
+ * writes that row.
+ *
+ * Misses are loaded outside the lock; a load that overlapped an
+ * invalidation is returned but not cached. Nulls (row missing, or the
+ * database unreachable) are never cached. Cached objects are shared, so
+ * callers treat them as read-only and save changes through the DAO.
+ * stats() is printed on exit, next to the connection pool's.
+ */
+public class EntityCache<V> {
+
+    private final String name;
+    private final int    capacity;
+    private final long   ttlMs;
+
+    private final LinkedHashMap<Integer, Entry<V>> map;
+    private long generation;                         // under this; bumped by every invalidation
+
+    // ── Metrics ──
+    private final AtomicLong hits      = new AtomicLong();
+    private final AtomicLong misses    = new AtomicLong();
+    private final AtomicLong expired   = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public EntityCache(String name, int capacity, long ttlMs) {
+        this.name     = name;
+        this.capacity = capacity;
+        this.ttlMs    = ttlMs;
+        this.map      = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry<V>> eldest) {
+                if (size() <= EntityCache.this.capacity) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    private static final class Entry<V> {
+        final V    value;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(V value) { this.value = value; }
+    }
+
+    /** The cached row for id, or loader's result (cached unless null). */
+    public V get(int id, IntFunction<V> loader) {
+        long gen;
+        synchronized (this) {
+            Entry<V> e = map.get(id);
+            if (e != null) {
+                if (System.currentTimeMillis() - e.loadedAt < ttlMs) {
+                    hits.incrementAndGet();
+                    return e.value;
+                }
+                map.remove(id);
+                expired.incrementAndGet();
+            }
+            gen = generation;
+        }
+        misses.incrementAndGet();
+
+        V value = loader.apply(id);
+        if (value != null) {
+            synchronized (this) {
+                if (generation == gen) map.put(id, new Entry<>(value));
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidate(int id) {
+        generation++;
+        map.remove(id);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        map.clear();
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  METRICS
+    // ══════════════════════════════════════════════════════════════════════
+    public synchronized int size() { return map.size(); }
+    public long hitCount()         { return hits.get(); }
+    public long missCount()        { return misses.get(); }
+
+    public double hitRate() {
+        long h = hits.get(), n = h + misses.get();
+        return n == 0 ? 0 : (double) h / n;
+    }
+
+    public String stats() {
+        return String.format("%s: size=%d/%d hits=%d misses=%d hitRate=%.1f%% expired=%d evictions=%d",
+                name, size(), capacity, hits.get(), misses.get(), hitRate() * 100, expired.get(), evictions.get());
+    }
+}
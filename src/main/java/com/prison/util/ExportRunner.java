@@ -0,0 +1,64 @@
+package com.prison.util;
+
+import javafx.concurrent.Task;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.Window;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Runs a file export as a background Task behind a small progress dialog:
+ * the task's message and progress are shown live, and Cancel (or closing
+ * the dialog) cancels the task, which is expected to stop at its next row
+ * and remove what it wrote.
+ *
+ * Exports run one at a time on their own thread, so a long one never holds
+ * up DataLoader's page loads.
+ */
+public class ExportRunner {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "export");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Starts task; doneMessage turns its result into the message shown on success. */
+    public static <T> void run(Window owner, String header, Task<T> task, Function<T, String> doneMessage) {
+        Label message = new Label();
+        message.textProperty().bind(task.messageProperty());
+        ProgressBar bar = new ProgressBar();
+        bar.setPrefWidth(320);
+        bar.progressProperty().bind(task.progressProperty());
+
+        Alert dialog = new Alert(Alert.AlertType.NONE, null, ButtonType.CANCEL);
+        dialog.setTitle("Exporting");
+        dialog.setHeaderText(header);
+        dialog.getDialogPane().setContent(new VBox(10, message, bar));
+        if (owner != null) dialog.initOwner(owner);
+        dialog.setOnHidden(e -> {
+            if (!task.isDone()) task.cancel(false);
+        });
+
+        task.setOnSucceeded(e -> {
+            dialog.close();
+            new Alert(Alert.AlertType.INFORMATION, doneMessage.apply(task.getValue())).show();
+        });
+        task.setOnFailed(e -> {
+            dialog.close();
+            Throwable t = task.getException();
+            t.printStackTrace();
+            new Alert(Alert.AlertType.ERROR, "Export Failed: " + t.getMessage()).show();
+        });
+        task.setOnCancelled(e -> dialog.close());
+
+        dialog.show();
+        EXECUTOR.execute(task);
+    }
+}
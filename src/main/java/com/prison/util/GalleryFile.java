@@ -0,0 +1,300 @@
+package com.prison.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Packed face gallery: every enrolled encoding in one file, so opening the
+ * gallery is a single mmap instead of one .npy open per person.
+ *
+ * Layout (little-endian):
+ * <pre>
+ *   0   8  magic "PFGALLRY"
+ *   8   4  format version (3)
+ *  12   4  dim        — floats per encoding (128)
+ *  16   4  count      — entries in use
+ *  20   4  capacity   — slots reserved
+ *  24  40  reserved
+ *  64      slots      — capacity × (int type, int personId, int sample, dim float32)
+ * </pre>
+ * A person can own several rows, one per enrolment sample ({id}_{n}.npy).
+ * Older versions (one row per person, or IDs and vectors in two separate
+ * tables) are rejected so the caller rebuilds from the .npy folders.
+ * Spare capacity lets an enrolment write its row in place and bump count.
+ * When it runs out the file is extended in place: a slot never moves, so a
+ * mapping taken before the growth still reads the rows it covers, and the
+ * file is never renamed over while something may have it mapped (Windows
+ * refuses that).
+ */
+public final class GalleryFile {
+
+    public static final int GUARD    = 0;
+    public static final int PRISONER = 1;
+
+    /** Matches every sample of a person in remove(). */
+    public static final int ANY_SAMPLE = -1;
+
+    public static final int VERSION     = 3;
+    public static final int HEADER_SIZE = 64;
+    public static final int ENTRY_SIZE  = 12;
+
+    private static final byte[] MAGIC = "PFGALLRY".getBytes(StandardCharsets.US_ASCII);
+    private static final int    MIN_CAPACITY = 256;
+
+    private final int         dim;
+    private final int         count;
+    private final int         slotSize;
+    private final ByteBuffer  slots;
+    private final FloatBuffer floats;
+
+    private GalleryFile(int dim, int count, ByteBuffer slots) {
+        this.dim      = dim;
+        this.count    = count;
+        this.slotSize = ENTRY_SIZE + dim * Float.BYTES;
+        this.slots    = slots;
+        this.floats   = slots.asFloatBuffer();
+    }
+
+    public static int typeOf(String label) {
+        return "GUARD".equals(label) ? GUARD : PRISONER;
+    }
+
+    public static String labelOf(int type) {
+        return type == GUARD ? "GUARD" : "PRISONER";
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  READ — one mapping for the whole gallery
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** Maps the rows in use; the header is checked first, so a rejected file is never mapped. */
+    public static GalleryFile map(Path path) throws IOException {
+        MappedByteBuffer map;
+        Header h;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            h = Header.read(ch, path);
+            map = ch.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) h.count * h.slotSize());
+        }
+        return new GalleryFile(h.dim, h.count, map.order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    public int dim()               { return dim; }
+    public int count()             { return count; }
+    public int type(int i)         { return slots.getInt(i * slotSize); }
+    public int personId(int i)     { return slots.getInt(i * slotSize + 4); }
+    public int sample(int i)       { return slots.getInt(i * slotSize + 8); }
+
+    /** Copies row i's dim floats into dst at off, straight from the mapping. */
+    public void copyRow(int i, float[] dst, int off) {
+        floats.get((i * slotSize + ENTRY_SIZE) / Float.BYTES, dst, off, dim);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  WRITE — full build (used once to migrate from per-person .npy files)
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Writes a new file and moves it into place. Only called when path is
+     * missing or was rejected by map(), so nothing has it mapped.
+     */
+    public static synchronized void write(Path path, int dim, int count, int[] types, int[] ids,
+                                          int[] samples, float[] vectors) throws IOException {
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, count)) << 1);
+        Header h = new Header(dim, count, capacity);
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + count * h.slotSize()).order(ByteOrder.LITTLE_ENDIAN);
+            h.write(buf);
+            for (int i = 0; i < count; i++) {
+                buf.position(HEADER_SIZE + i * h.slotSize());
+                buf.putInt(types[i]).putInt(ids[i]).putInt(samples[i]);
+                buf.asFloatBuffer().put(vectors, i * dim, dim);
+            }
+            buf.clear();
+            while (buf.hasRemaining()) ch.write(buf);
+            extend(ch, h.fileSize());
+            ch.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  INCREMENTAL UPDATE — enrol / retake / delete one person
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** Inserts or replaces one sample of (type, personId). */
+    public static synchronized void upsert(Path path, int type, int personId, int sample,
+                                           float[] vector) throws IOException {
+        if (!Files.exists(path)) {
+            write(path, vector.length, 1, new int[]{type}, new int[]{personId}, new int[]{sample}, vector);
+            return;
+        }
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Header h = Header.read(ch, path);
+            if (vector.length != h.dim) throw new IOException("expected " + h.dim + " floats, got " + vector.length);
+
+            MappedByteBuffer map = mapSlots(ch, h);
+            int slot = indexOf(map, h, h.count, type, personId, sample);
+            boolean append = slot < 0;
+            if (append) {
+                if (h.count == h.capacity) {
+                    h   = grow(ch, h);
+                    map = mapSlots(ch, h);
+                }
+                slot = h.count;
+            }
+
+            map.position(slot * h.slotSize() + ENTRY_SIZE);
+            map.asFloatBuffer().put(vector);
+            putEntry(map, h, slot, type, personId, sample);
+            map.force();
+            if (append) h.writeCount(ch, h.count + 1);   // publish last
+        }
+    }
+
+    /** Removes every sample of (type, personId). */
+    public static synchronized void remove(Path path, int type, int personId) throws IOException {
+        remove(path, type, personId, ANY_SAMPLE);
+    }
+
+    /**
+     * Removes one sample of (type, personId), or all of them for ANY_SAMPLE,
+     * by moving the last entry into each freed slot.
+     */
+    public static synchronized void remove(Path path, int type, int personId, int sample) throws IOException {
+        if (!Files.exists(path)) return;
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Header h = Header.read(ch, path);
+            MappedByteBuffer map = mapSlots(ch, h);
+
+            int count    = h.count;
+            int rowBytes = h.dim * Float.BYTES;
+            int slot;
+            while ((slot = indexOf(map, h, count, type, personId, sample)) >= 0) {
+                int last = count - 1;
+                if (slot != last) {
+                    int src = last * h.slotSize();
+                    map.position(slot * h.slotSize() + ENTRY_SIZE);
+                    map.put(map.duplicate().position(src + ENTRY_SIZE).limit(src + ENTRY_SIZE + rowBytes));
+                    putEntry(map, h, slot, map.getInt(src), map.getInt(src + 4), map.getInt(src + 8));
+                }
+                count = last;
+            }
+            if (count == h.count) return;
+            map.force();
+            h.writeCount(ch, count);
+        }
+    }
+
+    /** Maps the header-less slot area, capacity slots long. */
+    private static MappedByteBuffer mapSlots(FileChannel ch, Header h) throws IOException {
+        MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, (long) h.capacity * h.slotSize());
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        return map;
+    }
+
+    private static int indexOf(ByteBuffer map, Header h, int count, int type, int personId, int sample) {
+        for (int i = 0; i < count; i++) {
+            int e = i * h.slotSize();
+            if (map.getInt(e + 4) == personId && map.getInt(e) == type
+                    && (sample == ANY_SAMPLE || map.getInt(e + 8) == sample))
+                return i;
+        }
+        return -1;
+    }
+
+    private static void putEntry(ByteBuffer map, Header h, int slot, int type, int personId, int sample) {
+        int e = slot * h.slotSize();
+        map.putInt(e, type);
+        map.putInt(e + 4, personId);
+        map.putInt(e + 8, sample);
+    }
+
+    /**
+     * Doubles the capacity in place: the file is extended first and the
+     * new capacity written after, so a crash in between leaves a valid file.
+     */
+    private static Header grow(FileChannel ch, Header h) throws IOException {
+        Header grown = new Header(h.dim, h.count, h.capacity * 2);
+        extend(ch, grown.fileSize());
+        grown.writeCapacity(ch);
+        return grown;
+    }
+
+    private static void extend(FileChannel ch, long size) throws IOException {
+        if (ch.size() < size) ch.write(ByteBuffer.allocate(1), size - 1);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  HEADER
+    // ══════════════════════════════════════════════════════════════════════
+    private static final class Header {
+        static final int COUNT_OFFSET    = 16;
+        static final int CAPACITY_OFFSET = 20;
+
+        final int dim, count, capacity;
+
+        Header(int dim, int count, int capacity) {
+            this.dim      = dim;
+            this.count    = count;
+            this.capacity = capacity;
+        }
+
+        int  slotSize() { return ENTRY_SIZE + dim * Float.BYTES; }
+        long fileSize() { return HEADER_SIZE + (long) capacity * slotSize(); }
+
+        /** Read through the channel, not a mapping, so a rejected file is never mapped. */
+        static Header read(FileChannel ch, Path path) throws IOException {
+            ByteBuffer map = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (map.hasRemaining()) {
+                if (ch.read(map, map.position()) < 0) break;
+            }
+            if (map.hasRemaining()) throw new IOException(path + ": truncated gallery header");
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (map.get(i) != MAGIC[i]) throw new IOException(path + ": not a packed gallery");
+            }
+            int version = map.getInt(8);
+            if (version != VERSION) throw new IOException(path + ": unsupported gallery version " + version);
+            Header h = new Header(map.getInt(12), map.getInt(COUNT_OFFSET), map.getInt(CAPACITY_OFFSET));
+            if (h.dim <= 0 || h.count < 0 || h.count > h.capacity)
+                throw new IOException(path + ": corrupt gallery header");
+            if (ch.size() < h.fileSize()) throw new IOException(path + ": truncated gallery data");
+            return h;
+        }
+
+        void write(ByteBuffer map) {
+            map.put(0, MAGIC);
+            map.putInt(8, VERSION);
+            map.putInt(12, dim);
+            map.putInt(COUNT_OFFSET, count);
+            map.putInt(CAPACITY_OFFSET, capacity);
+        }
+
+        void writeCount(FileChannel ch, int n) throws IOException {
+            writeInt(ch, COUNT_OFFSET, n);
+        }
+
+        void writeCapacity(FileChannel ch) throws IOException {
+            writeInt(ch, CAPACITY_OFFSET, capacity);
+        }
+
+        private static void writeInt(FileChannel ch, int offset, int value) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value);
+            while (buf.hasRemaining()) ch.write(buf, offset + buf.position());
+            ch.force(false);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.prison.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies the versioned scripts in src/main/resources/db/migration at
+ * startup, on a background thread so the login window never waits on it,
+ * and records each one in schema_history, so every install ends up with the
+ * same schema without anyone re-running Prison_Face_DB.sql.
+ *
+ * Scripts are named V{n}__{description}.sql and listed in MIGRATIONS in
+ * order; a script is applied once. MySQL commits DDL implicitly, so a
+ * script that failed half way is not recorded and is re-run next start:
+ * statements that find their index, table or column already there are
+ * skipped rather than failing. A script edited after it was applied is
+ * reported, not re-run. GET_LOCK keeps two gates starting together from
+ * migrating at the same time.
+ */
+public class MigrationRunner {
+
+    private static final String[] MIGRATIONS = {
+            "V1__recognition_log_indexes.sql",
+            "V2__prisoner_guard_indexes.sql",
+            "V3__recognition_log_hourly.sql",
+    };
+
+    private static final String LOCATION  = "/db/migration/";
+    private static final String LOCK_NAME = "prison_face_db.migrate";
+
+    private static final String HISTORY_DDL =
+            "CREATE TABLE IF NOT EXISTS schema_history (" +
+                    "    version      INT          PRIMARY KEY, " +
+                    "    description  VARCHAR(200) NOT NULL, " +
+                    "    checksum     CHAR(64)     NOT NULL, " +
+                    "    applied_at   TIMESTAMP    DEFAULT CURRENT_TIMESTAMP, " +
+                    "    execution_ms INT          NOT NULL" +
+                    ")";
+
+    // Duplicate key name, table exists, duplicate column: already applied by hand
+    private static final Set<Integer> ALREADY_THERE = Set.of(1061, 1050, 1060);
+
+    /** Applies pending migrations; returns how many ran. Failures are printed. */
+    public static int migrate() {
+        int applied = 0;
+        try (Connection con = DatabaseUtil.getConnection()) {
+            if (!lock(con)) {
+                System.err.println("Migrations: another instance holds the lock, skipping");
+                return 0;
+            }
+            try {
+                try (Statement st = con.createStatement()) {
+                    st.execute(HISTORY_DDL);
+                }
+                Map<Integer, String> done = history(con);
+                for (String file : MIGRATIONS) {
+                    int    version = versionOf(file);
+                    String sql     = read(file);
+                    String sum     = sha256(sql);
+                    if (done.containsKey(version)) {
+                        if (!done.get(version).equals(sum))
+                            System.err.println("Migrations: " + file + " changed after it was applied");
+                        continue;
+                    }
+                    long t0 = System.currentTimeMillis();
+                    for (String statement : statements(sql)) run(con, file, statement);
+                    record(con, version, descriptionOf(file), sum, System.currentTimeMillis() - t0);
+                    System.out.println("Migrations: applied " + file);
+                    applied++;
+                }
+            } finally {
+                unlock(con);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return applied;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  HISTORY
+    // ══════════════════════════════════════════════════════════════════════
+    private static Map<Integer, String> history(Connection con) throws SQLException {
+        Map<Integer, String> done = new HashMap<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_history")) {
+            while (rs.next()) done.put(rs.getInt(1), rs.getString(2));
+        }
+        return done;
+    }
+
+    private static void record(Connection con, int version, String description, String checksum, long ms)
+            throws SQLException {
+        String sql = "INSERT INTO schema_history (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, version);
+            ps.setString(2, description);
+            ps.setString(3, checksum);
+            ps.setLong(4, ms);
+            ps.executeUpdate();
+        }
+    }
+
+    private static boolean lock(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT GET_LOCK(?, 60)")) {
+            ps.setString(1, LOCK_NAME);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void unlock(Connection con) {
+        try (PreparedStatement ps = con.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  SCRIPTS
+    // ══════════════════════════════════════════════════════════════════════
+    private static void run(Connection con, String file, String statement) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(statement);
+        } catch (SQLException e) {
+            if (!ALREADY_THERE.contains(e.getErrorCode())) throw e;
+            System.out.println("Migrations: " + file + ": " + e.getMessage() + " (already present)");
+        }
+    }
+
+    /** Statements end with ';' at the end of a line; '--' lines are comments. */
+    static List<String> statements(String sql) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        for (String line : sql.split("\\R")) {
+            String t = line.trim();
+            if (t.isEmpty() || t.startsWith("--")) continue;
+            cur.append(line).append('\n');
+            if (t.endsWith(";")) {
+                String s = cur.toString().trim();
+                out.add(s.substring(0, s.length() - 1));
+                cur.setLength(0);
+            }
+        }
+        if (!cur.toString().isBlank()) out.add(cur.toString().trim());
+        return out;
+    }
+
+    private static String read(String file) throws IOException {
+        try (InputStream in = MigrationRunner.class.getResourceAsStream(LOCATION + file)) {
+            if (in == null) throw new IOException("Missing migration " + LOCATION + file);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int versionOf(String file) {
+        return Integer.parseInt(file.substring(1, file.indexOf("__")));
+    }
+
+    private static String descriptionOf(String file) {
+        return file.substring(file.indexOf("__") + 2, file.lastIndexOf('.')).replace('_', ' ');
+    }
+
+    private static String sha256(String text) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : hash) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package com.prison.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Substring search over a fixed set of lower-case documents through a
+ * trigram index: a query of three or more characters is answered by
+ * intersecting the posting lists of its trigrams and checking only the
+ * documents left, so the cost follows the number of matches rather than the
+ * number of documents. Shorter queries check every document.
+ *
+ * Results are exact: a document matches when it contains the query, as with
+ * LIKE '%query%'. Immutable once built, so it can be shared across threads.
+ */
+public class NgramIndex {
+
+    private final String[]         docs;
+    private final Map<Long, int[]> postings;   // trigram → ascending doc numbers
+
+    public NgramIndex(String[] docs) {
+        this.docs = docs;
+        Map<Long, int[]> lists  = new HashMap<>();
+        Map<Long, Integer> used = new HashMap<>();
+        for (int d = 0; d < docs.length; d++) {
+            String s = docs[d];
+            for (int i = 0; i + 3 <= s.length(); i++) {
+                long g = gram(s, i);
+                int[] list = lists.get(g);
+                int   n    = used.getOrDefault(g, 0);
+                if (n > 0 && list[n - 1] == d) continue;           // repeated in this doc
+                if (list == null) list = new int[4];
+                else if (n == list.length) list = Arrays.copyOf(list, n * 2);
+                list[n] = d;
+                lists.put(g, list);
+                used.put(g, n + 1);
+            }
+        }
+        for (Map.Entry<Long, int[]> e : lists.entrySet()) {
+            e.setValue(Arrays.copyOf(e.getValue(), used.get(e.getKey())));
+        }
+        this.postings = lists;
+    }
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    public int size() { return docs.length; }
+
+    /**
+     * Ascending numbers of the documents containing query (lower case).
+     * candidates, if not null, restricts the search to those documents,
+     * e.g. the matches of a shorter query this one extends.
+     */
+    public int[] search(String query, int[] candidates) {
+        int[] pool = candidates;
+        if (query.length() >= 3) {
+            // Rarest trigram first keeps the intersection small
+            int[][] lists = new int[query.length() - 2][];
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                int[] list = postings.get(gram(query, i));
+                if (list == null) return new int[0];
+                lists[i] = list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+            int[] acc = lists[0];
+            for (int i = 1; i < lists.length && acc.length > 0; i++) acc = intersect(acc, lists[i]);
+            pool = candidates == null ? acc : intersect(acc, candidates);
+        }
+
+        int[] out = new int[pool == null ? docs.length : pool.length];
+        int   n   = 0;
+        int   end = pool == null ? docs.length : pool.length;
+        for (int i = 0; i < end; i++) {
+            int d = pool == null ? i : pool[i];
+            if (docs[d].contains(query)) out[n++] = d;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if      (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { out[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
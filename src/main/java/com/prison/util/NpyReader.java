@@ -0,0 +1,146 @@
+package com.prison.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reader for the .npy files written by np.save in train_faces.py.
+ *
+ * The file is read in one call into a heap buffer and closed; the header is
+ * parsed and the array data is exposed as DoubleBuffer / FloatBuffer views
+ * over that buffer. Sample files are about 1 KB, so mapping them saves
+ * nothing, and a live mapping would stop train_faces.py (or a delete) from
+ * removing the file on Windows until the mapping is collected. Supports
+ * little-endian float64 ('<f8') and float32 ('<f4'), C order, 1-D (n,) or
+ * 2-D (rows, cols), header format 1.0 to 3.0.
+ */
+public final class NpyReader {
+
+    private static final byte[]  MAGIC     = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y'};
+    private static final Pattern DESCR     = Pattern.compile("'descr'\\s*:\\s*'([^']+)'");
+    private static final Pattern FORTRAN   = Pattern.compile("'fortran_order'\\s*:\\s*(True|False)");
+    private static final Pattern SHAPE     = Pattern.compile("'shape'\\s*:\\s*\\(([^)]*)\\)");
+
+    private final Path       path;
+    private final boolean    float64;
+    private final int        rows;
+    private final int        cols;
+    private final ByteBuffer data;   // little-endian view of the array payload only
+
+    private NpyReader(Path path, boolean float64, int rows, int cols, ByteBuffer data) {
+        this.path    = path;
+        this.float64 = float64;
+        this.rows    = rows;
+        this.cols    = cols;
+        this.data    = data;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  OPEN
+    // ══════════════════════════════════════════════════════════════════════
+    public static NpyReader open(Path path) throws IOException {
+        ByteBuffer map = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (byte b : MAGIC) {
+            if (map.remaining() == 0 || map.get() != b) throw new IOException(path + ": not an .npy file");
+        }
+        if (map.remaining() < 2) throw new IOException(path + ": truncated header");
+        int major     = map.get();
+        map.get(); // minor version
+        if (major < 1 || major > 3) throw new IOException(path + ": unsupported .npy version " + major);
+        if (map.remaining() < (major == 1 ? 2 : 4)) throw new IOException(path + ": truncated header");
+        int headerLen = major == 1 ? Short.toUnsignedInt(map.getShort()) : map.getInt();
+        if (headerLen < 0 || headerLen > map.remaining()) throw new IOException(path + ": truncated header");
+        byte[] h = new byte[headerLen];
+        map.get(h);
+        String header = new String(h, StandardCharsets.ISO_8859_1);
+
+        String descr = find(DESCR, header, path);
+        boolean float64;
+        switch (descr) {
+            case "<f8" -> float64 = true;
+            case "<f4" -> float64 = false;
+            default    -> throw new IOException(path + ": unsupported dtype " + descr);
+        }
+
+        String[] dims = find(SHAPE, header, path).split(",");
+        int rows, cols;
+        if (dims.length == 1 || dims[1].isBlank()) {
+            rows = 1;
+            cols = Integer.parseInt(dims[0].trim());
+        } else if (dims.length == 2) {
+            rows = Integer.parseInt(dims[0].trim());
+            cols = Integer.parseInt(dims[1].trim());
+            if ("True".equals(find(FORTRAN, header, path)) && rows > 1)
+                throw new IOException(path + ": Fortran-ordered arrays are not supported");
+        } else {
+            throw new IOException(path + ": unsupported shape (" + String.join(",", dims) + ")");
+        }
+
+        long bytes = (long) rows * cols * (float64 ? Double.BYTES : Float.BYTES);
+        if (map.remaining() < bytes) throw new IOException(path + ": truncated array data");
+
+        ByteBuffer data = map.slice().order(ByteOrder.LITTLE_ENDIAN);
+        data.limit((int) bytes);
+        return new NpyReader(path, float64, rows, cols, data);
+    }
+
+    private static String find(Pattern p, String header, Path path) throws IOException {
+        Matcher m = p.matcher(header);
+        if (!m.find()) throw new IOException(path + ": malformed header " + header.trim());
+        return m.group(1);
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  VIEWS (no further copying)
+    // ══════════════════════════════════════════════════════════════════════
+    public boolean isFloat64() { return float64; }
+    public int     rows()      { return rows; }
+    public int     cols()      { return cols; }
+    public Path    path()      { return path; }
+
+    /** Whole array as doubles; only valid for '<f8' files. */
+    public DoubleBuffer asDoubleBuffer() {
+        if (!float64) throw new IllegalStateException(path + " is float32");
+        return data.duplicate().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    /** Whole array as floats; only valid for '<f4' files. */
+    public FloatBuffer asFloatBuffer() {
+        if (float64) throw new IllegalStateException(path + " is float64");
+        return data.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    /** One encoding (row) as a double view; only valid for '<f8' files. */
+    public DoubleBuffer doubleRow(int row) {
+        return asDoubleBuffer().position(row * cols).limit(row * cols + cols).slice();
+    }
+
+    /** One encoding (row) as a float view; only valid for '<f4' files. */
+    public FloatBuffer floatRow(int row) {
+        return asFloatBuffer().position(row * cols).limit(row * cols + cols).slice();
+    }
+
+    /**
+     * Writes one row into dst[offset ..] as float32, converting from float64
+     * if needed, straight from the file's buffer into the caller's
+     * contiguous array, with no intermediate double[].
+     */
+    public void copyRow(int row, float[] dst, int offset) {
+        int elemBytes = float64 ? Double.BYTES : Float.BYTES;
+        int base = row * cols * elemBytes;
+        for (int k = 0; k < cols; k++) {
+            dst[offset + k] = float64
+                    ? (float) data.getDouble(base + k * Double.BYTES)
+                    : data.getFloat(base + k * Float.BYTES);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.prison.util;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import javafx.concurrent.Task;
+import javafx.stage.Window;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * Writes a PDF report in the background while its rows stream in.
+ *
+ * The report body runs off the FX thread through ExportRunner, whose
+ * Cancel stops it and deletes the partial file. table() takes rows one at a
+ * time, typically from a DAO's streaming forEach(), and hands the table to
+ * the document every CHUNK_ROWS rows with setComplete(false), so OpenPDF
+ * lays out and writes those rows and drops them. Neither the records nor
+ * the table are ever held whole, so memory stays flat however long the
+ * report is. Header rows still repeat on every page.
+ */
+public class PdfExport {
+
+    public static final int CHUNK_ROWS = 200;
+
+    /** The report itself: page events, header, tables, summary. */
+    @FunctionalInterface
+    public interface Body {
+        void write(PdfExport export) throws Exception;
+    }
+
+    /** Pushes every row to sink, e.g. from a streaming result set. */
+    @FunctionalInterface
+    public interface RowSource<R> {
+        void forEach(Consumer<R> sink) throws Exception;
+    }
+
+    /** Adds the cells of one row to the table; index counts from 0. */
+    @FunctionalInterface
+    public interface RowWriter<R> {
+        void write(R row, int index);
+    }
+
+    interface Progress {
+        void rows(long done, long expected);
+        boolean cancelled();
+    }
+
+    private final Document  document;
+    private final PdfWriter writer;
+    private final long      expectedRows;
+    private final Progress  progress;
+    private long            done;
+
+    PdfExport(Document document, PdfWriter writer, long expectedRows, Progress progress) {
+        this.document     = document;
+        this.writer       = writer;
+        this.expectedRows = expectedRows;
+        this.progress     = progress;
+    }
+
+    public Document  document() { return document; }
+    public PdfWriter writer()   { return writer; }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  ROWS
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Streams source into table (header rows already added) and adds it to
+     * the document in chunks; returns the number of rows written.
+     */
+    public <R> int table(PdfPTable table, RowSource<R> source, RowWriter<R> rowWriter) throws Exception {
+        int[] n = {0};
+        table.setComplete(false);
+        source.forEach(row -> {
+            if (progress.cancelled()) throw new CancellationException();
+            rowWriter.write(row, n[0]++);
+            if (n[0] % CHUNK_ROWS == 0) {
+                try {
+                    document.add(table);
+                } catch (Exception e) {
+                    throw new ExceptionConverter(e);
+                }
+                progress.rows(done + n[0], expectedRows);
+            }
+        });
+        table.setComplete(true);
+        document.add(table);
+        done += n[0];
+        progress.rows(done, expectedRows);
+        return n[0];
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  RUN
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Writes the report to file in the background. expectedRows (or -1 when
+     * unknown) drives the progress bar; doneMessage is shown on success.
+     */
+    public static void start(Window owner, File file, Document document, long expectedRows,
+                             String doneMessage, Body body) {
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                updateMessage("Preparing report…");
+                write(file, document, expectedRows, new Progress() {
+                    @Override
+                    public void rows(long done, long expected) {
+                        updateProgress(done, Math.max(done, expected));
+                        updateMessage(expected > 0 ? done + " of " + Math.max(done, expected) + " rows"
+                                                   : done + " rows");
+                    }
+
+                    @Override
+                    public boolean cancelled() {
+                        return isCancelled();
+                    }
+                }, body);
+                return null;
+            }
+        };
+
+        ExportRunner.run(owner, "Writing " + file.getName(), task, v -> doneMessage);
+    }
+
+    /** Writes the whole report, or deletes the partial file and rethrows. */
+    static void write(File file, Document document, long expectedRows, Progress progress, Body body)
+            throws Exception {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024)) {
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            body.write(new PdfExport(document, writer, expectedRows, progress));
+            document.close();
+        } catch (Exception | Error e) {
+            if (!file.delete()) file.deleteOnExit();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.prison.util;
+
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Person photos decoded at the size they are shown, shared by every screen.
+ *
+ * train_faces.py saves 1920x1080 JPEGs; a 30 px avatar only needs the
+ * decoder to produce 30 px, which new Image(url, w, h, true, true, true)
+ * does while loading in the background. Images are kept per (file, size)
+ * and reused while the file's mtime and length are unchanged, so a retaken
+ * photo shows up on its next use without bypassing the cache.
+ *
+ * Entries are soft references, so the GC can drop them under memory
+ * pressure, and least recently used ones are evicted once the decoded
+ * pixels exceed the budget (-Dprison.photo.cacheMb, default 64).
+ */
+public class PhotoCache {
+
+    private static final long BUDGET_BYTES = Long.getLong("prison.photo.cacheMb", 64) * 1024 * 1024;
+
+    private static final LinkedHashMap<String, Entry> CACHE = new LinkedHashMap<>(64, 0.75f, true);
+    private static long usedBytes;     // under PhotoCache.class
+
+    // ── Metrics ──
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    private static final class Entry {
+        final long                 modified;
+        final long                 length;
+        final long                 bytes;
+        final SoftReference<Image> image;
+
+        Entry(long modified, long length, long bytes, Image image) {
+            this.modified = modified;
+            this.length   = length;
+            this.bytes    = bytes;
+            this.image    = new SoftReference<>(image);
+        }
+    }
+
+    /** The photo scaled to fit width × height, or null when there is no file. */
+    public static Image get(String path, double width, double height) {
+        if (path == null || path.isBlank()) return null;
+        return get(new File(path), width, height);
+    }
+
+    public static synchronized Image get(File file, double width, double height) {
+        if (!file.isFile()) return null;
+        String key      = file.getAbsolutePath() + '|' + (int) width + 'x' + (int) height;
+        long   modified = file.lastModified();
+        long   length   = file.length();
+
+        Entry e = CACHE.get(key);
+        if (e != null) {
+            Image cached = e.image.get();
+            if (cached != null && e.modified == modified && e.length == length && !cached.isError()) {
+                hits++;
+                return cached;
+            }
+            remove(key);
+        }
+        misses++;
+
+        Image img = new Image(file.toURI().toString(), width, height, true, true, true);
+        // Width and height are an upper bound with preserveRatio
+        long bytes = (long) Math.ceil(width) * (long) Math.ceil(height) * 4;
+        CACHE.put(key, new Entry(modified, length, bytes, img));
+        usedBytes += bytes;
+        trim();
+        return img;
+    }
+
+    private static void remove(String key) {
+        Entry e = CACHE.remove(key);
+        if (e != null) usedBytes -= e.bytes;
+    }
+
+    /** Evicts cleared references first, then least recently used, down to the budget. */
+    private static void trim() {
+        if (usedBytes <= BUDGET_BYTES) return;
+        for (Iterator<Map.Entry<String, Entry>> it = CACHE.entrySet().iterator(); it.hasNext(); ) {
+            Entry e = it.next().getValue();
+            if (e.image.get() == null) {
+                it.remove();
+                usedBytes -= e.bytes;
+            }
+        }
+        for (Iterator<Map.Entry<String, Entry>> it = CACHE.entrySet().iterator();
+             it.hasNext() && usedBytes > BUDGET_BYTES; ) {
+            Entry e = it.next().getValue();
+            it.remove();
+            usedBytes -= e.bytes;
+            evictions++;
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  METRICS
+    // ══════════════════════════════════════════════════════════════════════
+    public static synchronized String stats() {
+        return String.format("photos: entries=%d used=%.1fMB budget=%dMB hits=%d misses=%d evictions=%d",
+                CACHE.size(), usedBytes / 1048576.0, BUDGET_BYTES / 1048576, hits, misses, evictions);
+    }
+}
@@ -3,11 +3,21 @@ package com.prison.util;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 public class PythonRunnerUtil {
 
-    private static final String PYTHON = "python";
-    private static final String PYTHON_DIR = "python-face";
+    static final String PYTHON = "python";
+    static final String PYTHON_DIR = "python-face";
+
+    public static final File ENCODINGS_DIR = new File(PYTHON_DIR, "encodings");
+    public static final Path GALLERY_FILE  = ENCODINGS_DIR.toPath().resolve("gallery.pfg");
+    public static final Path INDEX_FILE    = ENCODINGS_DIR.toPath().resolve("gallery.hnsw");
 
     public static String trainFace(String personType, int personId) {
 
@@ -19,12 +29,70 @@ public class PythonRunnerUtil {
         });
     }
 
-    public static String runRecognition() {
+    // Syncs the person's rows in the packed gallery with their sample files
+    // (train_faces.py may have added one and dropped the oldest).
+    // Until the gallery exists it is built from the .npy folders on first open.
+    public static void packEncoding(String personType, int personId) {
+        if (!GALLERY_FILE.toFile().exists()) return;
+        int type = GalleryFile.typeOf(personType);
+        try {
+            GalleryFile.remove(GALLERY_FILE, type, personId);
+            for (File npy : sampleFiles(personType, personId)) {
+                NpyReader reader = NpyReader.open(npy.toPath());
+                float[] vector = new float[reader.cols()];
+                reader.copyRow(0, vector, 0);
+                GalleryFile.upsert(GALLERY_FILE, type, personId, sampleOf(npy.getName()), vector);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-        return runProcess(new String[]{
-                PYTHON,
-                "recognize_face.py"
+    // Drops a deleted person's samples from the packed gallery and the
+    // .npy folder so a rebuild from the folders does not bring them back.
+    public static void removeEncoding(String personType, int personId) {
+        try {
+            GalleryFile.remove(GALLERY_FILE, GalleryFile.typeOf(personType), personId);
+            for (File npy : sampleFiles(personType, personId)) Files.deleteIfExists(npy.toPath());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  SAMPLE FILES  encodings/{guards,prisoners}/{id}.npy, {id}_{n}.npy
+    // ══════════════════════════════════════════════════════════════════════
+
+    /** Every sample file of the person, ordered by sample number. */
+    public static List<File> sampleFiles(String personType, int personId) {
+        File dir = new File(ENCODINGS_DIR, personType.toLowerCase() + "s");
+        File[] npy = dir.listFiles((d, n) -> {
+            if (!n.endsWith(".npy")) return false;
+            try {
+                return personOf(n) == personId;
+            } catch (NumberFormatException e) {
+                return false;
+            }
         });
+        List<File> files = new ArrayList<>();
+        if (npy == null) return files;
+        files.addAll(Arrays.asList(npy));
+        files.sort(Comparator.comparingInt(f -> sampleOf(f.getName())));
+        return files;
+    }
+
+    /** Person ID of a sample file name; NumberFormatException if it is not one. */
+    public static int personOf(String fileName) {
+        String stem = fileName.substring(0, fileName.length() - ".npy".length());
+        int sep = stem.indexOf('_');
+        return Integer.parseInt(sep < 0 ? stem : stem.substring(0, sep));
+    }
+
+    /** Sample number of a file name: 0 for the legacy {id}.npy, n for {id}_{n}.npy. */
+    public static int sampleOf(String fileName) {
+        String stem = fileName.substring(0, fileName.length() - ".npy".length());
+        int sep = stem.indexOf('_');
+        return sep < 0 ? 0 : Integer.parseInt(stem.substring(sep + 1));
     }
 
     private static String runProcess(String[] command) {
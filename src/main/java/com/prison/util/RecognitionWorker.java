@@ -0,0 +1,172 @@
+package com.prison.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Long-lived Python recognition process (python-face/recognize_worker.py).
+ *
+ * The worker imports face_recognition once, then answers one-line requests
+ * over stdin/stdout (PING, SCAN, QUIT). While a SCAN runs the worker sends
+ * FRAME| lines with probe encodings and waits for a MATCH| line back.
+ * Lines that do not start with OK| / ERROR| / READY| / FRAME| are debug
+ * output and are echoed to the console like PythonRunnerUtil does.
+ *
+ * If the process dies it is restarted transparently before the next request.
+ * The script can be swapped with
+ * -Dprison.recognition.worker=../src/test/resources/fake_worker.py
+ * so the Java side can be run without a camera.
+ */
+public class RecognitionWorker {
+
+    private static final String DEFAULT_SCRIPT = "recognize_worker.py";
+
+    private final String              python;
+    private final String              script;
+    private final File                workDir;
+    private final Map<String, String> env;      // added to the inherited environment
+
+    private Process        process;
+    private BufferedReader fromWorker;
+    private BufferedWriter toWorker;
+    private boolean        started  = false;
+    private int            restarts = 0;
+
+    public RecognitionWorker() {
+        this(System.getProperty("prison.python", PythonRunnerUtil.PYTHON),
+             System.getProperty("prison.recognition.worker", DEFAULT_SCRIPT),
+             new File(PythonRunnerUtil.PYTHON_DIR));
+    }
+
+    public RecognitionWorker(String python, String script, File workDir) {
+        this(python, script, workDir, Map.of());
+    }
+
+    /** env is passed to the script, e.g. the FAKE_* settings of fake_worker.py. */
+    public RecognitionWorker(String python, String script, File workDir, Map<String, String> env) {
+        this.python  = python;
+        this.script  = script;
+        this.workDir = workDir;
+        this.env     = env;
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  LIFECYCLE
+    // ══════════════════════════════════════════════════════════════════════
+    public synchronized void start() throws IOException {
+        if (isAlive()) return;
+
+        ProcessBuilder pb = new ProcessBuilder(python, "-u", script);
+        pb.directory(workDir);
+        pb.redirectErrorStream(true);
+        pb.environment().putAll(env);
+        process = pb.start();
+
+        fromWorker = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        toWorker = new BufferedWriter(
+                new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+        // Block until encodings are loaded so the first SCAN opens the camera at once
+        String ready = readReply(null);
+        if (ready == null || !ready.startsWith("READY")) {
+            stop();
+            throw new IOException("Recognition worker failed to start: " + ready);
+        }
+        started = true;
+        System.out.println("Recognition worker ready: " + ready);
+    }
+
+    public synchronized void stop() {
+        if (process == null) return;
+        try {
+            if (process.isAlive()) {
+                toWorker.write("QUIT");
+                toWorker.newLine();
+                toWorker.flush();
+            }
+        } catch (IOException ignored) {
+            // pipe already closed — process is on its way out
+        }
+        process.destroy();
+        process    = null;
+        fromWorker = null;
+        toWorker   = null;
+    }
+
+    public synchronized boolean isAlive() {
+        return process != null && process.isAlive();
+    }
+
+    public synchronized int getRestarts() { return restarts; }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  REQUEST / RESPONSE
+    // ══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Sends one command and returns the worker's reply line
+     * (e.g. "OK|DONE|SPACE"), or "ERROR|WORKER|0" if the worker could not
+     * be reached. Every FRAME| line received meanwhile is passed to onFrame
+     * and its return value is written back to the worker.
+     * A worker that died since the last call is restarted first; one that
+     * dies mid-request is restarted on the next call. If onFrame throws (a
+     * malformed FRAME| line, say) the worker is left mid-scan, so it is
+     * stopped too rather than let the next request read its leftover lines.
+     */
+    public synchronized String request(String command, UnaryOperator<String> onFrame) {
+        try {
+            if (!isAlive()) {
+                if (started) restarts++;
+                stop();
+                start();
+            }
+
+            send(command);
+
+            String reply = readReply(onFrame);
+            if (reply == null) {
+                System.err.println("Recognition worker exited during " + command);
+                stop();
+                return "ERROR|WORKER|0";
+            }
+            return reply;
+
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            stop();
+            return "ERROR|WORKER|0";
+        }
+    }
+
+    public String scan(UnaryOperator<String> onFrame) { return request("SCAN", onFrame); }
+    public String ping()                              { return request("PING", null); }
+
+    private void send(String line) throws IOException {
+        toWorker.write(line);
+        toWorker.newLine();
+        toWorker.flush();
+    }
+
+    private String readReply(UnaryOperator<String> onFrame) throws IOException {
+        String line;
+        while ((line = fromWorker.readLine()) != null) {
+            if (line.startsWith("FRAME|")) {
+                send(onFrame != null ? onFrame.apply(line) : "MATCH|UNKNOWN|0|");
+                continue;
+            }
+            if (line.startsWith("OK|") || line.startsWith("ERROR|") || line.startsWith("READY|")) {
+                return line;
+            }
+            System.out.println(line); // keep debug
+        }
+        return null;
+    }
+}
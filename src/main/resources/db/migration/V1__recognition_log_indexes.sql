@@ -0,0 +1,8 @@
+-- Log screen and dashboards: date ranges, newest-first paging, type filters.
+-- InnoDB appends the primary key (log_id) to every secondary index, so
+-- idx_rl_detected_at also serves ORDER BY detected_at DESC, log_id DESC.
+CREATE INDEX idx_rl_detected_at   ON recognition_logs (detected_at);
+
+-- person_type alone is the leading column of both composites below
+CREATE INDEX idx_rl_type_detected ON recognition_logs (person_type, detected_at);
+CREATE INDEX idx_rl_person        ON recognition_logs (person_type, person_id);
@@ -0,0 +1,10 @@
+-- Dashboard counters: status='IN_CUSTODY', and danger_level='HIGH' within it
+CREATE INDEX idx_prisoners_status_danger ON prisoners (status, danger_level);
+
+-- Cell occupancy: cell_no = ? AND status != 'RELEASED'
+CREATE INDEX idx_prisoners_cell_status   ON prisoners (cell_no, status);
+
+CREATE INDEX idx_guards_status           ON guards (status);
+
+-- Re-enrolment deletes a person's encodings by (person_type, person_ref_id)
+CREATE INDEX idx_fe_person               ON face_encodings (person_type, person_ref_id);
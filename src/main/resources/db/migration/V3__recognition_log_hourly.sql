@@ -0,0 +1,14 @@
+-- Events per hour, person type and result. RecognitionLogDao.saveBatch()
+-- adds each batch in the same transaction as its rows, and
+-- RecognitionRollupBackfill rebuilds days from recognition_logs. A day is
+-- at most 24 rows per (type, result), so dashboard and report totals read
+-- O(days) rows here instead of counting every event.
+-- History is not copied here: the backfill fills the days before the first
+-- rolled-up hour in the background, a day per transaction.
+CREATE TABLE recognition_log_hourly (
+    bucket_hour  DATETIME    NOT NULL,
+    person_type  VARCHAR(20) NOT NULL,
+    result       VARCHAR(50) NOT NULL,
+    events       INT         NOT NULL,
+    PRIMARY KEY (bucket_hour, person_type, result)
+);
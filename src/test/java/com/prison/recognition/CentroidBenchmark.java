@@ -0,0 +1,123 @@
+package com.prison.recognition;
+
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * Cost of matching against people with several samples each: the centroid
+ * pre-filter in FaceGallery against scoring every sample, and a check that
+ * both return the same people at the same distances.
+ *
+ *   java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes \
+ *        com.prison.recognition.CentroidBenchmark [people] [queries]
+ *
+ * Each person is a random identity; their samples are that identity plus
+ * per-retake noise. Probes are fresh retakes of enrolled people or strangers.
+ */
+public class CentroidBenchmark {
+
+    private static final float TOLERANCE = 0.45f;
+    private static final float RIVAL     = 0.50f;
+
+    public static void main(String[] args) {
+        int people  = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int dim     = FaceGallery.DIM;
+
+        FaceMatcher kernel = FaceMatchers.best();
+        System.out.printf("people=%,d  queries=%d  kernel=%s%n", people, queries, kernel.name());
+
+        for (int perPerson : new int[]{1, 2, 5, 10}) {
+            Random rnd  = new Random(42);
+            int    rows = people * perPerson;
+            float[] identity = new float[people * dim];
+            for (int i = 0; i < identity.length; i++) identity[i] = (float) (rnd.nextGaussian() * 0.09);
+
+            String[] labels  = new String[rows];
+            int[]    ids     = new int[rows];
+            int[]    samples = new int[rows];
+            float[]  vectors = new float[rows * dim];
+            for (int r = 0; r < rows; r++) {
+                int p = r / perPerson;
+                labels[r]  = p % 10 == 0 ? "GUARD" : "PRISONER";
+                ids[r]     = p;
+                samples[r] = r % perPerson;
+                for (int k = 0; k < dim; k++) {
+                    vectors[r * dim + k] = identity[p * dim + k] + (float) (rnd.nextGaussian() * 0.025);
+                }
+            }
+            FaceGallery gallery = FaceGallery.grouped(labels, ids, samples, vectors, rows);
+
+            float[][] probes = new float[queries][dim];
+            for (int q = 0; q < queries; q++) {
+                int p = rnd.nextInt(people);
+                for (int k = 0; k < dim; k++) {
+                    probes[q][k] = q % 2 == 0
+                            ? identity[p * dim + k] + (float) (rnd.nextGaussian() * 0.025)
+                            : (float) (rnd.nextGaussian() * 0.09);
+                }
+            }
+
+            for (int q = 0; q < queries; q++) {
+                FaceMatch[] fast = gallery.nearest(kernel, probes[q], RIVAL, 2);
+                FaceMatch[] all  = everySample(gallery, kernel, probes[q], RIVAL, 2);
+                if (!same(fast, all)) throw new AssertionError("probe " + q + " differs with " + perPerson + " samples");
+            }
+
+            double pruned = time(() -> {
+                int n = 0;
+                for (float[] p : probes) n += gallery.nearest(kernel, p, TOLERANCE, 2).length;
+                return n;
+            }, queries);
+            double brute = time(() -> {
+                int n = 0;
+                for (float[] p : probes) n += everySample(gallery, kernel, p, TOLERANCE, 2).length;
+                return n;
+            }, queries);
+            System.out.printf("%2d samples/person  rows=%,9d  centroid %8.3f ms/query  every sample %8.3f ms/query"
+                            + "  (%.1fx)  results identical%n",
+                    perPerson, rows, pruned, brute, brute / pruned);
+        }
+    }
+
+    /** Reference: every sample scored, each person kept at their closest one. */
+    private static FaceMatch[] everySample(FaceGallery g, FaceMatcher kernel, float[] probe, float max, int k) {
+        TopK top = new TopK(k);
+        float[] row = new float[FaceGallery.DIM];
+        for (int p = 0; p < g.persons(); p++) {
+            float best = Float.MAX_VALUE;
+            for (int r = g.firstRow(p); r < g.endRow(p); r++) {
+                g.copyRow(r, row);
+                best = Math.min(best, kernel.squaredDistance(probe, row, 0));
+            }
+            top.offer(p, best);
+        }
+        int[]   who  = new int[top.size()];
+        float[] dist = new float[top.size()];
+        int n = top.drainSorted(who, dist);
+        int within = 0;
+        while (within < n && dist[within] <= max * max) within++;
+        FaceMatch[] out = new FaceMatch[within];
+        for (int i = 0; i < within; i++) {
+            out[i] = new FaceMatch(g.label(who[i]), g.personId(who[i]), (float) Math.sqrt(dist[i]));
+        }
+        return out;
+    }
+
+    private static boolean same(FaceMatch[] a, FaceMatch[] b) {
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (!a[i].samePerson(b[i]) || a[i].getDistance() != b[i].getDistance()) return false;
+        }
+        return true;
+    }
+
+    private static double time(IntSupplier run, int queries) {
+        for (int r = 0; r < 3; r++) run.getAsInt();
+        long t0 = System.nanoTime();
+        int sink = run.getAsInt();
+        double ms = (System.nanoTime() - t0) / 1e6 / queries;
+        if (sink < 0) System.out.println(sink);
+        return ms;
+    }
+}
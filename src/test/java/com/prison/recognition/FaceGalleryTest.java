@@ -0,0 +1,213 @@
+package com.prison.recognition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * nearest() with the centroid pre-filter against scoring every sample of
+ * every person: same people, same order, same distances.
+ */
+class FaceGalleryTest {
+
+    private static final FaceMatcher[] KERNELS = {new ScalarFaceMatcher(), FaceMatchers.best()};
+    private static final int           DIM     = FaceGallery.DIM;
+
+    private final Random rnd = new Random(23);
+
+    private float[] gaussian(double sigma) {
+        float[] v = new float[DIM];
+        for (int k = 0; k < DIM; k++) v[k] = (float) (rnd.nextGaussian() * sigma);
+        return v;
+    }
+
+    private static float[] plus(float[] a, float[] b, float scale) {
+        float[] out = new float[DIM];
+        for (int k = 0; k < DIM; k++) out[k] = a[k] + b[k] * scale;
+        return out;
+    }
+
+    private static float[] unit(float[] v) {
+        double n = 0;
+        for (float x : v) n += x * x;
+        float[] out = new float[DIM];
+        for (int k = 0; k < DIM; k++) out[k] = (float) (v[k] / Math.sqrt(n));
+        return out;
+    }
+
+    /** Rows of a gallery under construction; person p is PRISONER p + 1. */
+    private static final class Rows {
+        final List<float[]> vectors = new ArrayList<>();
+        final List<Integer> ids     = new ArrayList<>();
+        final List<Integer> samples = new ArrayList<>();
+        int people;
+
+        int person(float[]... rows) {
+            people++;
+            for (int s = 0; s < rows.length; s++) {
+                vectors.add(rows[s]);
+                ids.add(people);
+                samples.add(s);
+            }
+            return people;
+        }
+
+        FaceGallery build() {
+            int n = vectors.size();
+            String[] labels = new String[n];
+            int[]    id     = new int[n];
+            int[]    sample = new int[n];
+            float[]  flat   = new float[n * DIM];
+            for (int r = 0; r < n; r++) {
+                labels[r] = "PRISONER";
+                id[r]     = ids.get(r);
+                sample[r] = samples.get(r);
+                System.arraycopy(vectors.get(r), 0, flat, r * DIM, DIM);
+            }
+            return FaceGallery.grouped(labels, id, sample, flat, n);
+        }
+    }
+
+    /** Closest sample per person, every row scored, nearest first and person index on ties. */
+    private static FaceMatch[] exhaustive(FaceGallery g, FaceMatcher m, float[] probe, float maxDistance, int k) {
+        float[]   dist  = new float[g.persons()];
+        Integer[] order = new Integer[g.persons()];
+        float[]   row   = new float[DIM];
+        for (int p = 0; p < g.persons(); p++) {
+            float best = Float.MAX_VALUE;
+            for (int r = g.firstRow(p); r < g.endRow(p); r++) {
+                g.copyRow(r, row);
+                best = Math.min(best, m.squaredDistance(probe, row, 0));
+            }
+            dist[p]  = best;
+            order[p] = p;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(p -> dist[p]).thenComparingInt(p -> p));
+
+        float max2 = maxDistance * maxDistance;
+        List<FaceMatch> out = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, order.length) && dist[order[i]] <= max2; i++) {
+            int p = order[i];
+            out.add(new FaceMatch(g.label(p), g.personId(p), (float) Math.sqrt(dist[p])));
+        }
+        return out.toArray(new FaceMatch[0]);
+    }
+
+    private static void assertSame(FaceMatch[] want, FaceMatch[] got, String what) {
+        assertEquals(Arrays.toString(want), Arrays.toString(got), what);
+        for (int i = 0; i < want.length; i++) {
+            assertEquals(want[i].getDistance(), got[i].getDistance(), what);
+        }
+    }
+
+    /** Smallest tolerance at which a person at squared distance d2 still matches. */
+    private static float toleranceFor(float d2) {
+        float t = (float) Math.sqrt(d2);
+        while (t * t < d2) t = Math.nextUp(t);
+        return t;
+    }
+
+    @Test
+    void multiSampleGalleryMatchesExhaustiveScan() {
+        Rows rows = new Rows();
+        List<float[]> identities = new ArrayList<>();
+        for (int p = 0; p < 300; p++) {
+            float[] id = gaussian(0.09);
+            identities.add(id);
+            float[][] samples = new float[1 + p % 4][];    // 1..4 samples, single-sample people included
+            for (int s = 0; s < samples.length; s++) samples[s] = plus(id, gaussian(0.02), 1f);
+            rows.person(samples);
+        }
+        FaceGallery g = rows.build();
+
+        for (FaceMatcher m : KERNELS) {
+            for (int q = 0; q < 60; q++) {
+                float[] probe = q % 2 == 0
+                        ? plus(identities.get(rnd.nextInt(identities.size())), gaussian(0.025), 1f)
+                        : gaussian(0.09);
+                for (float tolerance : new float[]{0.3f, 0.45f, 0.6f, 10f}) {
+                    for (int k : new int[]{1, 2, 5, 20}) {
+                        assertSame(exhaustive(g, m, probe, tolerance, k),
+                                g.nearest(m, probe, tolerance, k),
+                                m.name() + " q" + q + " tol " + tolerance + " k " + k);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The probe sits past a person's outermost sample, on the line from their
+     * centroid, at exactly the tolerance. The triangle bound is then tight, and
+     * the person is outside the shortlist because of the decoys: people whose
+     * centroid is on the probe but whose samples are all out of reach.
+     */
+    @Test
+    void probeAtExactToleranceBeyondTheShortlistStillMatches() {
+        for (FaceMatcher m : KERNELS) {
+            for (int samples : new int[]{1, 2, 3}) {
+                for (int trial = 0; trial < 25; trial++) {
+                    float[] centre = gaussian(0.09);
+                    float[] dir    = unit(gaussian(1));
+                    float   spread = samples == 1 ? 0f : 0.05f + rnd.nextFloat() * 0.2f;
+                    float   gap    = 0.2f + rnd.nextFloat() * 0.4f;
+                    float[] probe  = plus(centre, dir, spread + gap);
+
+                    Rows rows = new Rows();
+                    for (int d = 0; d < FaceGallery.SHORTLIST + 4; d++) {
+                        float[] away = unit(gaussian(1));
+                        rows.person(plus(probe, away, 1.5f), plus(probe, away, -1.5f));
+                    }
+                    float[][] own = new float[samples][];
+                    own[0] = plus(centre, dir, spread);
+                    for (int s = 1; s < samples; s++) own[s] = plus(centre, dir, -spread * s / (samples - 1));
+                    int target = rows.person(own);
+                    for (int p = 0; p < 40; p++) rows.person(gaussian(0.09), gaussian(0.09));
+                    FaceGallery g = rows.build();
+
+                    float[] row = new float[DIM];
+                    int person = g.indexOf("PRISONER", target);
+                    float d2 = Float.MAX_VALUE;
+                    for (int r = g.firstRow(person); r < g.endRow(person); r++) {
+                        g.copyRow(r, row);
+                        d2 = Math.min(d2, m.squaredDistance(probe, row, 0));
+                    }
+                    float tolerance = toleranceFor(d2);
+
+                    for (int k : new int[]{1, 3}) {
+                        FaceMatch[] want = exhaustive(g, m, probe, tolerance, k);
+                        assertTrue(want.length > 0 && want[0].getPersonId() == target);
+                        assertSame(want, g.nearest(m, probe, tolerance, k),
+                                m.name() + " samples " + samples + " trial " + trial + " k " + k);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void singleSamplePeopleUseThePlainScan() {
+        Rows rows = new Rows();
+        for (int p = 0; p < 100; p++) rows.person(gaussian(0.09));
+        FaceGallery g = rows.build();
+        for (FaceMatcher m : KERNELS) {
+            for (int q = 0; q < 30; q++) {
+                float[] probe = gaussian(0.09);
+                float[] row   = new float[DIM];
+                g.copyRow(rnd.nextInt(g.size()), row);
+                float tolerance = toleranceFor(m.squaredDistance(probe, row, 0));
+                for (int k : new int[]{1, 4}) {
+                    assertSame(exhaustive(g, m, probe, tolerance, k), g.nearest(m, probe, tolerance, k),
+                            m.name() + " q" + q + " k " + k);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.prison.recognition;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Recall and latency of HnswIndex against the exact scan.
+ *
+ *   java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes \
+ *        com.prison.recognition.HnswBenchmark [gallerySize] [queries] [intrinsicDim]
+ *
+ * Face encodings are not spread evenly over all 128 dimensions, so the
+ * synthetic gallery is drawn from an intrinsicDim-dimensional subspace plus a
+ * little isotropic noise (pass 128 for the fully isotropic worst case).
+ * Probes are enrolled encodings plus per-frame noise, the way a live camera
+ * frame relates to the stored encoding. recall@1 is the share of probes for
+ * which the index returns the same row as the exact scan.
+ */
+public class HnswBenchmark {
+
+    private static final int[] EF_SEARCH = {16, 32, 64, 128, 256};
+
+    public static void main(String[] args) throws Exception {
+        int size    = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int latent  = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        int dim     = FaceGallery.DIM;
+
+        Random rnd = new Random(42);
+        float[] basis = new float[latent * dim];
+        for (int i = 0; i < basis.length; i++) basis[i] = (float) (rnd.nextGaussian() / Math.sqrt(latent));
+        float[] rows = new float[size * dim];
+        float[] z = new float[latent];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < latent; j++) z[j] = (float) (rnd.nextGaussian() * 0.09);
+            for (int k = 0; k < dim; k++) {
+                float v = (float) (rnd.nextGaussian() * 0.01);
+                for (int j = 0; j < latent; j++) v += z[j] * basis[j * dim + k];
+                rows[i * dim + k] = v;
+            }
+        }
+
+        float[][] probes = new float[queries][dim];
+        for (float[] p : probes) {
+            int base = rnd.nextInt(size) * dim;
+            for (int k = 0; k < dim; k++) p[k] = rows[base + k] + (float) (rnd.nextGaussian() * 0.03);
+        }
+
+        FaceMatcher kernel = FaceMatchers.best();
+        System.out.printf("gallery=%,d x %d (intrinsic %d)  queries=%d  kernel=%s%n",
+                size, dim, latent, queries, kernel.name());
+
+        // ── Exact reference ──
+        int[] expected = new int[queries];
+        for (int r = 0; r < 2; r++) for (float[] p : probes) kernel.nearest(p, rows, 0, size);
+        long t0 = System.nanoTime();
+        for (int q = 0; q < queries; q++) expected[q] = kernel.nearest(probes[q], rows, 0, size).index;
+        double exactMs = (System.nanoTime() - t0) / 1e6 / queries;
+        System.out.printf("exact          %8.3f ms/query%n", exactMs);
+
+        // ── Build ──
+        HnswIndex index = new HnswIndex(dim, HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION, kernel);
+        float[] row = new float[dim];
+        t0 = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(rows, i * dim, row, 0, dim);
+            index.upsert("PRISONER", i, row);
+        }
+        System.out.printf("build          %8.1f s (M=%d, efConstruction=%d)%n",
+                (System.nanoTime() - t0) / 1e9, HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION);
+
+        // ── Persist / reload ──
+        Path file = Files.createTempFile("gallery", ".hnsw");
+        t0 = System.nanoTime();
+        index.save(file);
+        long saveNs = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        index = HnswIndex.load(file, kernel);
+        System.out.printf("save %.0f ms, load %.0f ms, %,d bytes%n",
+                saveNs / 1e6, (System.nanoTime() - t0) / 1e6, Files.size(file));
+        Files.delete(file);
+
+        // ── Recall / latency per efSearch ──
+        float unlimited = Float.MAX_VALUE / 4;
+        for (int ef : EF_SEARCH) {
+            index.setEfSearch(ef);
+            for (float[] p : probes) index.nearest(p, unlimited);
+
+            int hits = 0;
+            t0 = System.nanoTime();
+            for (int q = 0; q < queries; q++) {
+                FaceMatch m = index.nearest(probes[q], unlimited);
+                if (m != null && m.getPersonId() == expected[q]) hits++;
+            }
+            double ms = (System.nanoTime() - t0) / 1e6 / queries;
+            System.out.printf("efSearch=%-4d  recall@1 %6.4f  %8.3f ms/query  %6.1fx vs exact%n",
+                    ef, hits / (double) queries, ms, exactMs / ms);
+        }
+
+        // ── Delete: removed rows must never be returned ──
+        for (int q = 0; q < Math.min(queries, 100); q++) index.remove("PRISONER", expected[q]);
+        for (int q = 0; q < Math.min(queries, 100); q++) {
+            FaceMatch m = index.nearest(probes[q], unlimited);
+            if (m != null && m.getPersonId() == expected[q]) throw new AssertionError("deleted row returned");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.prison.recognition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** The checksum that tells a saved graph whether it still matches the gallery. */
+class HnswIndexTest {
+
+    private static final FaceMatcher KERNEL = new ScalarFaceMatcher();
+
+    private static FaceGallery gallery(int people, long seed) {
+        Random rnd = new Random(seed);
+        String[] labels  = new String[people];
+        int[]    ids     = new int[people];
+        int[]    samples = new int[people];
+        float[]  vectors = new float[people * FaceGallery.DIM];
+        for (int i = 0; i < people; i++) {
+            labels[i] = i % 2 == 0 ? "GUARD" : "PRISONER";
+            ids[i]    = i + 1;
+            for (int k = 0; k < FaceGallery.DIM; k++) vectors[i * FaceGallery.DIM + k] = (float) rnd.nextGaussian();
+        }
+        return FaceGallery.grouped(labels, ids, samples, vectors, people);
+    }
+
+    private static float[] randomSample(long seed) {
+        Random rnd = new Random(seed);
+        float[] v = new float[FaceGallery.DIM];
+        for (int k = 0; k < v.length; k++) v[k] = (float) rnd.nextGaussian();
+        return v;
+    }
+
+    @Test
+    void checksumMatchesTheGalleryItWasBuiltFrom() {
+        FaceGallery g = gallery(200, 1);
+        assertEquals(HnswIndex.checksum(g), HnswIndex.build(KERNEL, g).checksum());
+        // Segment boundaries and row order do not matter
+        assertEquals(HnswIndex.checksum(g), HnswIndex.checksum(g.slice(0, 70), g.slice(70, 200)));
+    }
+
+    @Test
+    void retakeWithTheSameSampleCountChangesTheChecksum() {
+        FaceGallery g = gallery(200, 1);
+        HnswIndex index = HnswIndex.build(KERNEL, g);
+        long before = index.checksum();
+
+        index.upsert("GUARD", 1, randomSample(99));
+        assertEquals(200, index.size());
+        assertNotEquals(before, index.checksum());
+
+        FaceGallery person = FaceGallery.grouped(new String[] {"GUARD"}, new int[] {1}, new int[1],
+                randomSample(99), 1);
+        assertEquals(HnswIndex.checksum(g.replace("GUARD", 1, person)), index.checksum());
+    }
+
+    @Test
+    void deletePlusEnrolmentChangesTheChecksum() {
+        HnswIndex index = HnswIndex.build(KERNEL, gallery(200, 1));
+        long before = index.checksum();
+        index.remove("PRISONER", 2);
+        index.upsert("PRISONER", 500, randomSample(7));
+        assertEquals(200, index.size());
+        assertNotEquals(before, index.checksum());
+    }
+
+    @Test
+    void checksumSurvivesSaveAndLoad(@TempDir Path dir) throws IOException {
+        HnswIndex index = HnswIndex.build(KERNEL, gallery(300, 3));
+        index.remove("GUARD", 5);
+        Path file = dir.resolve("gallery.hnsw");
+        index.save(file);
+        assertEquals(index.checksum(), HnswIndex.load(file, KERNEL).checksum());
+    }
+
+    @Test
+    void corruptVectorIsRejectedOnLoad(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("gallery.hnsw");
+        HnswIndex.build(KERNEL, gallery(50, 4)).save(file);
+        byte[] bytes = Files.readAllBytes(file);
+        // First vector starts after the 44-byte header and the node's type/id/deleted/level
+        bytes[44 + 13 + 2] ^= 0x40;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> HnswIndex.load(file, KERNEL));
+    }
+}
@@ -0,0 +1,115 @@
+package com.prison.recognition;
+
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * LiveGallery's segmented search: segments fanned out over the
+ * ParallelFaceMatcher pool against the same segments searched in turn on
+ * one thread, for single- and multi-sample galleries. Both must return the
+ * same people at the same distances as one unsegmented FaceGallery, and the
+ * pool's forkedSearches() counter shows the parallel path actually ran.
+ *
+ *   java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes \
+ *        com.prison.recognition.LiveGalleryBenchmark [people] [queries] [threads]
+ *
+ * threads defaults to the core count; with one core the pool is bypassed,
+ * so pass 2 or more there to exercise the parallel path anyway.
+ */
+public class LiveGalleryBenchmark {
+
+    private static final float TOLERANCE = 0.45f;
+    private static final float RIVAL     = 0.50f;
+
+    public static void main(String[] args) {
+        int people  = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int dim     = FaceGallery.DIM;
+
+        FaceMatcher         kernel   = FaceMatchers.best();
+        ParallelFaceMatcher parallel = new ParallelFaceMatcher(kernel, threads,
+                ParallelFaceMatcher.PARALLEL_THRESHOLD);
+        System.out.printf("people=%,d  queries=%d  segment=%,d people  threshold=%,d rows  %s%n",
+                people, queries, LiveGallery.SEGMENT_PERSONS, parallel.threshold(), parallel.name());
+
+        for (int perPerson : new int[]{1, 3}) {
+            Random rnd  = new Random(42);
+            int    rows = people * perPerson;
+            float[] identity = new float[people * dim];
+            for (int i = 0; i < identity.length; i++) identity[i] = (float) (rnd.nextGaussian() * 0.09);
+
+            String[] labels  = new String[rows];
+            int[]    ids     = new int[rows];
+            int[]    samples = new int[rows];
+            float[]  vectors = new float[rows * dim];
+            for (int r = 0; r < rows; r++) {
+                int p = r / perPerson;
+                labels[r]  = p % 10 == 0 ? "GUARD" : "PRISONER";
+                ids[r]     = p;
+                samples[r] = r % perPerson;
+                for (int k = 0; k < dim; k++) {
+                    vectors[r * dim + k] = identity[p * dim + k] + (float) (rnd.nextGaussian() * 0.025);
+                }
+            }
+            FaceGallery whole  = FaceGallery.grouped(labels, ids, samples, vectors, rows);
+            LiveGallery fanned = new LiveGallery(whole, parallel);
+            LiveGallery serial = new LiveGallery(whole, kernel);
+
+            float[][] probes = new float[queries][dim];
+            for (int q = 0; q < queries; q++) {
+                int p = rnd.nextInt(people);
+                for (int k = 0; k < dim; k++) {
+                    probes[q][k] = q % 2 == 0
+                            ? identity[p * dim + k] + (float) (rnd.nextGaussian() * 0.025)
+                            : (float) (rnd.nextGaussian() * 0.09);
+                }
+            }
+
+            for (int q = 0; q < queries; q++) {
+                FaceMatch[] expect = whole.nearest(kernel, probes[q], RIVAL, 2);
+                if (!same(expect, fanned.nearest(probes[q], RIVAL, 2))
+                        || !same(expect, serial.nearest(probes[q], RIVAL, 2))) {
+                    throw new AssertionError("probe " + q + " differs with " + perPerson + " samples");
+                }
+            }
+
+            long before = parallel.forkedSearches();
+            double fannedMs = time(() -> {
+                int n = 0;
+                for (float[] p : probes) n += fanned.nearest(p, TOLERANCE, 2).length;
+                return n;
+            }, queries);
+            long forked = parallel.forkedSearches() - before;
+            double serialMs = time(() -> {
+                int n = 0;
+                for (float[] p : probes) n += serial.nearest(p, TOLERANCE, 2).length;
+                return n;
+            }, queries);
+
+            System.out.printf("%d samples/person  rows=%,9d  segments=%d  parallel %7.3f ms/query"
+                            + "  serial %7.3f ms/query  (%.1fx)  on the pool: %,d of %,d searches  results identical%n",
+                    perPerson, rows, fanned.segments().length, fannedMs, serialMs, serialMs / fannedMs,
+                    forked, 4L * queries);
+        }
+        parallel.shutdown();
+    }
+
+    private static boolean same(FaceMatch[] a, FaceMatch[] b) {
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (!a[i].samePerson(b[i]) || a[i].getDistance() != b[i].getDistance()) return false;
+        }
+        return true;
+    }
+
+    /** Three warm-up passes and one timed one; time() runs 4 passes in all. */
+    private static double time(IntSupplier run, int queries) {
+        for (int r = 0; r < 3; r++) run.getAsInt();
+        long t0 = System.nanoTime();
+        int sink = run.getAsInt();
+        double ms = (System.nanoTime() - t0) / 1e6 / queries;
+        if (sink < 0) System.out.println(sink);
+        return ms;
+    }
+}
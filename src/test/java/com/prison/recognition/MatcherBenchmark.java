@@ -0,0 +1,95 @@
+package com.prison.recognition;
+
+import java.util.Random;
+
+/**
+ * Throughput of the gallery scan: scalar loop, Vector API kernel, and the
+ * vector kernel fanned out over cores by ParallelFaceMatcher.
+ *
+ *   java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes \
+ *        com.prison.recognition.MatcherBenchmark [gallerySize] [queries]
+ *
+ * Uses a synthetic gallery of unit-scale 128-d encodings; all matchers scan
+ * the same rows with the same probes and must agree on every best index.
+ * Also times the top-2 scan used for ambiguity detection against best-only.
+ */
+public class MatcherBenchmark {
+
+    public static void main(String[] args) {
+        int size    = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int dim     = FaceGallery.DIM;
+
+        Random rnd = new Random(42);
+        float[] rows = new float[size * dim];
+        for (int i = 0; i < rows.length; i++) rows[i] = (float) (rnd.nextGaussian() * 0.09);
+        float[][] probes = new float[queries][dim];
+        for (float[] p : probes) for (int k = 0; k < dim; k++) p[k] = (float) (rnd.nextGaussian() * 0.09);
+
+        FaceMatcher scalar = new ScalarFaceMatcher();
+        FaceMatcher vector = FaceMatchers.best();
+        ParallelFaceMatcher parallel = new ParallelFaceMatcher(vector);
+
+        System.out.printf("gallery=%,d x %d  queries=%d%n", size, dim, queries);
+        double scalarRate = run(scalar, probes, rows, size);
+        double vectorRate = run(vector, probes, rows, size);
+        double parallelRate = run(parallel, probes, rows, size);
+        System.out.printf("speedup %s vs %s: %.2fx%n", vector.name(), scalar.name(), vectorRate / scalarRate);
+        System.out.printf("speedup %s vs %s: %.2fx%n", parallel.name(), scalar.name(), parallelRate / scalarRate);
+
+        double top2Rate = runTopK(vector, probes, rows, size, 2);
+        System.out.printf("top-2 vs best-only on %s: %.2fx the time%n", vector.name(), vectorRate / top2Rate);
+
+        TopK top = new TopK(2);
+        int[]   idx  = new int[2];
+        float[] dist = new float[2];
+        for (float[] p : probes) {
+            int expected = scalar.nearest(p, rows, 0, size).index;
+            if (vector.nearest(p, rows, 0, size).index != expected
+                    || parallel.nearest(p, rows, 0, size).index != expected)
+                throw new AssertionError("matchers disagree");
+            for (FaceMatcher m : new FaceMatcher[]{scalar, vector, parallel}) {
+                top.clear();
+                m.topK(p, rows, 0, size, top);
+                top.drainSorted(idx, dist);
+                if (idx[0] != expected) throw new AssertionError(m.name() + ": top-2 disagrees with best");
+            }
+        }
+        parallel.shutdown();
+    }
+
+    private static double runTopK(FaceMatcher m, float[][] probes, float[] rows, int size, int k) {
+        TopK top = new TopK(k);
+        for (int r = 0; r < 3; r++) for (float[] p : probes) { top.clear(); m.topK(p, rows, 0, size, top); }
+
+        long sink = 0;
+        long t0 = System.nanoTime();
+        for (float[] p : probes) {
+            top.clear();
+            m.topK(p, rows, 0, size, top);
+            sink += top.size();
+        }
+        long ns = System.nanoTime() - t0;
+
+        double qps = probes.length / (ns / 1e9);
+        System.out.printf("%-14s %8.1f queries/s  %7.1f M rows/s  %7.3f ms/query  (top-%d, sink %d)%n",
+                m.name(), qps, qps * size / 1e6, ns / 1e6 / probes.length, k, sink);
+        return qps;
+    }
+
+    private static double run(FaceMatcher m, float[][] probes, float[] rows, int size) {
+        // Warm-up so C2 has compiled the kernel before timing
+        for (int r = 0; r < 3; r++) for (float[] p : probes) m.nearest(p, rows, 0, size);
+
+        long sink = 0;
+        long t0 = System.nanoTime();
+        for (float[] p : probes) sink += m.nearest(p, rows, 0, size).index;
+        long ns = System.nanoTime() - t0;
+
+        double qps  = probes.length / (ns / 1e9);
+        double rowsPerSec = qps * size;
+        System.out.printf("%-14s %8.1f queries/s  %7.1f M rows/s  %7.3f ms/query  (sink %d)%n",
+                m.name(), qps, rowsPerSec / 1e6, ns / 1e6 / probes.length, sink);
+        return qps;
+    }
+}
@@ -0,0 +1,101 @@
+package com.prison.recognition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The block-split scan must return exactly what one pass of its kernel
+ * returns, on both sides of the threshold and when the range does not
+ * divide into whole blocks. Four pool threads are used so the forked path
+ * runs even on a single-core machine.
+ */
+class ParallelFaceMatcherTest {
+
+    private static final int   DIM       = FaceGallery.DIM;
+    private static final int   THRESHOLD = ParallelFaceMatcher.PARALLEL_THRESHOLD;
+    private static final int   BLOCK     = ParallelFaceMatcher.BLOCK_ROWS;
+    private static final int[] SIZES     = {
+            BLOCK - 1, THRESHOLD - 1, THRESHOLD, THRESHOLD + 1,
+            THRESHOLD + BLOCK - 1, THRESHOLD + 3 * BLOCK + 517};
+
+    private final FaceMatcher         scalar   = new ScalarFaceMatcher();
+    private final ParallelFaceMatcher parallel = new ParallelFaceMatcher(scalar, 4, THRESHOLD);
+    private final Random              rnd      = new Random(17);
+
+    @AfterEach
+    void stopPool() {
+        parallel.shutdown();
+    }
+
+    private float[] random(int n) {
+        float[] v = new float[n];
+        for (int i = 0; i < n; i++) v[i] = (float) (rnd.nextGaussian() * 0.09);
+        return v;
+    }
+
+    /**
+     * Random rows, with row 7 copied into the last block so a probe equal to
+     * it ties across blocks and the lower index has to win.
+     */
+    private float[] gallery(int size) {
+        float[] rows = random(size * DIM);
+        System.arraycopy(rows, 7 * DIM, rows, (size - 2) * DIM, DIM);
+        return rows;
+    }
+
+    private float[][] probes(float[] rows) {
+        float[][] probes = new float[8][];
+        for (int q = 0; q < probes.length - 1; q++) probes[q] = random(DIM);
+        probes[probes.length - 1] = new float[DIM];
+        System.arraycopy(rows, 7 * DIM, probes[probes.length - 1], 0, DIM);
+        return probes;
+    }
+
+    @Test
+    void nearestMatchesScalar() {
+        for (int size : SIZES) {
+            float[] rows = gallery(size);
+            for (float[] probe : probes(rows)) {
+                for (int from : new int[]{0, 3}) {
+                    long before = parallel.forkedSearches();
+                    FaceMatcher.Nearest want = scalar.nearest(probe, rows, from, size);
+                    FaceMatcher.Nearest got  = parallel.nearest(probe, rows, from, size);
+                    assertEquals(want.index, got.index, "size " + size + " from " + from);
+                    assertEquals(want.squaredDistance, got.squaredDistance);
+                    assertEquals(size - from >= THRESHOLD ? 1 : 0, parallel.forkedSearches() - before,
+                            "size " + size + " from " + from);
+                }
+            }
+        }
+    }
+
+    @Test
+    void topKMatchesScalar() {
+        for (int size : SIZES) {
+            float[] rows = gallery(size);
+            for (float[] probe : probes(rows)) {
+                for (int k : new int[]{1, 2, 10}) {
+                    TopK want = new TopK(k);
+                    TopK got  = new TopK(k);
+                    long before = parallel.forkedSearches();
+                    scalar.topK(probe, rows, 0, size, want);
+                    parallel.topK(probe, rows, 0, size, got);
+                    assertEquals(size >= THRESHOLD ? 1 : 0, parallel.forkedSearches() - before);
+
+                    int[]   wantRows = new int[k];
+                    int[]   gotRows  = new int[k];
+                    float[] wantDist = new float[k];
+                    float[] gotDist  = new float[k];
+                    assertEquals(want.drainSorted(wantRows, wantDist), got.drainSorted(gotRows, gotDist));
+                    assertArrayEquals(wantRows, gotRows, "size " + size + " k " + k);
+                    assertArrayEquals(wantDist, gotDist, "size " + size + " k " + k);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.prison.recognition;
+
+import com.prison.util.GalleryFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Memory and scan speed of QuantizedGallery (int8, float16) against the
+ * exact float32 scan, and a check that every match decision at the service
+ * tolerance is identical.
+ *
+ *   java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes \
+ *        com.prison.recognition.QuantizedBenchmark [gallerySize] [queries]
+ *
+ * Half the probes are enrolled encodings plus per-frame noise sized so their
+ * distance straddles the 0.45 tolerance; the other half are strangers.
+ */
+public class QuantizedBenchmark {
+
+    private static final float TOLERANCE = 0.45f;
+
+    public static void main(String[] args) throws Exception {
+        int size    = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int dim     = FaceGallery.DIM;
+
+        Random rnd = new Random(42);
+        float[] rows = new float[size * dim];
+        for (int i = 0; i < rows.length; i++) rows[i] = (float) (rnd.nextGaussian() * 0.09);
+        int[] types = new int[size];
+        int[] ids   = new int[size];
+        for (int i = 0; i < size; i++) {
+            types[i] = i % 10 == 0 ? GalleryFile.GUARD : GalleryFile.PRISONER;
+            ids[i]   = i;
+        }
+
+        float[][] probes = new float[queries][dim];
+        for (int q = 0; q < queries; q++) {
+            if (q % 2 == 0) {
+                int base = rnd.nextInt(size) * dim;
+                for (int k = 0; k < dim; k++) probes[q][k] = rows[base + k] + (float) (rnd.nextGaussian() * 0.04);
+            } else {
+                for (int k = 0; k < dim; k++) probes[q][k] = (float) (rnd.nextGaussian() * 0.09);
+            }
+        }
+
+        Path file = Files.createTempFile("gallery", ".pfg");
+        GalleryFile.write(file, dim, size, types, ids, new int[size], rows);
+
+        FaceMatcher kernel = FaceMatchers.best();
+        FaceGallery exact  = FaceGallery.open(file, null);
+        FaceSearch  exactSearch = (p, max, k) -> exact.nearest(kernel, p, max, k);
+        long exactBytes = (long) size * dim * Float.BYTES + (long) size * 12;
+
+        System.out.printf("gallery=%,d x %d  queries=%d  kernel=%s  tolerance=%.2f%n",
+                size, dim, queries, kernel.name(), TOLERANCE);
+        System.out.printf("float64 .npy equivalent  %,12d bytes%n", (long) size * dim * Double.BYTES);
+        FaceMatch[] expected = new FaceMatch[queries];
+        double exactMs = run("float32 exact", exactSearch, probes, expected, null);
+        System.out.printf("%-22s heap %,12d bytes%n", "float32 exact", exactBytes);
+
+        for (QuantizedGallery.Encoding enc : QuantizedGallery.Encoding.values()) {
+            QuantizedGallery q = QuantizedGallery.map(file, enc, kernel);
+            String name = q.kernelName() + "+rerank";
+            double ms = run(name, q, probes, null, expected);
+            System.out.printf("%-22s heap %,12d bytes  (%.1fx smaller than float32, %.1fx than float64)"
+                            + "  maxError %.4f  speedup %.2fx%n",
+                    name, q.heapBytes(), exactBytes / (double) q.heapBytes(),
+                    2.0 * exactBytes / q.heapBytes(), q.maxError(), exactMs / ms);
+        }
+        Files.delete(file);
+    }
+
+    private static double run(String name, FaceSearch search, float[][] probes,
+                              FaceMatch[] record, FaceMatch[] expected) {
+        for (int r = 0; r < 3; r++) for (float[] p : probes) search.nearest(p, TOLERANCE);
+
+        int matches = 0;
+        long t0 = System.nanoTime();
+        for (int q = 0; q < probes.length; q++) {
+            FaceMatch m = search.nearest(probes[q], TOLERANCE);
+            if (m != null) matches++;
+            if (record != null) record[q] = m;
+            if (expected != null && !same(m, expected[q]))
+                throw new AssertionError(name + ": decision differs on probe " + q + ": " + m + " vs " + expected[q]);
+        }
+        double ms = (System.nanoTime() - t0) / 1e6 / probes.length;
+        System.out.printf("%-22s %8.3f ms/query  %d/%d matched within tolerance%n",
+                name, ms, matches, probes.length);
+        return ms;
+    }
+
+    private static boolean same(FaceMatch a, FaceMatch b) {
+        if (a == null || b == null) return a == b;
+        return a.samePerson(b) && a.getDistance() == b.getDistance();
+    }
+}
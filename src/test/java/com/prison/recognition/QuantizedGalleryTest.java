@@ -0,0 +1,136 @@
+package com.prison.recognition;
+
+import com.prison.util.GalleryFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * replace() against gallery.pfg updated the way PythonRunnerUtil does it:
+ * the result must match both a fresh build from the file and the exact scan.
+ */
+class QuantizedGalleryTest {
+
+    private static final FaceMatcher KERNEL    = new ScalarFaceMatcher();
+    private static final float       TOLERANCE = 0.6f;
+
+    private final Random rnd = new Random(11);
+
+    private float[] sample() {
+        float[] v = new float[FaceGallery.DIM];
+        for (int k = 0; k < v.length; k++) v[k] = (float) (rnd.nextGaussian() * 0.09);
+        return v;
+    }
+
+    /** people persons with two samples each, person p has id p + 1. */
+    private Path packed(Path dir, int people) throws IOException {
+        int n = people * 2;
+        int[]   types   = new int[n];
+        int[]   ids     = new int[n];
+        int[]   samples = new int[n];
+        float[] vectors = new float[n * FaceGallery.DIM];
+        for (int r = 0; r < n; r++) {
+            types[r]   = r % 4 < 2 ? GalleryFile.GUARD : GalleryFile.PRISONER;
+            ids[r]     = r / 2 + 1;
+            samples[r] = r % 2;
+            System.arraycopy(sample(), 0, vectors, r * FaceGallery.DIM, FaceGallery.DIM);
+        }
+        Path file = dir.resolve("gallery.pfg");
+        GalleryFile.write(file, FaceGallery.DIM, n, types, ids, samples, vectors);
+        return file;
+    }
+
+    /** Same steps as PythonRunnerUtil.packEncoding(); returns the person's new rows. */
+    private FaceGallery retake(Path file, String label, int id, int samples) throws IOException {
+        int type = GalleryFile.typeOf(label);
+        GalleryFile.remove(file, type, id);
+        String[] labels = new String[samples];
+        int[]    ids    = new int[samples];
+        int[]    nums   = new int[samples];
+        float[]  rows   = new float[samples * FaceGallery.DIM];
+        for (int s = 0; s < samples; s++) {
+            float[] v = sample();
+            GalleryFile.upsert(file, type, id, s, v);
+            labels[s] = label;
+            ids[s]    = id;
+            nums[s]   = s;
+            System.arraycopy(v, 0, rows, s * FaceGallery.DIM, FaceGallery.DIM);
+        }
+        return FaceGallery.grouped(labels, ids, nums, rows, samples);
+    }
+
+    private void assertSameAsFresh(QuantizedGallery q, Path file, QuantizedGallery.Encoding enc) throws IOException {
+        QuantizedGallery fresh = QuantizedGallery.map(file, enc, KERNEL);
+        FaceGallery      exact = FaceGallery.open(file, file.getParent().toFile());
+        assertEquals(fresh.size(), q.size());
+        for (int i = 0; i < 200; i++) {
+            float[] probe = sample();
+            FaceMatch[] want = exact.nearest(KERNEL, probe, TOLERANCE, 3);
+            FaceMatch[] got  = q.nearest(probe, TOLERANCE, 3);
+            assertEquals(want.length, got.length);
+            for (int j = 0; j < want.length; j++) {
+                assertEquals(want[j].getLabel(), got[j].getLabel());
+                assertEquals(want[j].getPersonId(), got[j].getPersonId());
+                assertEquals(want[j].getDistance(), got[j].getDistance());
+            }
+        }
+    }
+
+    @Test
+    void retakeAndDeleteMatchAFreshBuild(@TempDir Path dir) throws IOException {
+        for (QuantizedGallery.Encoding enc : QuantizedGallery.Encoding.values()) {
+            Path file = packed(dir, 60);
+            QuantizedGallery q = QuantizedGallery.map(file, enc, KERNEL);
+
+            q.replace("GUARD", 1, retake(file, "GUARD", 1, 3));         // one more sample
+            q.replace("PRISONER", 4, retake(file, "PRISONER", 4, 1));   // one fewer
+            GalleryFile.remove(file, GalleryFile.GUARD, 5);
+            q.replace("GUARD", 5, FaceGallery.empty());
+            q.replace("PRISONER", 500, retake(file, "PRISONER", 500, 2)); // new person
+
+            assertEquals(120 + 1 - 1 - 2 + 2, q.size());
+            assertSameAsFresh(q, file, enc);
+        }
+    }
+
+    @Test
+    void enrolmentThatGrowsTheFileStaysInStep(@TempDir Path dir) throws IOException {
+        Path file = packed(dir, 127);                                    // 254 of 256 slots
+        QuantizedGallery q = QuantizedGallery.map(file, QuantizedGallery.Encoding.INT8, KERNEL);
+        for (int id = 1000; id < 1003; id++) q.replace("GUARD", id, retake(file, "GUARD", id, 2));
+        assertEquals(260, q.size());
+        assertSameAsFresh(q, file, QuantizedGallery.Encoding.INT8);
+    }
+
+    @Test
+    void fileChangedBehindItsBackIsReEncoded(@TempDir Path dir) throws IOException {
+        Path file = packed(dir, 40);
+        QuantizedGallery q = QuantizedGallery.map(file, QuantizedGallery.Encoding.INT8, KERNEL);
+        GalleryFile.remove(file, GalleryFile.PRISONER, 2);               // never reported
+        q.replace("GUARD", 3, retake(file, "GUARD", 3, 2));
+        assertEquals(78, q.size());
+        assertSameAsFresh(q, file, QuantizedGallery.Encoding.INT8);
+    }
+
+    @Test
+    void outOfRangeSampleStillMatchesExactly(@TempDir Path dir) throws IOException {
+        Path file = packed(dir, 40);
+        QuantizedGallery q = QuantizedGallery.map(file, QuantizedGallery.Encoding.INT8, KERNEL);
+        float[] far = new float[FaceGallery.DIM];
+        Arrays.fill(far, 1.5f);
+        GalleryFile.remove(file, GalleryFile.GUARD, 7);
+        GalleryFile.upsert(file, GalleryFile.GUARD, 7, 0, far);
+        q.replace("GUARD", 7, FaceGallery.grouped(new String[] {"GUARD"}, new int[] {7}, new int[1], far, 1));
+
+        FaceMatch[] hit = q.nearest(far, TOLERANCE, 1);
+        assertEquals("GUARD", hit[0].getLabel());
+        assertEquals(7, hit[0].getPersonId());
+        assertEquals(0f, hit[0].getDistance());
+    }
+}
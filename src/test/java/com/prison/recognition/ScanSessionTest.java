@@ -0,0 +1,165 @@
+package com.prison.recognition;
+
+import com.prison.util.RecognitionWorker;
+import com.prison.util.WorkerFixture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Confirmation policy and the "OK|LABEL|ID|DISTANCE|RIVAL|MARGIN" answer,
+ * first frame by frame and then through fake_worker.py.
+ */
+class ScanSessionTest {
+
+    private static final float TOLERANCE = 0.5f;
+    private static final float AMBIGUITY = 0.1f;
+
+    private static final FaceMatch GUARD_1    = new FaceMatch("GUARD", 1, 0.30f);
+    private static final FaceMatch PRISONER_2 = new FaceMatch("PRISONER", 2, 0.35f);
+
+    /** Search that always answers the given matches, nearest first. */
+    private static FaceSearch answering(FaceMatch... top) {
+        return (probe, maxDistance, k) -> Arrays.stream(top)
+                .filter(m -> m.getDistance() <= maxDistance)
+                .limit(k)
+                .toArray(FaceMatch[]::new);
+    }
+
+    private static String frame(float value) {
+        StringJoiner csv = new StringJoiner(",", "FRAME|1|", "");
+        for (int k = 0; k < FaceGallery.DIM; k++) csv.add(Float.toString(value));
+        return csv.toString();
+    }
+
+    @Test
+    void identityIsOnlyConfirmedAfterConfirmFramesInARow() {
+        ScanSession s = new ScanSession(answering(GUARD_1), TOLERANCE, AMBIGUITY, 3);
+        assertEquals("MATCH|UNKNOWN|0|GUARD:1", s.onFrame(frame(0)));
+        assertEquals("MATCH|UNKNOWN|0|GUARD:1", s.onFrame(frame(0)));
+        assertEquals("MATCH|GUARD|1|GUARD:1",   s.onFrame(frame(0)));
+    }
+
+    @Test
+    void frameWithoutFacesBreaksTheRun() {
+        ScanSession s = new ScanSession(answering(GUARD_1), TOLERANCE, AMBIGUITY, 2);
+        s.onFrame(frame(0));
+        assertEquals("MATCH|UNKNOWN|0|", s.onFrame("FRAME|0|"));
+        assertEquals("MATCH|UNKNOWN|0|GUARD:1", s.onFrame(frame(0)));
+        assertEquals("OK|UNKNOWN|0", s.result("OK|DONE|SPACE"));
+    }
+
+    @Test
+    void clearMatchHasNoRival() {
+        ScanSession s = new ScanSession(answering(GUARD_1), TOLERANCE, AMBIGUITY, 2);
+        s.onFrame(frame(0));
+        s.onFrame(frame(0));
+        assertEquals("OK|GUARD|1|0.3000", s.result("OK|DONE|SPACE"));
+    }
+
+    @Test
+    void nearTieReportsRivalAndMargin() {
+        ScanSession s = new ScanSession(answering(GUARD_1, PRISONER_2), TOLERANCE, AMBIGUITY, 2);
+        s.onFrame(frame(0));
+        s.onFrame(frame(0));
+
+        String result = s.result("OK|DONE|SPACE");
+        assertEquals("OK|GUARD|1|0.3000|PRISONER:2|0.0500", result);
+
+        // Readers of the classic format still find label and id where they were
+        String[] parts = result.split("\\|");
+        assertEquals("GUARD", parts[1]);
+        assertEquals("1", parts[2]);
+    }
+
+    @Test
+    void marginIsTheTightestOverTheWindow() {
+        FaceMatch[][] frames = {
+                {GUARD_1, new FaceMatch("PRISONER", 2, 0.38f)},
+                {GUARD_1, new FaceMatch("PRISONER", 3, 0.32f)},
+                {GUARD_1},
+        };
+        int[] n = {0};
+        FaceSearch search = (probe, maxDistance, k) -> frames[n[0]++];
+        ScanSession s = new ScanSession(search, TOLERANCE, AMBIGUITY, 3);
+        for (int i = 0; i < frames.length; i++) s.onFrame(frame(0));
+        assertEquals("OK|GUARD|1|0.3000|PRISONER:3|0.0200", s.result("OK|DONE|SPACE"));
+    }
+
+    @Test
+    void sameSecondSampleIsNotARival() {
+        FaceMatch again = new FaceMatch("GUARD", 1, 0.31f);
+        ScanSession s = new ScanSession(answering(GUARD_1, again), TOLERANCE, AMBIGUITY, 1);
+        s.onFrame(frame(0));
+        assertEquals("OK|GUARD|1|0.3000", s.result("OK|DONE|SPACE"));
+    }
+
+    @Test
+    void scanEndedWithoutSpaceOrByErrorIsNotAMatch() {
+        ScanSession s = new ScanSession(answering(GUARD_1), TOLERANCE, AMBIGUITY, 1);
+        s.onFrame(frame(0));
+        assertEquals("OK|UNKNOWN|0", s.result("OK|DONE|QUIT"));
+        assertEquals("ERROR|WORKER|0", s.result("ERROR|WORKER|0"));
+    }
+
+    @Test
+    void malformedProbeThrows() {
+        ScanSession s = new ScanSession(answering(GUARD_1), TOLERANCE, AMBIGUITY, 1);
+        assertThrows(NumberFormatException.class, () -> s.onFrame("FRAME|1|0.1,zz"));
+    }
+
+    // ══════════════════════════════════════════════════════════════════════
+    //  THROUGH THE WORKER
+    // ══════════════════════════════════════════════════════════════════════
+
+    @Test
+    void ambiguousScanThroughFakeWorker(@TempDir Path dir) throws IOException {
+        String python = WorkerFixture.python();
+        assumeTrue(python != null, "no python interpreter on PATH");
+
+        float[] probe = new float[FaceGallery.DIM];
+        for (int k = 0; k < probe.length; k++) probe[k] = k / 256f;
+        Path npy = writeNpy(dir.resolve("probe.npy"), probe);
+
+        float[] seen = new float[FaceGallery.DIM];
+        FaceSearch search = (p, maxDistance, k) -> {
+            System.arraycopy(p, 0, seen, 0, p.length);
+            return answering(GUARD_1, PRISONER_2).nearest(p, maxDistance, k);
+        };
+        ScanSession session = new ScanSession(search, TOLERANCE, AMBIGUITY, 3);
+
+        RecognitionWorker worker = new RecognitionWorker(python, WorkerFixture.FAKE_WORKER, WorkerFixture.PYTHON_DIR,
+                Map.of("FAKE_PROBE", npy.toAbsolutePath().toString(), "FAKE_FRAMES", "5"));
+        try {
+            assertEquals("OK|GUARD|1|0.3000|PRISONER:2|0.0500", session.result(worker.scan(session::onFrame)));
+        } finally {
+            worker.stop();
+        }
+        for (int k = 0; k < probe.length; k++) assertEquals(probe[k], seen[k], 1e-6f);
+    }
+
+    /** 1-D little-endian float32 array in np.save's format. */
+    private static Path writeNpy(Path file, float[] values) throws IOException {
+        String header = "{'descr': '<f4', 'fortran_order': False, 'shape': (" + values.length + ",), }";
+        int pad = 16 - (10 + header.length() + 1) % 16;
+        header = header + " ".repeat(pad % 16) + "\n";
+        ByteBuffer buf = ByteBuffer.allocate(10 + header.length() + 4 * values.length).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put((byte) 0x93).put("NUMPY".getBytes(StandardCharsets.US_ASCII)).put((byte) 1).put((byte) 0);
+        buf.putShort((short) header.length()).put(header.getBytes(StandardCharsets.US_ASCII));
+        for (float v : values) buf.putFloat(v);
+        return Files.write(file, buf.array());
+    }
+}
@@ -0,0 +1,90 @@
+package com.prison.recognition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The Vector API kernel against the scalar loop on random rows. Dimensions
+ * that are not a multiple of any lane count push work into the scalar tail,
+ * and odd [from, to) ranges start and end mid-gallery.
+ */
+class VectorFaceMatcherTest {
+
+    private static final int[]   DIMS  = {1, 3, 7, 13, 17, 31, 127, FaceGallery.DIM, 129, 131};
+    private static final int     ROWS  = 257;
+    private static final float   EPS   = 1e-5f;
+
+    private final FaceMatcher scalar = new ScalarFaceMatcher();
+    private final FaceMatcher vector = new VectorFaceMatcher();
+    private final Random      rnd    = new Random(5);
+
+    private float[] random(int n) {
+        float[] v = new float[n];
+        for (int i = 0; i < n; i++) v[i] = (float) (rnd.nextGaussian() * 0.09);
+        return v;
+    }
+
+    /** Summation order differs between the kernels, so compare relative to the value. */
+    private static void assertClose(float expected, float actual) {
+        assertEquals(expected, actual, EPS * Math.max(1f, expected));
+    }
+
+    @Test
+    void squaredDistanceMatchesScalar() {
+        for (int dim : DIMS) {
+            float[] rows  = random(ROWS * dim);
+            float[] probe = random(dim);
+            for (int i = 0; i < ROWS; i++) {
+                assertClose(scalar.squaredDistance(probe, rows, i), vector.squaredDistance(probe, rows, i));
+            }
+        }
+    }
+
+    @Test
+    void nearestMatchesScalar() {
+        for (int dim : DIMS) {
+            float[] rows = random(ROWS * dim);
+            for (int q = 0; q < 20; q++) {
+                float[] probe = random(dim);
+                int from = rnd.nextInt(ROWS / 2);
+                int to   = from + 1 + rnd.nextInt(ROWS - from);
+                FaceMatcher.Nearest want = scalar.nearest(probe, rows, from, to);
+                FaceMatcher.Nearest got  = vector.nearest(probe, rows, from, to);
+                assertEquals(want.index, got.index, "dim " + dim + " [" + from + ", " + to + ")");
+                assertClose(want.squaredDistance, got.squaredDistance);
+            }
+            assertFalse(vector.nearest(random(dim), rows, 9, 9).found());
+        }
+    }
+
+    @Test
+    void topKMatchesScalar() {
+        for (int dim : DIMS) {
+            float[] rows = random(ROWS * dim);
+            for (int q = 0; q < 20; q++) {
+                float[] probe = random(dim);
+                int from = rnd.nextInt(ROWS / 2);
+                int to   = from + 1 + rnd.nextInt(ROWS - from);
+                for (int k : new int[]{1, 2, 5}) {
+                    TopK want = new TopK(k);
+                    TopK got  = new TopK(k);
+                    scalar.topK(probe, rows, from, to, want);
+                    vector.topK(probe, rows, from, to, got);
+
+                    int[]   wantRows = new int[k];
+                    int[]   gotRows  = new int[k];
+                    float[] wantDist = new float[k];
+                    float[] gotDist  = new float[k];
+                    assertEquals(want.drainSorted(wantRows, wantDist), got.drainSorted(gotRows, gotDist));
+                    assertArrayEquals(wantRows, gotRows, "dim " + dim + " k " + k);
+                    for (int j = 0; j < k; j++) assertClose(wantDist[j], gotDist[j]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.prison.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** In-place growth and slot moves of gallery.pfg. */
+class GalleryFileTest {
+
+    private static final int DIM = 128;
+
+    private static float[] vector(int id, int sample) {
+        float[] v = new float[DIM];
+        for (int k = 0; k < DIM; k++) v[k] = id * 1000 + sample * 10 + k / 256f;
+        return v;
+    }
+
+    private static int capacity(Path file) throws IOException {
+        byte[] header = new byte[24];
+        System.arraycopy(Files.readAllBytes(file), 0, header, 0, header.length);
+        return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(20);
+    }
+
+    private static void assertRow(GalleryFile file, int i, int type, int id, int sample) {
+        assertEquals(type, file.type(i));
+        assertEquals(id, file.personId(i));
+        assertEquals(sample, file.sample(i));
+        float[] row = new float[DIM];
+        file.copyRow(i, row, 0);
+        assertArrayEquals(vector(id, sample), row);
+    }
+
+    @Test
+    void upsertPastCapacityGrowsTheSameFileInPlace(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("gallery.pfg");
+        GalleryFile.upsert(file, GalleryFile.GUARD, 1, 0, vector(1, 0));
+        assertEquals(256, capacity(file));
+        for (int id = 2; id <= 256; id++) GalleryFile.upsert(file, GalleryFile.PRISONER, id, 0, vector(id, 0));
+
+        Object before = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        GalleryFile old = GalleryFile.map(file);
+
+        for (int id = 257; id <= 600; id++) GalleryFile.upsert(file, GalleryFile.PRISONER, id, 0, vector(id, 0));
+
+        assertEquals(1024, capacity(file));
+        if (before != null) assertEquals(before, Files.readAttributes(file, BasicFileAttributes.class).fileKey());
+        assertEquals(false, Files.exists(dir.resolve("gallery.pfg.tmp")));
+
+        GalleryFile grown = GalleryFile.map(file);
+        assertEquals(600, grown.count());
+        assertRow(grown, 0, GalleryFile.GUARD, 1, 0);
+        for (int i = 1; i < 600; i++) assertRow(grown, i, GalleryFile.PRISONER, i + 1, 0);
+
+        // A mapping taken before the growth still reads the rows it covers
+        assertEquals(256, old.count());
+        assertRow(old, 255, GalleryFile.PRISONER, 256, 0);
+    }
+
+    @Test
+    void retakeReplacesTheSampleInPlace(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("gallery.pfg");
+        GalleryFile.upsert(file, GalleryFile.GUARD, 1, 0, vector(1, 0));
+        GalleryFile.upsert(file, GalleryFile.GUARD, 2, 0, vector(2, 0));
+        GalleryFile.upsert(file, GalleryFile.GUARD, 1, 0, vector(1, 0));
+        assertEquals(2, GalleryFile.map(file).count());
+    }
+
+    @Test
+    void removeMovesTheLastRowsIntoTheFreedSlots(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("gallery.pfg");
+        GalleryFile.upsert(file, GalleryFile.GUARD, 1, 0, vector(1, 0));
+        GalleryFile.upsert(file, GalleryFile.GUARD, 1, 1, vector(1, 1));
+        GalleryFile.upsert(file, GalleryFile.PRISONER, 2, 0, vector(2, 0));
+        GalleryFile.upsert(file, GalleryFile.PRISONER, 3, 4, vector(3, 4));
+
+        GalleryFile.remove(file, GalleryFile.GUARD, 1);
+
+        GalleryFile g = GalleryFile.map(file);
+        assertEquals(2, g.count());
+        assertRow(g, 0, GalleryFile.PRISONER, 3, 4);
+        assertRow(g, 1, GalleryFile.PRISONER, 2, 0);
+    }
+
+    @Test
+    void olderVersionIsRejected(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("gallery.pfg");
+        GalleryFile.upsert(file, GalleryFile.GUARD, 1, 0, vector(1, 0));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[8] = 2;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> GalleryFile.map(file));
+    }
+}
@@ -0,0 +1,115 @@
+package com.prison.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Header parsing for the dtypes, shapes and format versions np.save writes. */
+class NpyReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private static final float[] VALUES = {0.25f, -1.5f, 3f, 0.125f, 7.75f, -0.5f};
+
+    /** An .npy file as np.save writes it: header padded so the data starts on a 16- (v1) or 64-byte boundary. */
+    private Path npy(String name, int major, String descr, String shape, boolean fortran, float[] values)
+            throws IOException {
+        String dict = "{'descr': '" + descr + "', 'fortran_order': " + (fortran ? "True" : "False")
+                + ", 'shape': " + shape + ", }";
+        int prefix = 6 + 2 + (major == 1 ? 2 : 4);
+        int align  = major == 1 ? 16 : 64;
+        int pad    = (align - (prefix + dict.length() + 1) % align) % align;
+        byte[] header = (dict + " ".repeat(pad) + "\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        boolean f8 = descr.equals("<f8");
+        ByteBuffer buf = ByteBuffer.allocate(prefix + header.length + values.length * (f8 ? 8 : 4))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buf.put((byte) 0x93).put("NUMPY".getBytes(StandardCharsets.US_ASCII)).put((byte) major).put((byte) 0);
+        if (major == 1) buf.putShort((short) header.length);
+        else            buf.putInt(header.length);
+        buf.put(header);
+        for (float v : values) {
+            if (f8) buf.putDouble(v);
+            else    buf.putFloat(v);
+        }
+        return Files.write(dir.resolve(name), buf.array());
+    }
+
+    private static float[] row(NpyReader r, int row) {
+        float[] out = new float[r.cols()];
+        r.copyRow(row, out, 0);
+        return out;
+    }
+
+    @Test
+    void float32VersionOne() throws IOException {
+        NpyReader r = NpyReader.open(npy("a.npy", 1, "<f4", "(6,)", false, VALUES));
+        assertFalse(r.isFloat64());
+        assertEquals(1, r.rows());
+        assertEquals(6, r.cols());
+        assertArrayEquals(VALUES, row(r, 0));
+        assertEquals(-1.5f, r.floatRow(0).get(1));
+    }
+
+    @Test
+    void float64VersionOne() throws IOException {
+        NpyReader r = NpyReader.open(npy("a.npy", 1, "<f8", "(6,)", false, VALUES));
+        assertTrue(r.isFloat64());
+        assertArrayEquals(VALUES, row(r, 0));
+        assertEquals(7.75, r.doubleRow(0).get(4));
+    }
+
+    @Test
+    void versionTwoHeaderWithTwoDimensions() throws IOException {
+        for (String descr : new String[] {"<f4", "<f8"}) {
+            NpyReader r = NpyReader.open(npy("b" + descr.charAt(2) + ".npy", 2, descr, "(2, 3)", false, VALUES));
+            assertEquals(2, r.rows());
+            assertEquals(3, r.cols());
+            assertArrayEquals(new float[] {0.125f, 7.75f, -0.5f}, row(r, 1));
+        }
+    }
+
+    @Test
+    void singleRowStoredFortranOrderIsTheSame() throws IOException {
+        NpyReader r = NpyReader.open(npy("c.npy", 1, "<f4", "(1, 6)", true, VALUES));
+        assertArrayEquals(VALUES, row(r, 0));
+    }
+
+    @Test
+    void fileCanBeDeletedRightAfterReading() throws IOException {
+        Path file = npy("d.npy", 1, "<f8", "(6,)", false, VALUES);
+        NpyReader r = NpyReader.open(file);
+        Files.delete(file);
+        assertArrayEquals(VALUES, row(r, 0));
+    }
+
+    @Test
+    void rejectsWhatItCannotRead() throws IOException {
+        assertThrows(IOException.class, () -> NpyReader.open(npy("e.npy", 1, ">f4", "(6,)", false, VALUES)));
+        assertThrows(IOException.class, () -> NpyReader.open(npy("f.npy", 1, "<i8", "(6,)", false, VALUES)));
+        assertThrows(IOException.class, () -> NpyReader.open(npy("g.npy", 1, "<f4", "(2, 3)", true, VALUES)));
+        assertThrows(IOException.class, () -> NpyReader.open(npy("h.npy", 1, "<f4", "(1, 2, 3)", false, VALUES)));
+        assertThrows(IOException.class, () -> NpyReader.open(npy("i.npy", 1, "<f4", "(7,)", false, VALUES)));
+
+        Path notNpy = Files.write(dir.resolve("j.npy"), "hello".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> NpyReader.open(notNpy));
+
+        byte[] whole = Files.readAllBytes(npy("k.npy", 2, "<f4", "(6,)", false, VALUES));
+        Path cut = Files.write(dir.resolve("l.npy"), Arrays.copyOf(whole, 20));
+        assertThrows(IOException.class, () -> NpyReader.open(cut));
+    }
+}
@@ -0,0 +1,107 @@
+package com.prison.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The worker protocol against the fake_worker.py test resource: READY on start,
+ * PING, SCAN with its FRAME/MATCH exchange, QUIT, and recovery from a
+ * worker that dies or is left mid-scan.
+ */
+class RecognitionWorkerTest {
+
+    private static String python;
+
+    private RecognitionWorker worker;
+
+    @BeforeAll
+    static void findPython() {
+        python = WorkerFixture.python();
+        assumeTrue(python != null, "no python interpreter on PATH");
+    }
+
+    @AfterEach
+    void stopWorker() {
+        if (worker != null) worker.stop();
+    }
+
+    private RecognitionWorker fake(Map<String, String> env) {
+        worker = new RecognitionWorker(python, WorkerFixture.FAKE_WORKER, WorkerFixture.PYTHON_DIR, env);
+        return worker;
+    }
+
+    @Test
+    void startsOnReadyAndAnswersPing() throws Exception {
+        RecognitionWorker w = fake(Map.of());
+        w.start();
+        assertTrue(w.isAlive());
+        assertEquals("OK|PONG|0", w.ping());
+        assertEquals("OK|PONG|0", w.ping());
+        assertEquals(0, w.getRestarts());
+    }
+
+    @Test
+    void scanPassesEveryFrameAndWritesTheAnswerBack() {
+        RecognitionWorker w = fake(Map.of("FAKE_FRAMES", "4"));
+        List<String> frames = new ArrayList<>();
+        String reply = w.scan(frame -> {
+            frames.add(frame);
+            return "MATCH|UNKNOWN|0|";
+        });
+        assertEquals("OK|DONE|SPACE", reply);
+        assertEquals(4, frames.size());
+        assertEquals("FRAME|0|", frames.get(0));
+    }
+
+    @Test
+    void scanReportsTheKeyThatEndedIt() {
+        RecognitionWorker w = fake(Map.of("FAKE_FRAMES", "1", "FAKE_KEY", "QUIT"));
+        assertEquals("OK|DONE|QUIT", w.scan(frame -> "MATCH|UNKNOWN|0|"));
+    }
+
+    @Test
+    void stopSendsQuit() throws Exception {
+        RecognitionWorker w = fake(Map.of());
+        w.start();
+        w.stop();
+        assertFalse(w.isAlive());
+        assertEquals("OK|PONG|0", w.ping());     // started again on demand
+    }
+
+    @Test
+    void crashMidScanIsReportedAndTheWorkerRestarted() {
+        RecognitionWorker w = fake(Map.of("FAKE_FRAMES", "2", "FAKE_CRASH_AFTER", "2"));
+        assertEquals("OK|DONE|SPACE", w.scan(frame -> "MATCH|UNKNOWN|0|"));
+        assertEquals("ERROR|WORKER|0", w.scan(frame -> "MATCH|UNKNOWN|0|"));
+        assertFalse(w.isAlive());
+
+        assertEquals("OK|DONE|SPACE", w.scan(frame -> "MATCH|UNKNOWN|0|"));
+        assertEquals(1, w.getRestarts());
+    }
+
+    @Test
+    void frameHandlerFailureDoesNotLeakIntoTheNextRequest() {
+        RecognitionWorker w = fake(Map.of("FAKE_FRAMES", "3"));
+        String reply = w.scan(frame -> {
+            throw new NumberFormatException("bad probe");
+        });
+        assertEquals("ERROR|WORKER|0", reply);
+        // Without the restart this would read the abandoned scan's FRAME lines
+        assertEquals("OK|PONG|0", w.ping());
+    }
+
+    @Test
+    void unknownCommandIsAnError() {
+        assertEquals("ERROR|BAD_COMMAND|0", fake(Map.of()).request("HELLO", null));
+    }
+}
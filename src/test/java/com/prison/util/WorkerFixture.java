@@ -0,0 +1,38 @@
+package com.prison.util;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+/** Shared setup for tests that drive the fake_worker.py test resource. */
+public final class WorkerFixture {
+
+    public static final File PYTHON_DIR = new File(PythonRunnerUtil.PYTHON_DIR);
+
+    /** fake_worker.py as copied to target/test-classes, absolute so any working directory works. */
+    public static final String FAKE_WORKER = script("/fake_worker.py");
+
+    private WorkerFixture() {}
+
+    private static String script(String resource) {
+        try {
+            return new File(WorkerFixture.class.getResource(resource).toURI()).getAbsolutePath();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(resource, e);
+        }
+    }
+
+    /** python3 or python, whichever runs, or null when neither is installed. */
+    public static String python() {
+        for (String candidate : new String[] {"python3", PythonRunnerUtil.PYTHON}) {
+            try {
+                Process p = new ProcessBuilder(candidate, "--version").redirectErrorStream(true).start();
+                p.getInputStream().readAllBytes();
+                if (p.waitFor(10, TimeUnit.SECONDS) && p.exitValue() == 0) return candidate;
+            } catch (Exception ignored) {
+                // not on PATH
+            }
+        }
+        return null;
+    }
+}
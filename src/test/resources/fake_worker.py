@@ -0,0 +1,90 @@
+import ast
+import os
+import struct
+import sys
+import time
+
+# =====================
+# FAKE RECOGNITION WORKER
+# Speaks the same stdin/stdout protocol as recognize_worker.py but never
+# touches a camera, dlib or numpy, so the Java side can be exercised on a
+# headless machine. Test-only: it lives under src/test/resources and is
+# never shipped in python-face/. To run the app against it:
+#
+#   java -Dprison.recognition.worker=../src/test/resources/fake_worker.py ...
+#
+# Behaviour is driven by environment variables:
+#   FAKE_PROBE        .npy encoding sent as the face in every frame
+#                     (absolute, or relative to the working directory
+#                     python-face/, e.g. encodings/prisoners/12.npy);
+#                     no face if unset
+#   FAKE_FRAMES       AI frames sent per SCAN          (default 5)
+#   FAKE_KEY          key that ends the scan, SPACE or QUIT (default SPACE)
+#   FAKE_DELAY        seconds between frames           (default 0)
+#   FAKE_CRASH_AFTER  exit abruptly on this SCAN number (default never)
+# =====================
+
+PROBE_FILE  = os.environ.get("FAKE_PROBE", "")
+FRAMES      = int(os.environ.get("FAKE_FRAMES", "5"))
+KEY         = os.environ.get("FAKE_KEY", "SPACE")
+DELAY       = float(os.environ.get("FAKE_DELAY", "0"))
+CRASH_AFTER = int(os.environ.get("FAKE_CRASH_AFTER", "0"))
+
+
+def reply(line):
+    sys.stdout.write(line + "\n")
+    sys.stdout.flush()
+
+
+def load_probe():
+    if not PROBE_FILE:
+        return ""
+    # Plain-Python read of a 1-D little-endian float .npy written by np.save
+    with open(PROBE_FILE, "rb") as f:
+        data = f.read()
+    header_len = struct.unpack_from("<H", data, 8)[0]
+    header = ast.literal_eval(data[10:10 + header_len].decode("latin1"))
+    fmt = "d" if header["descr"] == "<f8" else "f"
+    count = header["shape"][0]
+    values = struct.unpack_from("<%d%s" % (count, fmt), data, 10 + header_len)
+    return ",".join("%.7g" % v for v in values)
+
+
+def main():
+    probe = load_probe()
+    scans = 0
+    reply("READY|0|0")
+
+    while True:
+        raw = sys.stdin.readline()
+        if not raw:
+            break
+        command = raw.strip().upper()
+        if not command:
+            continue
+
+        if command == "PING":
+            reply("OK|PONG|0")
+
+        elif command == "SCAN":
+            scans += 1
+            if CRASH_AFTER and scans >= CRASH_AFTER:
+                print("fake worker: simulated crash")
+                sys.stdout.flush()
+                os._exit(3)
+            for _ in range(FRAMES):
+                if DELAY:
+                    time.sleep(DELAY)
+                reply(f"FRAME|1|{probe}" if probe else "FRAME|0|")
+                print("fake worker: " + sys.stdin.readline().strip())
+            reply(f"OK|DONE|{KEY}")
+
+        elif command == "QUIT":
+            break
+
+        else:
+            reply("ERROR|BAD_COMMAND|0")
+
+
+if __name__ == "__main__":
+    main()